@@ -0,0 +1,106 @@
+/*
+ * Copyright 2000-2025 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.integration.maven;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.vaadin.integration.maven.ClassPathExplorer.LocationInfo;
+import com.vaadin.integration.maven.benchmarks.Fixtures;
+
+/**
+ * Scan of the class path for the widgetsets and stylesheets of add-ons, as
+ * done by the update-widgetset and update-theme goals, over jars of which one
+ * out of ten is an add-on. The add-on attributes of the jars are cached for
+ * the whole build, so reading the manifests is measured on its own.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class ClassPathExplorerBenchmark {
+
+    @Param({ "50", "500" })
+    public int jars;
+
+    private File directory;
+
+    private List<File> jarFiles;
+
+    private Map<String, URL> classpathLocations;
+
+    private AddonManifestCache warmCache;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        directory = Fixtures.createDirectory("classpath-explorer");
+        classpathLocations = new LinkedHashMap<String, URL>();
+        jarFiles = Fixtures.createJars(directory, jars, 10);
+        for (File jar : jarFiles) {
+            classpathLocations.put(jar.getPath(), jar.toURI().toURL());
+        }
+        warmCache = new AddonManifestCache(null);
+        ClassPathExplorer.getAvailableWidgetSetsAndStylesheets(
+                classpathLocations, warmCache);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        Fixtures.delete(directory);
+    }
+
+    /**
+     * Every manifest is read, as in the first build of a workspace.
+     */
+    @Benchmark
+    public void readManifests(Blackhole blackhole) throws IOException {
+        for (File jar : jarFiles) {
+            blackhole.consume(ClassPathExplorer.readManifestAttributes(jar));
+        }
+    }
+
+    /**
+     * The add-on attributes of all the jars come from the manifest cache, as
+     * in the following builds.
+     */
+    @Benchmark
+    public LocationInfo scanCached() {
+        return ClassPathExplorer.getAvailableWidgetSetsAndStylesheets(
+                classpathLocations, warmCache);
+    }
+}
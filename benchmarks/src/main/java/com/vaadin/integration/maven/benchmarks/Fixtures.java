@@ -0,0 +1,237 @@
+/*
+ * Copyright 2000-2025 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.integration.maven.benchmarks;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import org.apache.commons.io.FileUtils;
+
+/**
+ * Synthetic inputs of the benchmarks, generated in a temporary folder. They
+ * are deterministic, so that the numbers of two runs can be compared.
+ */
+public final class Fixtures {
+
+    private Fixtures() {
+    }
+
+    public static File createDirectory(String prefix) throws IOException {
+        File directory = File.createTempFile(prefix, "");
+        directory.delete();
+        if (!directory.mkdirs()) {
+            throw new IOException("Cannot create " + directory);
+        }
+        return directory;
+    }
+
+    public static void delete(File directory) throws IOException {
+        if (directory != null) {
+            FileUtils.deleteDirectory(directory);
+        }
+    }
+
+    /**
+     * Writes jars with a few classes. One jar out of
+     * <code>addonRatio</code> is a Vaadin add-on, declaring a widgetset and a
+     * stylesheet in its manifest.
+     */
+    public static List<File> createJars(File directory, int count,
+            int addonRatio) throws IOException {
+        List<File> jars = new ArrayList<File>();
+        for (int i = 0; i < count; i++) {
+            Manifest manifest = new Manifest();
+            Attributes attributes = manifest.getMainAttributes();
+            attributes.put(Attributes.Name.MANIFEST_VERSION, "1.0");
+            attributes.putValue("Implementation-Title", "library" + i);
+            if (i % addonRatio == 0) {
+                attributes.putValue("Vaadin-Package-Version", "1");
+                attributes.putValue("Vaadin-Widgetsets",
+                        "org.example.addon" + i + ".WidgetSet");
+                attributes.putValue("Vaadin-Stylesheets",
+                        "VAADIN/addons/addon" + i + "/styles.css");
+            }
+            File jar = new File(directory, "library" + i + ".jar");
+            JarOutputStream out = new JarOutputStream(
+                    new FileOutputStream(jar), manifest);
+            try {
+                for (int j = 0; j < 20; j++) {
+                    out.putNextEntry(new JarEntry("org/example/library" + i
+                            + "/Class" + j + ".class"));
+                    out.write(new byte[256]);
+                    out.closeEntry();
+                }
+            } finally {
+                out.close();
+            }
+            jars.add(jar);
+        }
+        return jars;
+    }
+
+    /**
+     * Writes a chain of GWT modules <code>org.example.Module0</code> to
+     * <code>Module{depth - 1}</code>, each inheriting the previous one and
+     * the GWT user module, with source and public paths and a property, set
+     * to a single value in nine modules out of ten.
+     *
+     * @return the name of the last module of the chain
+     */
+    public static String createModuleChain(File directory, int depth)
+            throws IOException {
+        for (int i = 0; i < depth; i++) {
+            StringBuilder xml = new StringBuilder();
+            xml.append("<module>\n");
+            xml.append("  <inherits name=\"com.google.gwt.user.User\" />\n");
+            if (i > 0) {
+                xml.append("  <inherits name=\"org.example.Module")
+                        .append(i - 1).append("\" />\n");
+            }
+            xml.append("  <source path=\"client").append(i)
+                    .append("\" />\n");
+            xml.append("  <public path=\"public").append(i)
+                    .append("\" />\n");
+            xml.append("  <define-property name=\"feature").append(i)
+                    .append("\" values=\"on,off\" />\n");
+            if (i % 10 != 0) {
+                xml.append("  <set-property name=\"feature").append(i)
+                        .append("\" value=\"on\" />\n");
+            }
+            xml.append("</module>\n");
+            write(new File(directory, "org/example/Module" + i + ".gwt.xml"),
+                    xml.toString());
+        }
+        return "org.example.Module" + (depth - 1);
+    }
+
+    /**
+     * Writes a web.xml declaring filters, listeners and servlets.
+     */
+    public static File createWebXml(File directory, int servlets)
+            throws IOException {
+        StringBuilder xml = new StringBuilder();
+        xml.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        xml.append(
+                "<web-app xmlns=\"http://java.sun.com/xml/ns/javaee\" version=\"2.5\">\n");
+        xml.append("  <display-name>benchmark</display-name>\n");
+        for (int i = 0; i < servlets / 10; i++) {
+            xml.append("  <filter><filter-name>filter").append(i)
+                    .append("</filter-name><filter-class>org.example.Filter")
+                    .append(i).append("</filter-class></filter>\n");
+        }
+        for (int i = 0; i < servlets / 10; i++) {
+            xml.append("  <listener><listener-class>org.example.Listener")
+                    .append(i).append("</listener-class></listener>\n");
+        }
+        for (int i = 0; i < servlets; i++) {
+            xml.append("  <servlet><servlet-name>servlet").append(i)
+                    .append("</servlet-name><servlet-class>org.example.Servlet")
+                    .append(i).append("</servlet-class></servlet>\n");
+        }
+        for (int i = 0; i < servlets; i++) {
+            xml.append("  <servlet-mapping><servlet-name>servlet").append(i)
+                    .append("</servlet-name><url-pattern>/servlet")
+                    .append(i).append("/*</url-pattern></servlet-mapping>\n");
+        }
+        xml.append(
+                "  <welcome-file-list><welcome-file>index.html</welcome-file></welcome-file-list>\n");
+        xml.append("</web-app>\n");
+        File webXml = new File(directory, "web.xml");
+        write(webXml, xml.toString());
+        return webXml;
+    }
+
+    /**
+     * Compiles a source tree of <code>org.example.app</code>, where one class
+     * out of <code>servletRatio</code> is a GWT RPC servlet implementing a
+     * service annotated with <code>RemoteServiceRelativePath</code>. The GWT
+     * types are stubbed, as only the class files are read.
+     *
+     * @return the folder of the compiled classes
+     */
+    public static File compileSourceTree(File directory, int classes,
+            int servletRatio) throws IOException {
+        File sources = new File(directory, "src");
+        File output = new File(directory, "classes");
+        output.mkdirs();
+        List<String> arguments = new ArrayList<String>();
+        arguments.add("-d");
+        arguments.add(output.getPath());
+        arguments.add(write(new File(sources,
+                "com/google/gwt/user/client/rpc/RemoteServiceRelativePath.java"),
+                "package com.google.gwt.user.client.rpc;\n"
+                        + "@java.lang.annotation.Retention(java.lang.annotation.RetentionPolicy.RUNTIME)\n"
+                        + "public @interface RemoteServiceRelativePath { String value(); }\n"));
+        arguments.add(write(new File(sources,
+                "com/google/gwt/user/server/rpc/RemoteServiceServlet.java"),
+                "package com.google.gwt.user.server.rpc;\n"
+                        + "public class RemoteServiceServlet {}\n"));
+        for (int i = 0; i < classes; i++) {
+            String pkg = "org.example.app.module" + (i % 10);
+            String source;
+            if (i % servletRatio == 0) {
+                arguments.add(write(new File(sources,
+                        pkg.replace('.', '/') + "/Service" + i + ".java"),
+                        "package " + pkg + ";\n"
+                                + "@com.google.gwt.user.client.rpc.RemoteServiceRelativePath(\"service"
+                                + i + "\")\n" + "public interface Service" + i
+                                + " {}\n"));
+                source = "package " + pkg + ";\n" + "public class Class" + i
+                        + " extends com.google.gwt.user.server.rpc.RemoteServiceServlet"
+                        + " implements Service" + i + " {}\n";
+            } else {
+                source = "package " + pkg + ";\n" + "public class Class" + i
+                        + " { public String value() { return \"" + i
+                        + "\"; } }\n";
+            }
+            arguments.add(write(new File(sources,
+                    pkg.replace('.', '/') + "/Class" + i + ".java"), source));
+        }
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new IOException(
+                    "The benchmarks must be run with a JDK to compile their fixtures");
+        }
+        if (compiler.run(null, null, null,
+                arguments.toArray(new String[arguments.size()])) != 0) {
+            throw new IOException("Compilation of the fixtures failed");
+        }
+        return output;
+    }
+
+    private static String write(File file, String content) throws IOException {
+        file.getParentFile().mkdirs();
+        OutputStream out = new FileOutputStream(file);
+        try {
+            out.write(content.getBytes(StandardCharsets.UTF_8));
+        } finally {
+            out.close();
+        }
+        return file.getPath();
+    }
+}
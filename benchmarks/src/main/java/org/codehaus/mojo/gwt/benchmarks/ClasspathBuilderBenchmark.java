@@ -0,0 +1,140 @@
+package org.codehaus.mojo.gwt.benchmarks;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.model.Resource;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.mojo.gwt.ClasspathBuilder;
+import org.codehaus.mojo.gwt.ClasspathBuilderException;
+import org.codehaus.plexus.logging.Logger;
+import org.codehaus.plexus.logging.console.ConsoleLogger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Classpath of the forked JVMs, built from the project folders and artifacts by each mojo of a build.
+ *
+ * @since 8.28
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 10, time = 1 )
+@Fork( 2 )
+public class ClasspathBuilderBenchmark
+{
+    @Param( { "50", "500" } )
+    public int artifacts;
+
+    private MavenProject project;
+
+    private Set<Artifact> projectArtifacts;
+
+    private ClasspathBuilder warmBuilder;
+
+    @Setup( Level.Trial )
+    public void setUp()
+        throws Exception
+    {
+        File basedir = new File( "target/classpath-builder" ).getAbsoluteFile();
+        project = new MavenProject();
+        project.getBuild().setOutputDirectory( new File( basedir, "target/classes" ).getPath() );
+        project.getBuild().setTestOutputDirectory( new File( basedir, "target/test-classes" ).getPath() );
+        project.addCompileSourceRoot( new File( basedir, "src/main/java" ).getPath() );
+        project.addCompileSourceRoot( new File( basedir, "target/generated-sources/gwt" ).getPath() );
+        Resource resource = new Resource();
+        resource.setDirectory( new File( basedir, "src/main/resources" ).getPath() );
+        project.addResource( resource );
+
+        String[] scopes = { Artifact.SCOPE_COMPILE, Artifact.SCOPE_PROVIDED, Artifact.SCOPE_RUNTIME,
+            Artifact.SCOPE_TEST };
+        DefaultArtifactHandler handler = new DefaultArtifactHandler( "jar" );
+        handler.setAddedToClasspath( true );
+        projectArtifacts = new LinkedHashSet<Artifact>();
+        for ( int i = 0; i < artifacts; i++ )
+        {
+            Artifact artifact = new DefaultArtifact( "org.example", "library" + i, "1.0", scopes[i % scopes.length],
+                                                     "jar", null, handler );
+            artifact.setFile( new File( basedir, "repository/org/example/library" + i + "/1.0/library" + i
+                + "-1.0.jar" ) );
+            projectArtifacts.add( artifact );
+        }
+
+        warmBuilder = createBuilder();
+        warmBuilder.buildClasspathList( project, Artifact.SCOPE_RUNTIME, projectArtifacts, false );
+    }
+
+    private static ClasspathBuilder createBuilder()
+    {
+        ClasspathBuilder builder = new ClasspathBuilder();
+        builder.enableLogging( new ConsoleLogger( Logger.LEVEL_WARN, "benchmark" ) );
+        return builder;
+    }
+
+    /**
+     * The classpath is built from scratch, as for the first mojo of a build.
+     */
+    @Benchmark
+    public Collection<File> build()
+        throws ClasspathBuilderException
+    {
+        return createBuilder().buildClasspathList( project, Artifact.SCOPE_RUNTIME, projectArtifacts, false );
+    }
+
+    /**
+     * The classpath is already built for the same project folders and artifacts, as for the following mojos.
+     */
+    @Benchmark
+    public Collection<File> buildMemoized()
+        throws ClasspathBuilderException
+    {
+        return warmBuilder.buildClasspathList( project, Artifact.SCOPE_RUNTIME, projectArtifacts, false );
+    }
+
+    /**
+     * Hash of the classpath used as a key of the caches, from scratch.
+     */
+    @Benchmark
+    public String hash()
+        throws ClasspathBuilderException
+    {
+        return createBuilder().getClasspathHash( project, Artifact.SCOPE_RUNTIME, projectArtifacts, false );
+    }
+}
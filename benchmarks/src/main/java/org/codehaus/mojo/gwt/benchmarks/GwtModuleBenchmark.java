@@ -0,0 +1,151 @@
+package org.codehaus.mojo.gwt.benchmarks;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.codehaus.mojo.gwt.GwtModule;
+import org.codehaus.mojo.gwt.GwtModuleReader;
+import org.codehaus.mojo.gwt.utils.GwtModuleReaderException;
+import org.codehaus.plexus.util.ReaderFactory;
+import org.codehaus.plexus.util.xml.Xpp3Dom;
+import org.codehaus.plexus.util.xml.Xpp3DomBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.vaadin.integration.maven.benchmarks.Fixtures;
+
+/**
+ * Resolution of the inherited modules of a GWT module, over a chain of modules each inheriting the previous one, as
+ * done by the up-to-date check and the compiler sizing.
+ *
+ * @since 8.28
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 10, time = 1 )
+@Fork( 2 )
+public class GwtModuleBenchmark
+{
+    @Param( { "10", "100" } )
+    public int depth;
+
+    private File directory;
+
+    private String moduleName;
+
+    private Reader warmReader;
+
+    @Setup( Level.Trial )
+    public void setUp()
+        throws Exception
+    {
+        directory = Fixtures.createDirectory( "gwt-module" );
+        moduleName = Fixtures.createModuleChain( directory, depth );
+        warmReader = new Reader( directory );
+        warmReader.readModule( moduleName ).getInherits();
+    }
+
+    @TearDown( Level.Trial )
+    public void tearDown()
+        throws Exception
+    {
+        Fixtures.delete( directory );
+    }
+
+    /**
+     * All the modules of the chain are parsed, as in the first mojo of a build.
+     */
+    @Benchmark
+    public int parseInherits()
+        throws GwtModuleReaderException
+    {
+        return new Reader( directory ).readModule( moduleName ).getInherits().size();
+    }
+
+    /**
+     * The modules are already parsed, as in the following mojos sharing the module cache.
+     */
+    @Benchmark
+    public int estimatePermutations()
+        throws GwtModuleReaderException
+    {
+        return warmReader.readModule( moduleName ).estimatePermutations();
+    }
+
+    /**
+     * Reads the modules from a folder, caching them by name as the mojos do for a build.
+     */
+    private static class Reader
+        implements GwtModuleReader
+    {
+        private final File directory;
+
+        private final Map<String, GwtModule> modules = new HashMap<String, GwtModule>();
+
+        Reader( File directory )
+        {
+            this.directory = directory;
+        }
+
+        public GwtModule readModule( String name )
+            throws GwtModuleReaderException
+        {
+            GwtModule module = modules.get( name );
+            if ( module == null )
+            {
+                File xml = new File( directory, name.replace( '.', '/' ) + ".gwt.xml" );
+                try
+                {
+                    Xpp3Dom dom = Xpp3DomBuilder.build( ReaderFactory.newXmlReader( xml ) );
+                    module = new GwtModule( name, dom, this );
+                }
+                catch ( Exception e )
+                {
+                    throw new GwtModuleReaderException( "Failed to read module file " + xml, e );
+                }
+                modules.put( name, module );
+            }
+            return module;
+        }
+
+        public List<String> getGwtModules()
+        {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package org.codehaus.mojo.gwt.benchmarks;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.codehaus.mojo.gwt.webxml.GwtWebInfProcessor;
+import org.codehaus.mojo.gwt.webxml.ServletAnnotationFinder;
+import org.codehaus.mojo.gwt.webxml.ServletDescriptor;
+import org.codehaus.plexus.logging.Logger;
+import org.codehaus.plexus.logging.console.ConsoleLogger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.vaadin.integration.maven.benchmarks.Fixtures;
+
+/**
+ * The two steps of the merge-web-xml goal : the scan of the compiled classes for GWT RPC servlets annotated with
+ * <code>RemoteServiceRelativePath</code>, one class out of ten being a servlet, and the merge of their declarations
+ * into a web.xml already declaring as many servlets.
+ *
+ * @since 8.28
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 10, time = 1 )
+@Fork( 2 )
+public class WebXmlBenchmark
+{
+    @Param( { "200", "2000" } )
+    public int classes;
+
+    private File directory;
+
+    private URLClassLoader classLoader;
+
+    private ServletAnnotationFinder finder;
+
+    private List<ServletDescriptor> servlets;
+
+    private File webXml;
+
+    private File mergedWebXml;
+
+    @Setup( Level.Trial )
+    public void setUp()
+        throws Exception
+    {
+        directory = Fixtures.createDirectory( "web-xml" );
+        File output = Fixtures.compileSourceTree( directory, classes, 10 );
+        classLoader = new URLClassLoader( new URL[] { output.toURI().toURL() }, null );
+        finder = new ServletAnnotationFinder();
+        finder.enableLogging( new ConsoleLogger( Logger.LEVEL_WARN, "benchmark" ) );
+        servlets = new ArrayList<ServletDescriptor>( finder.findServlets( "org.example.app", null, classLoader ) );
+        webXml = Fixtures.createWebXml( directory, servlets.size() );
+        mergedWebXml = new File( directory, "merged-web.xml" );
+    }
+
+    @TearDown( Level.Trial )
+    public void tearDown()
+        throws Exception
+    {
+        classLoader.close();
+        Fixtures.delete( directory );
+    }
+
+    @Benchmark
+    public Set<ServletDescriptor> findServlets()
+        throws Exception
+    {
+        return finder.findServlets( "org.example.app", "app", classLoader );
+    }
+
+    @Benchmark
+    public File mergeWebXml()
+        throws Exception
+    {
+        // servlets already declared are removed from the collection
+        new GwtWebInfProcessor().process( webXml, mergedWebXml, new ArrayList<ServletDescriptor>( servlets ) );
+        return mergedWebXml;
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+// Pre-build hook of the 'change' scenario of the performance suite : changes a single client source file of the
+// already built project, as a developer would before building again.
+
+def candidates = []
+new File(basedir, '.').eachFileRecurse(groovy.io.FileType.FILES) { file ->
+    def path = file.path.replace('\\', '/')
+    if (path.contains('/src/main/') && !path.contains('/target/')) {
+        candidates << file
+    }
+}
+candidates.sort { it.path }
+
+def changed = candidates.find { it.name.endsWith('.java') && it.path.replace('\\', '/').contains('/client/') } ?:
+        candidates.find { it.name.endsWith('.css') } ?:
+        candidates.find { it.name.endsWith('.properties') }
+if (changed == null) {
+    println "[perf] no client file to change in ${basedir}"
+    return true
+}
+
+def comment = changed.name.endsWith('.java') ? '// performance suite change' :
+        changed.name.endsWith('.css') ? '/* performance suite change */' : '# performance suite change'
+changed << "\n${comment}\n"
+println "[perf] changed ${changed}"
+return true
@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+// Post-build hook of the performance suite : aggregates the records of the goals of the project, written by the
+// plugin to perfReport for the 'cold', 'warm' and 'change' scenarios, into a JSON report, and fails when the
+// project regressed from the reports of a baseline run or breaks an expectation of the up-to-date checks.
+
+import groovy.json.JsonOutput
+import groovy.json.JsonSlurper
+
+def project = basedir.canonicalFile
+def slurper = new JsonSlurper()
+
+def records = []
+new File(perfReport).eachLine('UTF-8') { line ->
+    if (!line.trim()) {
+        return
+    }
+    def record = slurper.parseText(line)
+    if (!record.scenario || !record.basedir) {
+        return
+    }
+    def recordBasedir = new File(record.basedir).canonicalPath
+    if (recordBasedir == project.path || recordBasedir.startsWith(project.path + File.separator)) {
+        records << record
+    }
+}
+
+// only the last build of each scenario counts, the records of previous runs are kept until 'mvn clean'
+def lastBuilds = [:]
+records.each { record ->
+    lastBuilds[record.scenario] = Math.max(lastBuilds[record.scenario] ?: 0L, (record.buildStart ?: 0L) as long)
+}
+
+// scenario -> goal -> totals
+def scenarios = new TreeMap()
+records.findAll { ((it.buildStart ?: 0L) as long) == lastBuilds[it.scenario] }.each { record ->
+    def goals = scenarios.get(record.scenario, new TreeMap())
+    def totals = goals.get(record.goal, [executions: 0, wallMs: 0, forks: 0, bytesWritten: 0, failures: 0])
+    totals.executions++
+    totals.wallMs += record.wallMs
+    totals.forks += record.forks
+    totals.bytesWritten += record.bytesWritten
+    if (!record.succeeded) {
+        totals.failures++
+    }
+}
+
+def report = [project: project.name, timestamp: System.currentTimeMillis(), scenarios: scenarios]
+def reportFile = new File(perfReportDirectory, "${project.name}.json")
+reportFile.parentFile.mkdirs()
+reportFile.setText(JsonOutput.prettyPrint(JsonOutput.toJson(report)), 'UTF-8')
+println "[perf] report written to ${reportFile}"
+
+def failures = []
+
+// a project built again without changes must not compile its widgetsets again
+scenarios.warm?.each { goal, totals ->
+    if (goal == 'compile' && totals.forks > 0) {
+        failures << "warm: ${goal} forked ${totals.forks} JVMs, the up-to-date check should have skipped it"
+    }
+}
+
+def baselineFile = perfBaseline ? new File(perfBaseline, "${project.name}.json") : null
+if (baselineFile?.isFile()) {
+    def baseline = slurper.parse(baselineFile, 'UTF-8')
+    double tolerance = 1 + (perfMaxRegression as double) / 100
+    long minDelta = perfMinDeltaMs as long
+    scenarios.each { scenario, goals ->
+        goals.each { goal, totals ->
+            def previous = baseline.scenarios?.get(scenario)?.get(goal)
+            if (previous == null) {
+                return
+            }
+            if (totals.wallMs > previous.wallMs * tolerance && totals.wallMs - previous.wallMs > minDelta) {
+                failures << "${scenario}: ${goal} took ${totals.wallMs} ms instead of ${previous.wallMs} ms"
+            }
+            if (totals.forks > previous.forks) {
+                failures << "${scenario}: ${goal} forked ${totals.forks} JVMs instead of ${previous.forks}"
+            }
+            if (totals.bytesWritten > previous.bytesWritten * tolerance) {
+                failures << "${scenario}: ${goal} wrote ${totals.bytesWritten} bytes instead of ${previous.bytesWritten}"
+            }
+        }
+    }
+} else if (perfBaseline) {
+    println "[perf] no baseline for ${project.name} in ${perfBaseline}"
+}
+
+failures.each { println "[perf] REGRESSION ${project.name} ${it}" }
+assert failures.isEmpty()
+return true
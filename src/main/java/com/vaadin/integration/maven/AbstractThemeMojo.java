@@ -17,9 +17,7 @@ package com.vaadin.integration.maven;
 
 import java.io.File;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.List;
 
 import org.apache.maven.artifact.Artifact;
@@ -29,7 +27,6 @@ import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.codehaus.mojo.gwt.shell.AbstractGwtShellMojo;
 import org.codehaus.mojo.gwt.shell.JavaCommand;
-import org.codehaus.plexus.util.DirectoryScanner;
 
 /**
  * Abstract base class for theme compilation related Mojos.
@@ -185,15 +182,7 @@ public abstract class AbstractThemeMojo extends AbstractGwtShellMojo {
     }
 
     private Collection<String> scanDirectory(File baseDir) {
-        if (!baseDir.exists()) {
-            return Collections.emptyList();
-        }
-        DirectoryScanner scanner = new DirectoryScanner();
-        scanner.setBasedir(baseDir);
-        scanner.setIncludes(new String[] { "VAADIN/themes/*" });
-        scanner.scan();
-
-        return Arrays.asList(scanner.getIncludedDirectories());
+        return getSourceTreeIndex().get(baseDir).getThemes();
     }
 
 }
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2000-2025 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.integration.maven;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache of the add-on attributes (<code>Vaadin-Widgetsets</code> and
+ * <code>Vaadin-Stylesheets</code>) of the jar manifests, so that unchanged jars
+ * are not opened again. Jars are keyed by path, size and modification date.
+ * <p>
+ * Entries are kept in memory for the Maven JVM and, when a file is given, saved
+ * to disk to be reused by later builds.
+ *
+ * @since 8.28
+ */
+public class AddonManifestCache {
+
+    /**
+     * Separates the widgetsets and stylesheets in a cached value.
+     */
+    private static final String SEPARATOR = "|";
+
+    private static final Map<String, String[]> ENTRIES = new ConcurrentHashMap<String, String[]>();
+
+    private final File file;
+
+    private volatile boolean modified;
+
+    /**
+     * @param file
+     *            file holding the cache between builds, or <code>null</code>
+     *            to only cache in memory
+     */
+    public AddonManifestCache(File file) {
+        this.file = file;
+        if (file != null) {
+            load();
+        }
+    }
+
+    /**
+     * @return widgetsets and stylesheets attributes (each possibly
+     *         <code>null</code>) of the jar, or <code>null</code> if the jar
+     *         is not cached
+     */
+    public String[] get(File jar) {
+        return ENTRIES.get(getKey(jar));
+    }
+
+    public void put(File jar, String widgetsets, String stylesheets) {
+        ENTRIES.put(getKey(jar), new String[] { widgetsets, stylesheets });
+        modified = true;
+    }
+
+    /**
+     * Save the cache to its file if entries have been added.
+     */
+    public void save() {
+        if (file == null || !modified) {
+            return;
+        }
+        Properties properties = new Properties();
+        for (Map.Entry<String, String[]> entry : ENTRIES.entrySet()) {
+            if (isStale(entry.getKey())) {
+                // the jar has been removed or replaced
+                continue;
+            }
+            String[] value = entry.getValue();
+            properties.setProperty(entry.getKey(),
+                    (value[0] != null ? value[0] : "") + SEPARATOR
+                            + (value[1] != null ? value[1] : ""));
+        }
+        // concurrent builds may save the same cache
+        synchronized (AddonManifestCache.class) {
+            File temp = new File(file.getPath() + ".tmp" + System.nanoTime());
+            try {
+                file.getParentFile().mkdirs();
+                OutputStream out = new FileOutputStream(temp);
+                try {
+                    properties.store(out, "Vaadin add-on attributes of jar manifests");
+                } finally {
+                    out.close();
+                }
+                if (!temp.renameTo(file)) {
+                    file.delete();
+                    temp.renameTo(file);
+                }
+                modified = false;
+            } catch (IOException e) {
+                // the cache is only an optimization
+            } finally {
+                temp.delete();
+            }
+        }
+    }
+
+    private void load() {
+        if (!file.isFile()) {
+            return;
+        }
+        Properties properties = new Properties();
+        try {
+            InputStream in = new FileInputStream(file);
+            try {
+                properties.load(in);
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            return;
+        }
+        for (String key : properties.stringPropertyNames()) {
+            String value = properties.getProperty(key);
+            int index = value.indexOf(SEPARATOR);
+            if (index < 0 || ENTRIES.containsKey(key)) {
+                continue;
+            }
+            String widgetsets = value.substring(0, index);
+            String stylesheets = value.substring(index + 1);
+            ENTRIES.put(key, new String[] {
+                    widgetsets.isEmpty() ? null : widgetsets,
+                    stylesheets.isEmpty() ? null : stylesheets });
+        }
+    }
+
+    private static boolean isStale(String key) {
+        int date = key.lastIndexOf(SEPARATOR);
+        int size = date > 0 ? key.lastIndexOf(SEPARATOR, date - 1) : -1;
+        return size < 0
+                || !key.equals(getKey(new File(key.substring(0, size))));
+    }
+
+    private static String getKey(File jar) {
+        return jar.getAbsolutePath() + SEPARATOR + jar.length() + SEPARATOR
+                + jar.lastModified();
+    }
+}
@@ -21,11 +21,17 @@ import java.net.JarURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLConnection;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.jar.JarFile;
 import java.util.jar.Manifest;
 
@@ -77,6 +83,11 @@ public class ClassPathExplorer {
 
     private static final boolean debug = true;
 
+    /**
+     * Maximum number of threads reading jar manifests.
+     */
+    private static final int MAX_SCAN_THREADS = 8;
+
     /**
      * No instantiation from outside, callable methods are static.
      */
@@ -104,13 +115,39 @@ public class ClassPathExplorer {
      */
     public static LocationInfo getAvailableWidgetSetsAndStylesheets(
             Map<String, URL> classpathLocations) {
+        return getAvailableWidgetSetsAndStylesheets(classpathLocations,
+                new AddonManifestCache(null));
+    }
+
+    /**
+     * Finds the names and locations of widgetsets and themes available on the
+     * class path, reading the manifests of the jars missing from a cache in
+     * parallel.
+     *
+     * @param classpathLocations
+     * @param cache
+     *            add-on attributes of already read jars, updated and saved
+     *            with the jars read
+     * @return
+     */
+    public static LocationInfo getAvailableWidgetSetsAndStylesheets(
+            Map<String, URL> classpathLocations, AddonManifestCache cache) {
         long start = System.currentTimeMillis();
         Map<String, URL> widgetsets = new HashMap<String, URL>();
         Map<String, URL> themes = new HashMap<String, URL>();
+        Map<String, String[]> attributes = readAddonAttributes(
+                classpathLocations, cache);
         Set<String> keySet = classpathLocations.keySet();
         for (String location : keySet) {
-            searchForWidgetSetsAndAddonStyles(location, classpathLocations,
-                    widgetsets, themes);
+            String[] jarAttributes = attributes.get(location);
+            if (jarAttributes != null) {
+                URL url = classpathLocations.get(location);
+                addNames(jarAttributes[0], url, widgetsets);
+                addNames(jarAttributes[1], url, themes);
+            } else {
+                searchForWidgetSetsAndAddonStyles(location, classpathLocations,
+                        widgetsets, themes);
+            }
         }
         long end = System.currentTimeMillis();
 
@@ -129,6 +166,106 @@ public class ClassPathExplorer {
         return new LocationInfo(widgetsets, themes);
     }
 
+    /**
+     * Reads the add-on attributes of the jar files of the class path, from
+     * the cache or from their manifest.
+     *
+     * @return widgetsets and stylesheets attributes by location, for the jar
+     *         files
+     */
+    private static Map<String, String[]> readAddonAttributes(
+            Map<String, URL> classpathLocations,
+            final AddonManifestCache cache) {
+        final Map<String, String[]> attributes = new ConcurrentHashMap<String, String[]>();
+        final Map<String, File> missing = new HashMap<String, File>();
+        for (Map.Entry<String, URL> entry : classpathLocations.entrySet()) {
+            URL location = entry.getValue();
+            if (!"file".equals(location.getProtocol())) {
+                continue;
+            }
+            File file = new File(location.getFile());
+            if (!file.isFile()) {
+                continue;
+            }
+            String[] cached = cache.get(file);
+            if (cached != null) {
+                attributes.put(entry.getKey(), cached);
+            } else {
+                missing.put(entry.getKey(), file);
+            }
+        }
+        if (missing.isEmpty()) {
+            return attributes;
+        }
+
+        int threads = Math.min(missing.size(),
+                Math.min(Runtime.getRuntime().availableProcessors(),
+                        MAX_SCAN_THREADS));
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> tasks = new ArrayList<Future<?>>();
+            for (final Map.Entry<String, File> entry : missing.entrySet()) {
+                tasks.add(executor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            String[] jarAttributes = readManifestAttributes(
+                                    entry.getValue());
+                            cache.put(entry.getValue(), jarAttributes[0],
+                                    jarAttributes[1]);
+                            attributes.put(entry.getKey(), jarAttributes);
+                        } catch (IOException e) {
+                            log("Error parsing jar file: "
+                                    + entry.getValue());
+                        }
+                    }
+                }));
+            }
+            for (Future<?> task : tasks) {
+                task.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            error("Error scanning jar files", e);
+        } finally {
+            executor.shutdownNow();
+        }
+        cache.save();
+        return attributes;
+    }
+
+    /**
+     * @return the Vaadin-Widgetsets and Vaadin-Stylesheets attributes of the
+     *         jar manifest, <code>null</code> if missing
+     */
+    static String[] readManifestAttributes(File file) throws IOException {
+        Manifest manifest = ZipManifestReader.read(file);
+        if (manifest == null) {
+            // No manifest so this is not a Vaadin Add-on
+            return new String[2];
+        }
+        return new String[] {
+                manifest.getMainAttributes().getValue("Vaadin-Widgetsets"),
+                manifest.getMainAttributes().getValue("Vaadin-Stylesheets") };
+    }
+
+    /**
+     * Adds the comma-separated names of a manifest attribute.
+     */
+    private static void addNames(String value, URL location,
+            Map<String, URL> names) {
+        if (value != null) {
+            String[] values = value.split(",");
+            for (int i = 0; i < values.length; i++) {
+                String name = values[i].trim();
+                if (!name.equals("")) {
+                    names.put(name, location);
+                }
+            }
+        }
+    }
+
     /**
      * Finds all GWT modules / Vaadin widgetsets and Addon styles in a valid
      * location.
@@ -198,42 +335,34 @@ public class ClassPathExplorer {
                 URLConnection openConnection = location.openConnection();
 
                 JarFile jarFile;
+                boolean close;
                 if (openConnection instanceof JarURLConnection) {
                     JarURLConnection conn = (JarURLConnection) openConnection;
                     jarFile = conn.getJarFile();
+                    // cached jar files are shared with other connections
+                    close = !conn.getUseCaches();
                 } else {
                     jarFile = new JarFile(location.getFile());
+                    close = true;
                 }
 
-                Manifest manifest = jarFile.getManifest();
-                if (manifest == null) {
-                    // No manifest so this is not a Vaadin Add-on
-                    return;
-                }
-
-                // Check for widgetset attribute
-                String value = manifest.getMainAttributes().getValue(
-                        "Vaadin-Widgetsets");
-                if (value != null) {
-                    String[] widgetsetNames = value.split(",");
-                    for (int i = 0; i < widgetsetNames.length; i++) {
-                        String widgetsetname = widgetsetNames[i].trim();
-                        if (!widgetsetname.equals("")) {
-                            widgetsets.put(widgetsetname, location);
-                        }
+                try {
+                    Manifest manifest = jarFile.getManifest();
+                    if (manifest == null) {
+                        // No manifest so this is not a Vaadin Add-on
+                        return;
                     }
-                }
 
-                // Check for theme attribute
-                value = manifest.getMainAttributes().getValue(
-                        "Vaadin-Stylesheets");
-                if (value != null) {
-                    String[] stylesheets = value.split(",");
-                    for (int i = 0; i < stylesheets.length; i++) {
-                        String stylesheet = stylesheets[i].trim();
-                        if (!stylesheet.equals("")) {
-                            addonStyles.put(stylesheet, location);
-                        }
+                    // Check for widgetset attribute
+                    addNames(manifest.getMainAttributes().getValue(
+                            "Vaadin-Widgetsets"), location, widgetsets);
+
+                    // Check for theme attribute
+                    addNames(manifest.getMainAttributes().getValue(
+                            "Vaadin-Stylesheets"), location, addonStyles);
+                } finally {
+                    if (close) {
+                        jarFile.close();
                     }
                 }
             } catch (IOException e) {
@@ -44,6 +44,11 @@ public class CompileThemeMojo extends AbstractThemeMojo {
     @Parameter(defaultValue = "false", property = "vaadin.theme.ignore.warnings")
     private boolean ignoreThemeWarnings;
 
+    @Override
+    protected boolean isInProcessSupported() {
+        return true;
+    }
+
     @Override
     protected void checkVaadinVersion() throws MojoExecutionException {
         // restrict to Vaadin 7.0 and later, otherwise skip and log
@@ -73,6 +73,11 @@ public class UpdateWidgetsetMojo extends AbstractGwtShellMojo {
     @Parameter(defaultValue = "${project.build.directory}/generated-sources/wscdn", required = true)
     private File generatedSourceDirectory;
 
+    @Override
+    protected boolean isInProcessSupported() {
+        return true;
+    }
+
     /**
      * {@inheritDoc}
      *
@@ -247,9 +252,8 @@ public class UpdateWidgetsetMojo extends AbstractGwtShellMojo {
 
         getLog().info("Updating widgetset " + module);
 
-        JavaCommand cmd = new JavaCommand();
+        JavaCommand cmd = createJavaCommand();
         cmd.setMainClass(WIDGETSET_BUILDER_CLASS);
-        cmd.setLog(getLog());
 
         // if using an auto-generated AppWidgetset, the generated source directory must be first on the classpath
         if (generated) {
@@ -0,0 +1,241 @@
+/*
+ * Copyright 2000-2025 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.integration.maven;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads the manifest of a jar without parsing its whole central directory as
+ * {@link JarFile} does.
+ * <p>
+ * The end of the file is read to find the end of central directory record, then the central directory is walked without allocating entries until
+ * the manifest, which is usually one of the first entries, and only that entry
+ * is inflated. Archives this reader doesn't handle (ZIP64, multi-disk,
+ * encrypted) are read with {@link JarFile}.
+ *
+ * @since 8.28
+ */
+class ZipManifestReader {
+
+    private static final int END_SIGNATURE = 0x06054b50;
+
+    private static final int CENTRAL_SIGNATURE = 0x02014b50;
+
+    private static final int LOCAL_SIGNATURE = 0x04034b50;
+
+    private static final int END_SIZE = 22;
+
+    private static final int MAX_COMMENT_SIZE = 0xFFFF;
+
+    private static final int CENTRAL_HEADER_SIZE = 46;
+
+    private static final int LOCAL_HEADER_SIZE = 30;
+
+    private static final int STORED = 0;
+
+    private static final int DEFLATED = 8;
+
+    private static final byte[] MANIFEST_NAME = JarFile.MANIFEST_NAME
+            .getBytes(StandardCharsets.UTF_8);
+
+    private ZipManifestReader() {
+    }
+
+    /**
+     * @return the manifest of the jar, <code>null</code> if it has none
+     * @throws IOException
+     *             if the jar can't be read
+     */
+    static Manifest read(File jar) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(jar, "r");
+        try {
+            byte[] manifest = readManifest(file.getChannel());
+            if (manifest != null) {
+                return manifest.length == 0 ? null
+                        : new Manifest(new ByteArrayInputStream(manifest));
+            }
+        } finally {
+            file.close();
+        }
+        return readWithJarFile(jar);
+    }
+
+    private static Manifest readWithJarFile(File jar) throws IOException {
+        JarFile jarFile = new JarFile(jar);
+        try {
+            return jarFile.getManifest();
+        } finally {
+            jarFile.close();
+        }
+    }
+
+    /**
+     * @return the manifest content, an empty array if there is no manifest,
+     *         or <code>null</code> if the archive must be read with
+     *         {@link JarFile}
+     */
+    private static byte[] readManifest(FileChannel channel) throws IOException {
+        long length = channel.size();
+        if (length < END_SIZE) {
+            return null;
+        }
+        int tailSize = (int) Math.min(length, END_SIZE + MAX_COMMENT_SIZE);
+        ByteBuffer tail = read(channel, length - tailSize, tailSize);
+
+        int end = -1;
+        for (int i = tailSize - END_SIZE; i >= 0; i--) {
+            if (tail.getInt(i) == END_SIGNATURE) {
+                end = i;
+                break;
+            }
+        }
+        if (end < 0 || tail.getShort(end + 4) != 0
+                || tail.getShort(end + 6) != 0) {
+            // not a zip file, or multi-disk archive
+            return null;
+        }
+        int entries = tail.getShort(end + 10) & 0xFFFF;
+        long centralSize = tail.getInt(end + 12) & 0xFFFFFFFFL;
+        long centralOffset = tail.getInt(end + 16) & 0xFFFFFFFFL;
+        if (entries == 0xFFFF || centralSize == 0xFFFFFFFFL
+                || centralOffset == 0xFFFFFFFFL
+                || centralOffset + centralSize > length
+                || centralSize > Integer.MAX_VALUE) {
+            // ZIP64 or inconsistent archive
+            return null;
+        }
+
+        ByteBuffer central = read(channel, centralOffset, (int) centralSize);
+        int position = 0;
+        for (int entry = 0; entry < entries; entry++) {
+            if (position + CENTRAL_HEADER_SIZE > centralSize
+                    || central.getInt(position) != CENTRAL_SIGNATURE) {
+                return null;
+            }
+            int flags = central.getShort(position + 8) & 0xFFFF;
+            int method = central.getShort(position + 10) & 0xFFFF;
+            long compressedSize = central.getInt(position + 20) & 0xFFFFFFFFL;
+            long size = central.getInt(position + 24) & 0xFFFFFFFFL;
+            int nameLength = central.getShort(position + 28) & 0xFFFF;
+            int extraLength = central.getShort(position + 30) & 0xFFFF;
+            int commentLength = central.getShort(position + 32) & 0xFFFF;
+            long localOffset = central.getInt(position + 42) & 0xFFFFFFFFL;
+            if (isManifest(central, position + CENTRAL_HEADER_SIZE,
+                    nameLength)) {
+                if ((flags & 1) != 0
+                        || (method != STORED && method != DEFLATED)
+                        || compressedSize == 0xFFFFFFFFL
+                        || size > Integer.MAX_VALUE) {
+                    // encrypted, unsupported compression or ZIP64 entry
+                    return null;
+                }
+                return readEntry(channel, localOffset, method,
+                        compressedSize, (int) size);
+            }
+            position += CENTRAL_HEADER_SIZE + nameLength + extraLength
+                    + commentLength;
+        }
+        return new byte[0];
+    }
+
+    /**
+     * Reads a part of the file into a heap buffer. Mapping the file would keep
+     * it open, and locked on Windows, until the mapping is garbage collected.
+     *
+     * @return a little-endian buffer holding <code>size</code> bytes, fewer if
+     *         the file ends before
+     */
+    private static ByteBuffer read(FileChannel channel, long position,
+            int size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(Math.max(0, size));
+        while (buffer.hasRemaining()) {
+            int count = channel.read(buffer, position + buffer.position());
+            if (count < 0) {
+                break;
+            }
+        }
+        buffer.flip();
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        return buffer;
+    }
+
+    private static boolean isManifest(ByteBuffer central, int offset,
+            int nameLength) {
+        if (nameLength != MANIFEST_NAME.length) {
+            return false;
+        }
+        for (int i = 0; i < nameLength; i++) {
+            // JarFile also finds the manifest regardless of case
+            if (Character.toUpperCase((char) central.get(offset + i)) != Character
+                    .toUpperCase((char) MANIFEST_NAME[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte[] readEntry(FileChannel channel, long localOffset,
+            int method, long compressedSize, int size) throws IOException {
+        ByteBuffer local = read(channel, localOffset,
+                (int) Math.min(LOCAL_HEADER_SIZE, channel.size() - localOffset));
+        if (local.limit() < LOCAL_HEADER_SIZE
+                || local.getInt(0) != LOCAL_SIGNATURE) {
+            return null;
+        }
+        long dataOffset = localOffset + LOCAL_HEADER_SIZE
+                + (local.getShort(26) & 0xFFFF) + (local.getShort(28) & 0xFFFF);
+        if (dataOffset + compressedSize > channel.size()
+                || compressedSize > Integer.MAX_VALUE) {
+            return null;
+        }
+        byte[] compressed = read(channel, dataOffset, (int) compressedSize)
+                .array();
+        if (method == STORED) {
+            return compressed;
+        }
+
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(compressed);
+            byte[] content = new byte[size];
+            int read = 0;
+            while (read < size && !inflater.finished()) {
+                int count = inflater.inflate(content, read, size - read);
+                if (count == 0 && (inflater.needsInput()
+                        || inflater.needsDictionary())) {
+                    return null;
+                }
+                read += count;
+            }
+            return read == size ? content : null;
+        } catch (DataFormatException e) {
+            return null;
+        } finally {
+            inflater.end();
+        }
+    }
+}
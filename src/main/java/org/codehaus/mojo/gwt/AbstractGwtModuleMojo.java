@@ -22,10 +22,8 @@ package org.codehaus.mojo.gwt;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.InputStream;
-import java.net.MalformedURLException;
-import java.net.URL;
-import java.net.URLClassLoader;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -40,7 +38,6 @@ import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.codehaus.mojo.gwt.utils.DefaultGwtModuleReader;
 import org.codehaus.mojo.gwt.utils.GwtModuleReaderException;
-import org.codehaus.plexus.util.DirectoryScanner;
 import org.codehaus.plexus.util.ReaderFactory;
 import org.codehaus.plexus.util.xml.Xpp3Dom;
 import org.codehaus.plexus.util.xml.Xpp3DomBuilder;
@@ -97,31 +94,13 @@ implements GwtModuleReader
             Collection<String> sourcePaths = getProject().getCompileSourceRoots();
             for ( String sourcePath : sourcePaths )
             {
-                File sourceDirectory = new File( sourcePath );
-                if ( sourceDirectory.exists() )
-                {
-                    DirectoryScanner scanner = new DirectoryScanner();
-                    scanner.setBasedir( sourceDirectory.getAbsolutePath() );
-                    scanner.setIncludes( new String[] { "**/*" + DefaultGwtModuleReader.GWT_MODULE_EXTENSION } );
-                    scanner.scan();
-
-                    mods.addAll( Arrays.asList( scanner.getIncludedFiles() ) );
-                }
+                mods.addAll( getSourceTreeIndex().get( new File( sourcePath ) ).getModules() );
             }
 
             Collection<Resource> resources = getProject().getResources();
             for ( Resource resource : resources )
             {
-                File resourceDirectoryFile = new File( resource.getDirectory() );
-                if ( !resourceDirectoryFile.exists() )
-                {
-                    continue;
-                }
-                DirectoryScanner scanner = new DirectoryScanner();
-                scanner.setBasedir( resource.getDirectory() );
-                scanner.setIncludes( new String[] { "**/*" + DefaultGwtModuleReader.GWT_MODULE_EXTENSION } );
-                scanner.scan();
-                mods.addAll( Arrays.asList( scanner.getIncludedFiles() ) );
+                mods.addAll( getSourceTreeIndex().get( new File( resource.getDirectory() ) ).getModules() );
             }
 
             if ( mods.isEmpty() )
@@ -146,9 +125,69 @@ implements GwtModuleReader
         return modules;
     }
 
+    private GwtModuleCache moduleCache;
+
+    private GwtModuleLocator moduleLocator;
+
+    private String moduleLocatorHash;
+
     @Override
     public GwtModule readModule( String name )
             throws GwtModuleReaderException
+    {
+        String classpathHash;
+        try
+        {
+            classpathHash = getClasspathHash( Artifact.SCOPE_COMPILE );
+        }
+        catch ( MojoExecutionException e )
+        {
+            throw new GwtModuleReaderException( e.getMessage(), e );
+        }
+        GwtModule module = getModuleCache().get( classpathHash, name );
+        if ( module == null )
+        {
+            BuildTrace.Span span = getBuildTrace().start( "modules", "parse " + name );
+            try
+            {
+                module = getModuleCache().put( classpathHash, findModule( name, classpathHash ) );
+            }
+            finally
+            {
+                span.end();
+            }
+        }
+        return module;
+    }
+
+    private synchronized GwtModuleCache getModuleCache()
+    {
+        if ( moduleCache == null )
+        {
+            moduleCache = new GwtModuleCache( getSession() );
+        }
+        return moduleCache;
+    }
+
+    /**
+     * @return the locator of the modules in the compile classpath and the Vaadin client SDK
+     */
+    private synchronized GwtModuleLocator getModuleLocator( String classpathHash )
+            throws MojoExecutionException
+    {
+        if ( moduleLocator == null || !classpathHash.equals( moduleLocatorHash ) )
+        {
+            List<File> classpath = new ArrayList<File>( getClasspath( Artifact.SCOPE_COMPILE ) );
+            // also use Vaadin client package
+            classpath.addAll( getGwtUserJar() );
+            moduleLocator = new GwtModuleLocator( classpath, getLog() );
+            moduleLocatorHash = classpathHash;
+        }
+        return moduleLocator;
+    }
+
+    private GwtModule findModule( String name, String classpathHash )
+            throws GwtModuleReaderException
     {
         String modulePath = name.replace( '.', '/' ) + DefaultGwtModuleReader.GWT_MODULE_EXTENSION;
         Collection<String> sourceRoots = getProject().getCompileSourceRoots();
@@ -176,34 +215,25 @@ implements GwtModuleReader
 
         try
         {
-            Collection<File> classpath = getClasspath( Artifact.SCOPE_COMPILE );
-            // also use Vaadin client package
-            Collection<File> gwtUserJars = getGwtUserJar();
-
-            URL[] urls = new URL[classpath.size() + gwtUserJars.size()];
-            int i = 0;
-            for ( File file : classpath )
-            {
-                urls[i++] = file.toURI().toURL();
-            }
-            for ( File file : gwtUserJars )
-            {
-                urls[i++] = file.toURI().toURL();
-            }
-
-
-            InputStream stream = new URLClassLoader( urls ).getResourceAsStream( modulePath );
-            if ( stream != null )
+            GwtModuleLocator locator = getModuleLocator( classpathHash );
+            File location = locator.getLocation( modulePath );
+            if ( location != null )
             {
-                return readModule( name, stream );
+                getLog().debug( "GWT module " + name + " found in " + location );
+                if ( location.isDirectory() )
+                {
+                    return readModule( name, new File( location, modulePath ) );
+                }
+                return readModule( name, locator.open( modulePath ) );
             }
         }
-        catch ( MalformedURLException e )
+        catch ( IOException e )
         {
-            // ignored;
-        } catch (MojoExecutionException e)
+            getLog().error( e.getMessage() );
+        }
+        catch ( MojoExecutionException e )
         {
-            throw new GwtModuleReaderException(e.getMessage(), e);
+            throw new GwtModuleReaderException( e.getMessage(), e );
         }
 
         throw new GwtModuleReaderException( "GWT Module " + name + " not found in project sources or resources." );
@@ -49,6 +49,7 @@ import org.apache.maven.artifact.resolver.ArtifactResolutionResult;
 import org.apache.maven.artifact.resolver.ArtifactResolver;
 import org.apache.maven.artifact.versioning.ArtifactVersion;
 import org.apache.maven.artifact.versioning.DefaultArtifactVersion;
+import org.apache.maven.execution.MavenSession;
 import org.apache.maven.model.Dependency;
 import org.apache.maven.model.Resource;
 import org.apache.maven.plugin.AbstractMojo;
@@ -108,6 +109,11 @@ extends AbstractMojo
     @Component
     protected ArtifactMetadataSource artifactMetadataSource;
 
+    @Parameter(defaultValue = "${session}", readonly = true)
+    private MavenSession session;
+
+    private SourceTreeIndex sourceTreeIndex;
+
     /**
      * The maven project descriptor
      */
@@ -168,6 +174,53 @@ extends AbstractMojo
      */
     private Set<String> artifactsWithoutVersion = new HashSet<String>();
 
+    private SdkDependencyCache sdkDependencyCache;
+
+    /**
+     * Record the time spent in the steps of the plugin (classpath building, SDK resolution, GWT module parsing, forked
+     * JVMs) in a Chrome trace-event file, and log a summary at the end of each goal. The file can be opened with
+     * <code>chrome://tracing</code> or Perfetto.
+     * <p>
+     * Can be set from command line using '-Dgwt.trace=true'.
+     *
+     * @since 8.28
+     */
+    @Parameter(defaultValue = "false", property = "gwt.trace")
+    private boolean trace;
+
+    /**
+     * Trace-event file written when <code>trace</code> is enabled, covering all the goals of the build.
+     * <p>
+     * Can be set from command line using '-Dgwt.traceFile=...'.
+     *
+     * @since 8.28
+     */
+    @Parameter(defaultValue = "${session.executionRootDirectory}/target/gwt-trace.json", property = "gwt.traceFile")
+    private File traceFile;
+
+    /**
+     * File to which a record of each goal execution (duration, forked JVMs, bytes written in the project folder) is
+     * appended as a JSON line, to follow the build performance over builds, as done by the performance suite of the
+     * integration tests.
+     * <p>
+     * Can be set from command line using '-Dgwt.perfReport=...'.
+     *
+     * @since 8.28
+     */
+    @Parameter(property = "gwt.perfReport")
+    private File perfReport;
+
+    /**
+     * Label of the records of <code>perfReport</code>, such as <code>cold</code> or <code>warm</code>, to compare the
+     * same goals in different build scenarios.
+     * <p>
+     * Can be set from command line using '-Dgwt.perfScenario=...'.
+     *
+     * @since 8.28
+     */
+    @Parameter(property = "gwt.perfScenario")
+    private String perfScenario;
+
     public File getOutputDirectory()
     {
         File out = inplace ? warSourceDirectory : webappDirectory;
@@ -229,26 +282,40 @@ extends AbstractMojo
     public Collection<File> getClasspath( String scope )
             throws MojoExecutionException
             {
+        BuildTrace.Span span = getBuildTrace().start( "maven", "classpath " + scope );
         try
         {
-            Collection<File> files = classpathBuilder.buildClasspathList( getProject(), scope, getProjectArtifacts(), isGenerator() );
-
-            if ( getLog().isDebugEnabled() )
-            {
-                getLog().debug( "GWT SDK execution classpath :" );
-                for ( File f : files )
-                {
-                    getLog().debug( "   " + f.getAbsolutePath() );
-                }
-            }
-            return files;
+            return classpathBuilder.buildClasspathList( getProject(), scope, getProjectArtifacts(), isGenerator() );
         }
         catch ( ClasspathBuilderException e )
         {
             throw new MojoExecutionException( e.getMessage(), e );
+        }
+        finally
+        {
+            span.end();
         }
             }
 
+    /**
+     * Hash of the GWT classpath for the specified scope, usable as a cache key.
+     *
+     * @param scope Artifact.SCOPE_COMPILE or Artifact.SCOPE_TEST
+     * @throws MojoExecutionException if classPath building failed
+     */
+    public String getClasspathHash( String scope )
+            throws MojoExecutionException
+    {
+        try
+        {
+            return classpathBuilder.getClasspathHash( getProject(), scope, getProjectArtifacts(), isGenerator() );
+        }
+        catch ( ClasspathBuilderException e )
+        {
+            throw new MojoExecutionException( e.getMessage(), e );
+        }
+    }
+
 
     /**
      * Whether to use processed resources and compiled classes ({@code false}), or raw resources ({@code true }).
@@ -317,8 +384,55 @@ extends AbstractMojo
     // TODO replace with getJarFiles() if possible
     protected Collection<File> getJarAndDependencies(String artifactId)
             throws MojoExecutionException {
+        BuildTrace.Span span = getBuildTrace().start("maven", "resolve " + artifactId);
+        try {
+            return resolveJarAndDependencies(artifactId);
+        } finally {
+            span.end();
+        }
+    }
+
+    private Collection<File> resolveJarAndDependencies(String artifactId)
+            throws MojoExecutionException {
 
         Artifact rootArtifact = getArtifact(VAADIN_GROUP_ID, artifactId, null);
+        Artifact vaadinSharedArtifact = null;
+        String version;
+
+        if (rootArtifact == null) {
+            // only log implicit version checks once per artifact
+            if (!artifactsWithoutVersion.contains(artifactId)) {
+                getLog().debug(
+                        "Trying to resolve the version of "
+                                + VAADIN_GROUP_ID
+                                + ":"
+                                + artifactId
+                                + " based on the version of vaadin-shared in the project POM");
+            }
+
+            // assume that artifact is not in project - try to resolve with
+            // version number from vaadin-shared
+            vaadinSharedArtifact = getArtifact(VAADIN_GROUP_ID,
+                    "vaadin-shared", null);
+            if (vaadinSharedArtifact == null) {
+                // No vaadin-shared found, this is possibly when running clean and artifacts have not been resolved
+                // https://maven.apache.org/ref/3.2.3/apidocs/org/apache/maven/project/MavenProject.html#getArtifacts()
+                return Collections.emptyList();
+            }
+            version = vaadinSharedArtifact.getBaseVersion();
+        } else {
+            version = rootArtifact.getBaseVersion();
+        }
+
+        // the SDK closure is needed several times per mojo and by each module of the build
+        SdkDependencyCache cache = getSdkDependencyCache();
+        List<File> cached = cache.get(VAADIN_GROUP_ID, artifactId, version);
+        if (cached != null) {
+            if (artifactsWithoutVersion.add(artifactId) && rootArtifact == null) {
+                getLog().info("Using " + VAADIN_GROUP_ID + ":" + artifactId + " version " + version);
+            }
+            return cached;
+        }
 
         ArtifactResolutionResult result = null;
 
@@ -327,29 +441,9 @@ extends AbstractMojo
 
             // TODO can these branches be unified/cleaned up?
             if (rootArtifact == null) {
-                // only log implicit version checks once per artifact
                 boolean logVersion = artifactsWithoutVersion.add(artifactId);
 
-                if (logVersion) {
-                    getLog().debug(
-                            "Trying to resolve the version of "
-                                    + VAADIN_GROUP_ID
-                                    + ":"
-                                    + artifactId
-                                    + " based on the version of vaadin-shared in the project POM");
-                }
-
-                // assume that artifact is not in project - try to resolve with
-                // version number from vaadin-shared
-                Artifact vaadinSharedArtifact = getArtifact(VAADIN_GROUP_ID,
-                        "vaadin-shared", null);
-                if (vaadinSharedArtifact == null) {
-                    // No vaadin-shared found, this is possibly when running clean and artifacts have not been resolved
-                    // https://maven.apache.org/ref/3.2.3/apidocs/org/apache/maven/project/MavenProject.html#getArtifacts()
-                    return Collections.emptyList();
-                }
-
-                rootArtifact = artifactFactory.createArtifact( VAADIN_GROUP_ID, artifactId, vaadinSharedArtifact.getBaseVersion(), "provided", "jar" );
+                rootArtifact = artifactFactory.createArtifact( VAADIN_GROUP_ID, artifactId, version, "provided", "jar" );
                 resolver.resolveAlways(rootArtifact, remoteRepositories,
                         localRepository);
 
@@ -398,14 +492,24 @@ extends AbstractMojo
         @SuppressWarnings("unchecked")
         Collection<Artifact> resolved = result.getArtifacts();
 
-        Collection<File> files = new ArrayList<File>(resolved.size() + 1 );
+        List<File> files = new ArrayList<File>(resolved.size() + 1 );
         files.add( rootArtifact.getFile() );
         for ( Artifact artifact : resolved )
         {
             files.add( artifact.getFile() );
         }
 
-        return files;
+        return cache.put(VAADIN_GROUP_ID, artifactId, version, files);
+    }
+
+    private SdkDependencyCache getSdkDependencyCache()
+    {
+        if ( sdkDependencyCache == null )
+        {
+            sdkDependencyCache = new SdkDependencyCache( session, localRepository != null ? new File(
+                localRepository.getBasedir() ) : null, getLog() );
+        }
+        return sdkDependencyCache;
     }
 
     protected Artifact getArtifact( String groupId, String artifactId, String classifier )
@@ -502,6 +606,64 @@ extends AbstractMojo
     }
 
 
+    /**
+     * @return the Maven session, <code>null</code> when not injected
+     */
+    public MavenSession getSession()
+    {
+        return session;
+    }
+
+    /**
+     * @return the trace of the build, ignoring spans when neither tracing nor the performance report are enabled
+     */
+    public BuildTrace getBuildTrace()
+    {
+        // the performance report counts the forked JVMs from the trace
+        return trace || perfReport != null ? BuildTrace.get( getSession() ) : BuildTrace.DISABLED;
+    }
+
+    /**
+     * @return <code>true</code> if the trace-event file is written and summarized
+     */
+    protected boolean isTrace()
+    {
+        return trace;
+    }
+
+    /**
+     * @return the trace-event file of the build
+     */
+    protected File getTraceFile()
+    {
+        return traceFile;
+    }
+
+    /**
+     * @return the report the goal executions are recorded to, <code>null</code> if not recorded
+     */
+    protected File getPerfReport()
+    {
+        return perfReport;
+    }
+
+    protected String getPerfScenario()
+    {
+        return perfScenario;
+    }
+
+    /**
+     * @return the index of the source and resource trees, shared by the mojos of the build
+     */
+    public synchronized SourceTreeIndex getSourceTreeIndex()
+    {
+        if ( sourceTreeIndex == null )
+        {
+            sourceTreeIndex = new SourceTreeIndex( getSession() );
+        }
+        return sourceTreeIndex;
+    }
+
     public ArtifactRepository getLocalRepository()
     {
         return localRepository;
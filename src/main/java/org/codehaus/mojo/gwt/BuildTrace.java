@@ -0,0 +1,367 @@
+package org.codehaus.mojo.gwt;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.WeakHashMap;
+
+import org.apache.maven.execution.MavenExecutionRequest;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Timing spans of the build steps of the plugin (mojo executions, classpath building, SDK resolution, module parsing,
+ * forked JVMs), written as a Chrome trace-event file that can be opened with <code>chrome://tracing</code> or
+ * Perfetto, and summarized in the build log.
+ * <p>
+ * Spans of all the mojo executions of a build are kept in the Maven session, so that the trace file, written again
+ * at the end of each mojo execution, covers the whole build. Spans started by a thread belong to the mojo execution
+ * running in this thread, or in the thread that created it.
+ *
+ * @since 8.28
+ */
+public class BuildTrace
+{
+    private static final Map<MavenExecutionRequest, BuildTrace> SESSIONS =
+        new WeakHashMap<MavenExecutionRequest, BuildTrace>();
+
+    /**
+     * Trace ignoring all the spans, used when tracing is not enabled.
+     */
+    public static final BuildTrace DISABLED = new BuildTrace( false );
+
+    private static final InheritableThreadLocal<Span> EXECUTION = new InheritableThreadLocal<Span>();
+
+    private final boolean enabled;
+
+    private final long origin = System.nanoTime();
+
+    private final List<Span> spans = new ArrayList<Span>();
+
+    BuildTrace( boolean enabled )
+    {
+        this.enabled = enabled;
+    }
+
+    /**
+     * @param session current Maven session, or <code>null</code> for a trace of its own
+     * @return the trace of the build
+     */
+    public static BuildTrace get( MavenSession session )
+    {
+        if ( session == null || session.getRequest() == null )
+        {
+            return new BuildTrace( true );
+        }
+        // parallel builds use a copy of the session per module, sharing the same request
+        synchronized ( SESSIONS )
+        {
+            BuildTrace trace = SESSIONS.get( session.getRequest() );
+            if ( trace == null )
+            {
+                trace = new BuildTrace( true );
+                SESSIONS.put( session.getRequest(), trace );
+            }
+            return trace;
+        }
+    }
+
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    /**
+     * Start a span, to be ended in a <code>finally</code> block.
+     *
+     * @param category category of the span, such as <code>maven</code> or <code>fork</code>
+     * @param name name of the span
+     * @return the started span
+     */
+    public Span start( String category, String name )
+    {
+        return new Span( category, name, EXECUTION.get() );
+    }
+
+    /**
+     * Start the span of a mojo execution, that the spans started next by the current thread and the threads it creates
+     * belong to.
+     *
+     * @param name name of the mojo execution
+     * @return the started span
+     */
+    public Span startExecution( String name )
+    {
+        Span span = start( "mojo", name );
+        if ( enabled )
+        {
+            EXECUTION.set( span );
+        }
+        return span;
+    }
+
+    /**
+     * End the span of a mojo execution.
+     */
+    public void endExecution( Span execution )
+    {
+        execution.end();
+        if ( enabled )
+        {
+            EXECUTION.set( execution.execution );
+        }
+    }
+
+    /**
+     * Log the time spent in the spans of a mojo execution, by category and name.
+     *
+     * @param execution span of the mojo execution
+     * @param log where to write the summary
+     */
+    public void summarize( Span execution, Log log )
+    {
+        if ( !enabled )
+        {
+            return;
+        }
+        Map<String, long[]> totals = new LinkedHashMap<String, long[]>();
+        synchronized ( spans )
+        {
+            for ( Span span : spans )
+            {
+                if ( span.execution != execution )
+                {
+                    continue;
+                }
+                String key = span.category + " " + span.name;
+                long[] total = totals.get( key );
+                if ( total == null )
+                {
+                    total = new long[3];
+                    totals.put( key, total );
+                }
+                total[0]++;
+                total[1] += span.duration;
+                total[2] = Math.max( total[2], span.duration );
+            }
+        }
+        log.info( "Time spent in " + execution.name + " (" + execution.duration / 1000000 + " ms) :" );
+        log.info( String.format( "  %-60s %6s %10s %10s", "step", "count", "total ms", "max ms" ) );
+        for ( Map.Entry<String, long[]> total : totals.entrySet() )
+        {
+            String step = total.getKey();
+            if ( step.length() > 60 )
+            {
+                step = "..." + step.substring( step.length() - 57 );
+            }
+            log.info( String.format( "  %-60s %6d %10d %10d", step, total.getValue()[0],
+                                     total.getValue()[1] / 1000000, total.getValue()[2] / 1000000 ) );
+        }
+    }
+
+    /**
+     * Count the Java programs run during a mojo execution, by the way they were run : <code>fork</code> for a new JVM,
+     * <code>daemon</code> or <code>in-process</code>.
+     *
+     * @param execution span of the mojo execution
+     * @return the number of programs run, by mode
+     */
+    public Map<String, Integer> countJavaRuns( Span execution )
+    {
+        Map<String, Integer> runs = new TreeMap<String, Integer>();
+        synchronized ( spans )
+        {
+            for ( Span span : spans )
+            {
+                if ( span.execution != execution || !"fork".equals( span.category ) )
+                {
+                    continue;
+                }
+                Object mode;
+                synchronized ( span.args )
+                {
+                    mode = span.args.get( "mode" );
+                }
+                if ( mode != null )
+                {
+                    Integer count = runs.get( mode.toString() );
+                    runs.put( mode.toString(), count == null ? 1 : count + 1 );
+                }
+            }
+        }
+        return runs;
+    }
+
+    /**
+     * Write the ended spans as a Chrome trace-event JSON file.
+     *
+     * @param file file to write
+     * @throws IOException if the file cannot be written
+     */
+    public void write( File file )
+        throws IOException
+    {
+        List<Span> ended;
+        synchronized ( spans )
+        {
+            ended = new ArrayList<Span>( spans );
+        }
+        file.getParentFile().mkdirs();
+        Writer writer = new OutputStreamWriter( new FileOutputStream( file ), StandardCharsets.UTF_8 );
+        try
+        {
+            writer.write( "{\"displayTimeUnit\":\"ms\",\"traceEvents\":[" );
+            Map<Long, String> threads = new LinkedHashMap<Long, String>();
+            boolean first = true;
+            for ( Span span : ended )
+            {
+                threads.put( span.thread, span.threadName );
+                writer.write( first ? "\n" : ",\n" );
+                first = false;
+                writer.write( "{\"ph\":\"X\",\"pid\":1,\"tid\":" + span.thread + ",\"ts\":"
+                    + ( span.start - origin ) / 1000 + ",\"dur\":" + span.duration / 1000 + ",\"cat\":"
+                    + quote( span.category ) + ",\"name\":" + quote( span.name ) );
+                if ( !span.args.isEmpty() )
+                {
+                    writer.write( ",\"args\":{" );
+                    boolean firstArg = true;
+                    for ( Map.Entry<String, Object> arg : span.args.entrySet() )
+                    {
+                        writer.write( ( firstArg ? "" : "," ) + quote( arg.getKey() ) + ":" );
+                        firstArg = false;
+                        Object value = arg.getValue();
+                        writer.write( value instanceof Number ? value.toString() : quote( String.valueOf( value ) ) );
+                    }
+                    writer.write( "}" );
+                }
+                writer.write( "}" );
+            }
+            for ( Map.Entry<Long, String> thread : threads.entrySet() )
+            {
+                writer.write( first ? "\n" : ",\n" );
+                first = false;
+                writer.write( "{\"ph\":\"M\",\"pid\":1,\"tid\":" + thread.getKey()
+                    + ",\"name\":\"thread_name\",\"args\":{\"name\":" + quote( thread.getValue() ) + "}}" );
+            }
+            writer.write( "\n]}\n" );
+        }
+        finally
+        {
+            writer.close();
+        }
+    }
+
+    private static String quote( String value )
+    {
+        StringBuilder quoted = new StringBuilder( value.length() + 2 ).append( '"' );
+        for ( int i = 0; i < value.length(); i++ )
+        {
+            char c = value.charAt( i );
+            if ( c == '"' || c == '\\' )
+            {
+                quoted.append( '\\' ).append( c );
+            }
+            else if ( c < ' ' )
+            {
+                quoted.append( String.format( "\\u%04x", (int) c ) );
+            }
+            else
+            {
+                quoted.append( c );
+            }
+        }
+        return quoted.append( '"' ).toString();
+    }
+
+    /**
+     * A timed step of the build.
+     */
+    public class Span
+    {
+        private final String category;
+
+        private final String name;
+
+        private final Span execution;
+
+        private final long thread;
+
+        private final String threadName;
+
+        private final long start;
+
+        private final Map<String, Object> args = new LinkedHashMap<String, Object>();
+
+        private long duration = -1;
+
+        private Span( String category, String name, Span execution )
+        {
+            this.category = category;
+            this.name = name;
+            this.execution = execution;
+            this.thread = Thread.currentThread().getId();
+            this.threadName = Thread.currentThread().getName();
+            this.start = enabled ? System.nanoTime() : 0;
+        }
+
+        /**
+         * Add an argument shown with the span in the trace.
+         *
+         * @return this span
+         */
+        public Span arg( String key, Object value )
+        {
+            if ( enabled && value != null )
+            {
+                synchronized ( args )
+                {
+                    args.put( key, value );
+                }
+            }
+            return this;
+        }
+
+        /**
+         * End the span, ignored if already ended.
+         */
+        public synchronized void end()
+        {
+            if ( !enabled || duration >= 0 )
+            {
+                return;
+            }
+            duration = System.nanoTime() - start;
+            synchronized ( spans )
+            {
+                spans.add( this );
+            }
+        }
+    }
+}
@@ -26,16 +26,24 @@ import static org.apache.maven.artifact.Artifact.SCOPE_SYSTEM;
 import static org.apache.maven.artifact.Artifact.SCOPE_TEST;
 
 import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.WeakHashMap;
 
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.model.Resource;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.project.MavenProject;
+import org.codehaus.mojo.gwt.shell.CompileFingerprint;
 import org.codehaus.plexus.component.annotations.Component;
 import org.codehaus.plexus.logging.AbstractLogEnabled;
 
@@ -50,6 +58,12 @@ public class ClasspathBuilder
     extends AbstractLogEnabled
 {
 
+    /**
+     * Classpaths already built, by project and by scope. A classpath is built again when the project directories or
+     * artifacts it depends on change, as mojos may add source roots.
+     */
+    private final Map<MavenProject, Map<String, Memo>> memos = new WeakHashMap<MavenProject, Map<String, Memo>>();
+
     /**
      * Build classpath list using either gwtHome (if present) or using *project* dependencies. Note that this is ONLY
      * used for the script/cmd writers (so the scopes are not for the compiler, or war plugins, etc). This is required
@@ -61,11 +75,139 @@ public class ClasspathBuilder
      * @param artifacts the project artifacts (all scopes)
      * @param scope artifact scope to use
      * @param isGenerator whether to use processed resources and compiled classes (false), or raw resources (true).
-     * @return file collection for classpath
+     * @return file collection for classpath, an unmodifiable list
      */
     public Collection<File> buildClasspathList( final MavenProject project, final String scope,
                                                 Set<Artifact> artifacts, boolean isGenerator )
         throws ClasspathBuilderException
+    {
+        return getMemo( project, scope, artifacts, isGenerator ).classpath;
+    }
+
+    /**
+     * Hash of the classpath built by {@link #buildClasspathList}, stable across builds as long as the classpath
+     * elements don't change, to be used as a cache key.
+     *
+     * @return hex SHA-1 of the classpath element paths
+     */
+    public String getClasspathHash( final MavenProject project, final String scope, Set<Artifact> artifacts,
+                                    boolean isGenerator )
+        throws ClasspathBuilderException
+    {
+        return getMemo( project, scope, artifacts, isGenerator ).getHash();
+    }
+
+    private Memo getMemo( final MavenProject project, final String scope, Set<Artifact> artifacts,
+                          boolean isGenerator )
+        throws ClasspathBuilderException
+    {
+        String key = scope + ( isGenerator ? ":generator" : "" );
+        List<Object> inputs = getInputs( project, scope, artifacts );
+        synchronized ( memos )
+        {
+            Map<String, Memo> projectMemos = memos.get( project );
+            if ( projectMemos == null )
+            {
+                projectMemos = new HashMap<String, Memo>();
+                memos.put( project, projectMemos );
+            }
+            Memo memo = projectMemos.get( key );
+            if ( memo == null || !memo.isBuiltFrom( inputs, artifacts ) )
+            {
+                List<File> classpath =
+                    Collections.unmodifiableList( new ArrayList<File>( build( project, scope, artifacts,
+                                                                              isGenerator ) ) );
+                if ( getLogger().isDebugEnabled() )
+                {
+                    getLogger().debug( "GWT SDK execution classpath :" );
+                    for ( File f : classpath )
+                    {
+                        getLogger().debug( "   " + f.getAbsolutePath() );
+                    }
+                }
+                memo = new Memo( inputs, artifacts, classpath );
+                projectMemos.put( key, memo );
+            }
+            return memo;
+        }
+    }
+
+    /**
+     * Project directories a classpath is built from. The artifacts set is compared by identity, as it is replaced,
+     * not modified, when the project is resolved again.
+     */
+    private List<Object> getInputs( MavenProject project, String scope, Set<Artifact> artifacts )
+    {
+        List<Object> inputs = new ArrayList<Object>();
+        inputs.add( project.getBuild().getOutputDirectory() );
+        inputs.add( new ArrayList<String>( project.getCompileSourceRoots() ) );
+        for ( Resource resource : project.getResources() )
+        {
+            inputs.add( resource.getDirectory() );
+        }
+        if ( SCOPE_TEST.equals( scope ) )
+        {
+            inputs.add( project.getBuild().getTestOutputDirectory() );
+            inputs.add( new ArrayList<String>( project.getTestCompileSourceRoots() ) );
+            for ( Resource resource : project.getTestResources() )
+            {
+                inputs.add( resource.getDirectory() );
+            }
+        }
+        return inputs;
+    }
+
+    private static class Memo
+    {
+        private final List<Object> inputs;
+
+        private final Set<Artifact> artifacts;
+
+        private final int artifactCount;
+
+        private final List<File> classpath;
+
+        private String hash;
+
+        Memo( List<Object> inputs, Set<Artifact> artifacts, List<File> classpath )
+        {
+            this.inputs = inputs;
+            this.artifacts = artifacts;
+            this.artifactCount = artifacts.size();
+            this.classpath = classpath;
+        }
+
+        boolean isBuiltFrom( List<Object> inputs, Set<Artifact> artifacts )
+        {
+            return this.artifacts == artifacts && artifactCount == artifacts.size() && this.inputs.equals( inputs );
+        }
+
+        synchronized String getHash()
+        {
+            if ( hash == null )
+            {
+                try
+                {
+                    MessageDigest digest = MessageDigest.getInstance( "SHA-1" );
+                    for ( File element : classpath )
+                    {
+                        digest.update( String.valueOf( element ).getBytes( StandardCharsets.UTF_8 ) );
+                        digest.update( (byte) 0 );
+                    }
+                    hash = CompileFingerprint.toHex( digest.digest() );
+                }
+                catch ( NoSuchAlgorithmException e )
+                {
+                    throw new IllegalStateException( e );
+                }
+            }
+            return hash;
+        }
+    }
+
+    private Collection<File> build( final MavenProject project, final String scope, Set<Artifact> artifacts,
+                                    boolean isGenerator )
+        throws ClasspathBuilderException
     {
         getLogger().debug( "establishing classpath list (scope = " + scope + ")" );
 
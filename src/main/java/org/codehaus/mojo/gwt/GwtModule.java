@@ -21,9 +21,12 @@ package org.codehaus.mojo.gwt;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -41,6 +44,17 @@ import org.codehaus.plexus.util.xml.Xpp3Dom;
  */
 public class GwtModule
 {
+    /**
+     * Values of the <code>user.agent</code> property defined by the GWT SDK.
+     */
+    private static final String[] DEFAULT_USER_AGENTS = { "ie8", "ie9", "ie10", "gecko1_8", "safari" };
+
+    /**
+     * Elements of deferred binding rules and linker definitions naming a class.
+     */
+    private static final Set<String> BINDING_ELEMENTS = new HashSet<String>( Arrays.asList(
+        "replace-with", "generate-with", "when-type-assignable", "when-type-is", "define-linker" ) );
+
     private Xpp3Dom xml;
 
     private String name;
@@ -51,6 +65,8 @@ public class GwtModule
 
     private File sourceFile;
 
+    private long sourceLastModified;
+
     public GwtModule( String name, Xpp3Dom xml, GwtModuleReader reader )
     {
         this.name = name;
@@ -137,7 +153,7 @@ public class GwtModule
      * Build the set of inhertied modules. Due to xml inheritence mecanism, there may be cicles in the inheritence
      * graph, so we build a set of inherited modules
      */
-    public Set<GwtModule> getInherits()
+    public synchronized Set<GwtModule> getInherits()
 		throws GwtModuleReaderException
     {
         if ( inherits != null )
@@ -145,8 +161,10 @@ public class GwtModule
             return inherits;
         }
 
-        inherits = new HashSet<GwtModule>();
-        addInheritedModules( inherits, getLocalInherits() );
+        Set<GwtModule> modules = new HashSet<GwtModule>();
+        addInheritedModules( modules, getLocalInherits() );
+        // modules are shared by the mojos of the build through GwtModuleCache
+        inherits = Collections.unmodifiableSet( modules );
 
         return inherits;
     }
@@ -192,6 +210,40 @@ public class GwtModule
         return modules;
     }
 
+    /**
+     * Classes named by the deferred binding rules and the linkers of this module and the modules it inherits
+     * (<code>replace-with</code>, <code>generate-with</code>, <code>when-type-assignable</code>,
+     * <code>when-type-is</code> and <code>define-linker</code>), which client code may not refer to.
+     *
+     * @return the class names
+     * @throws GwtModuleReaderException if an inherited module cannot be read
+     * @since 8.28
+     */
+    public Set<String> getBindingClasses()
+        throws GwtModuleReaderException
+    {
+        Set<String> classes = new LinkedHashSet<String>();
+        addBindingClasses( xml, classes );
+        for ( GwtModule module : getInherits() )
+        {
+            addBindingClasses( module.xml, classes );
+        }
+        return classes;
+    }
+
+    private static void addBindingClasses( Xpp3Dom node, Set<String> classes )
+    {
+        for ( Xpp3Dom child : node.getChildren() )
+        {
+            if ( BINDING_ELEMENTS.contains( child.getName() ) && child.getAttribute( "class" ) != null )
+            {
+                classes.add( child.getAttribute( "class" ).trim() );
+            }
+            // rules nest conditions in <any>, <all> and <none>
+            addBindingClasses( child, classes );
+        }
+    }
+
     public Map<String, String> getServlets()
         throws GwtModuleReaderException
     {
@@ -224,6 +276,113 @@ public class GwtModule
         return servlets;
     }
 
+    /**
+     * Estimate the number of permutations the GWT compiler will create for this module : the product of the number of
+     * values of the deferred binding properties, as declared, extended, set and collapsed by this module and the
+     * modules it inherits, in declaration order.
+     * <p>
+     * Modules of the GWT SDK are not read : <code>user.agent</code> has the default values of GWT and
+     * <code>locale</code> a single one until set or extended. Conditional property values and partial collapses are
+     * not taken into account, so the estimate may be higher than the actual number of permutations.
+     *
+     * @return the estimated number of permutations
+     * @throws GwtModuleReaderException if an inherited module cannot be read
+     * @since 8.28
+     */
+    public int estimatePermutations()
+        throws GwtModuleReaderException
+    {
+        Map<String, Set<String>> properties = new LinkedHashMap<String, Set<String>>();
+        properties.put( "user.agent", new LinkedHashSet<String>( Arrays.asList( DEFAULT_USER_AGENTS ) ) );
+        properties.put( "locale", new LinkedHashSet<String>( Collections.singleton( "default" ) ) );
+        Set<String> collapsed = new HashSet<String>();
+        addProperties( new HashSet<String>(), properties, collapsed );
+        if ( collapsed.contains( "*" ) )
+        {
+            return 1;
+        }
+        long permutations = 1;
+        for ( Map.Entry<String, Set<String>> property : properties.entrySet() )
+        {
+            if ( !collapsed.contains( property.getKey() ) )
+            {
+                permutations = Math.min( Integer.MAX_VALUE, permutations * Math.max( 1, property.getValue().size() ) );
+            }
+        }
+        return (int) permutations;
+    }
+
+    private void addProperties( Set<String> visited, Map<String, Set<String>> properties, Set<String> collapsed )
+        throws GwtModuleReaderException
+    {
+        if ( !visited.add( name ) )
+        {
+            return;
+        }
+        for ( Xpp3Dom node : xml.getChildren() )
+        {
+            String element = node.getName();
+            String property = node.getAttribute( "name" );
+            if ( "inherits".equals( element ) )
+            {
+                if ( property != null && !property.startsWith( "com.google.gwt." ) )
+                {
+                    reader.readModule( property ).addProperties( visited, properties, collapsed );
+                }
+            }
+            else if ( "define-property".equals( element ) && property != null )
+            {
+                properties.put( property, splitValues( node.getAttribute( "values" ) ) );
+            }
+            else if ( "extend-property".equals( element ) && property != null )
+            {
+                Set<String> values = properties.get( property );
+                if ( values == null )
+                {
+                    values = new LinkedHashSet<String>();
+                    properties.put( property, values );
+                }
+                values.addAll( splitValues( node.getAttribute( "values" ) ) );
+            }
+            else if ( "set-property".equals( element ) && property != null && node.getChildCount() == 0 )
+            {
+                properties.put( property, splitValues( node.getAttribute( "value" ) ) );
+            }
+            else if ( "collapse-property".equals( element ) && property != null
+                && "*".equals( node.getAttribute( "values" ) ) )
+            {
+                collapsed.add( property );
+            }
+            else if ( "collapse-all-properties".equals( element ) )
+            {
+                if ( "false".equals( node.getAttribute( "value" ) ) )
+                {
+                    collapsed.remove( "*" );
+                }
+                else
+                {
+                    collapsed.add( "*" );
+                }
+            }
+        }
+    }
+
+    private static Set<String> splitValues( String values )
+    {
+        Set<String> set = new LinkedHashSet<String>();
+        if ( values != null )
+        {
+            for ( String value : values.split( "," ) )
+            {
+                if ( value.trim().length() > 0 )
+                {
+                    set.add( value.trim() );
+                }
+            }
+        }
+        return set;
+    }
+
     public String getName()
     {
         return name;
@@ -250,8 +409,42 @@ public class GwtModule
 
     public void setSourceFile(File file) {
 		sourceFile = file;
+		sourceLastModified = file != null ? file.lastModified() : 0;
 	}
 
+    /**
+     * @return <code>true</code> if the file of this module, or of an inherited module already read, has been modified
+     *         since it was read
+     */
+    public boolean isModified()
+    {
+        if ( isSourceModified() )
+        {
+            return true;
+        }
+        Set<GwtModule> modules;
+        synchronized ( this )
+        {
+            modules = inherits;
+        }
+        if ( modules != null )
+        {
+            for ( GwtModule module : modules )
+            {
+                if ( module.isSourceModified() )
+                {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean isSourceModified()
+    {
+        return sourceFile != null && sourceFile.lastModified() != sourceLastModified;
+    }
+
     @Override
     public boolean equals( Object obj )
     {
@@ -0,0 +1,113 @@
+package org.codehaus.mojo.gwt;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.maven.execution.MavenExecutionRequest;
+import org.apache.maven.execution.MavenSession;
+
+/**
+ * Cache of the parsed GWT modules, so that each <code>.gwt.xml</code> file and its inherits graph are read once per
+ * build instead of once per module lookup and mojo.
+ * <p>
+ * Modules are keyed by name and by the hash of the classpath they have been looked up in, and kept in the Maven
+ * session. A module read from a project file is read again when that file, or the file of one of its inherited
+ * modules, has been modified since, as goals like <code>update-widgetset</code> rewrite module descriptors during the
+ * build.
+ *
+ * @since 8.28
+ */
+public class GwtModuleCache
+{
+    private static final Map<MavenExecutionRequest, ConcurrentMap<String, GwtModule>> SESSIONS =
+        new WeakHashMap<MavenExecutionRequest, ConcurrentMap<String, GwtModule>>();
+
+    private final ConcurrentMap<String, GwtModule> modules;
+
+    /**
+     * @param session current Maven session, or <code>null</code> to only cache in this instance
+     */
+    public GwtModuleCache( MavenSession session )
+    {
+        this.modules = getSessionModules( session );
+    }
+
+    private static ConcurrentMap<String, GwtModule> getSessionModules( MavenSession session )
+    {
+        if ( session == null || session.getRequest() == null )
+        {
+            return new ConcurrentHashMap<String, GwtModule>();
+        }
+        // parallel builds use a copy of the session per module, sharing the same request
+        synchronized ( SESSIONS )
+        {
+            ConcurrentMap<String, GwtModule> modules = SESSIONS.get( session.getRequest() );
+            if ( modules == null )
+            {
+                modules = new ConcurrentHashMap<String, GwtModule>();
+                SESSIONS.put( session.getRequest(), modules );
+            }
+            return modules;
+        }
+    }
+
+    /**
+     * @param classpathHash hash of the classpath the module is looked up in
+     * @param name module name
+     * @return the cached module, or <code>null</code> if not cached or modified since
+     */
+    public GwtModule get( String classpathHash, String name )
+    {
+        String key = getKey( classpathHash, name );
+        GwtModule module = modules.get( key );
+        if ( module != null && module.isModified() )
+        {
+            modules.remove( key, module );
+            return null;
+        }
+        return module;
+    }
+
+    /**
+     * Cache a module read from the classpath.
+     *
+     * @return the cached module, which is a previously cached one if another thread read the same module meanwhile
+     */
+    public GwtModule put( String classpathHash, GwtModule module )
+    {
+        String key = getKey( classpathHash, module.getName() );
+        GwtModule cached = modules.putIfAbsent( key, module );
+        if ( cached != null && !cached.isModified() )
+        {
+            return cached;
+        }
+        modules.put( key, module );
+        return module;
+    }
+
+    private static String getKey( String classpathHash, String name )
+    {
+        return classpathHash + ':' + name;
+    }
+}
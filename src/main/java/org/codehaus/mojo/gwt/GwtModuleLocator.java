@@ -0,0 +1,258 @@
+package org.codehaus.mojo.gwt;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.apache.maven.plugin.logging.Log;
+import org.codehaus.mojo.gwt.utils.DefaultGwtModuleReader;
+import org.codehaus.plexus.util.IOUtil;
+
+/**
+ * Locates GWT module descriptors in a classpath, as a class loader would, without probing every jar for every module.
+ * <p>
+ * The <code>.gwt.xml</code> entries of the jars are listed once, in parallel, and kept per jar path, size and
+ * modification date for the Maven JVM, so a module lookup is a map lookup followed by a read of that single entry.
+ * Directories of the classpath, whose content changes during the build, are checked directly.
+ *
+ * @since 8.28
+ */
+public class GwtModuleLocator
+{
+    /**
+     * Maximum number of threads listing jar entries.
+     */
+    private static final int MAX_SCAN_THREADS = 8;
+
+    private static final Map<String, Set<String>> JAR_MODULES = new ConcurrentHashMap<String, Set<String>>();
+
+    private final List<File> classpath;
+
+    /**
+     * Position in the classpath of the first jar holding each module descriptor.
+     */
+    private final Map<String, Integer> jarModules = new HashMap<String, Integer>();
+
+    /**
+     * @param classpath classpath elements, in lookup order
+     * @param log logger
+     */
+    public GwtModuleLocator( Collection<File> classpath, Log log )
+    {
+        this.classpath = new ArrayList<File>( classpath );
+        Map<File, Set<String>> modules = listJarModules( this.classpath, log );
+        for ( int i = this.classpath.size() - 1; i >= 0; i-- )
+        {
+            Set<String> paths = modules.get( this.classpath.get( i ) );
+            if ( paths != null )
+            {
+                for ( String path : paths )
+                {
+                    jarModules.put( path, i );
+                }
+            }
+        }
+    }
+
+    /**
+     * @param modulePath path of the module descriptor, e.g. <code>com/example/App.gwt.xml</code>
+     * @return the classpath directory or jar holding the module descriptor, <code>null</code> if not found
+     */
+    public File getLocation( String modulePath )
+    {
+        Integer jar = jarModules.get( modulePath );
+        int limit = jar != null ? jar : classpath.size();
+        for ( int i = 0; i < limit; i++ )
+        {
+            File element = classpath.get( i );
+            if ( element.isDirectory() && new File( element, modulePath ).isFile() )
+            {
+                return element;
+            }
+        }
+        return jar != null ? classpath.get( jar ) : null;
+    }
+
+    /**
+     * @param modulePath path of the module descriptor, e.g. <code>com/example/App.gwt.xml</code>
+     * @return the content of the module descriptor, <code>null</code> if not found
+     */
+    public InputStream open( String modulePath )
+        throws IOException
+    {
+        File location = getLocation( modulePath );
+        if ( location == null )
+        {
+            return null;
+        }
+        if ( location.isDirectory() )
+        {
+            return new FileInputStream( new File( location, modulePath ) );
+        }
+        ZipFile jar = new ZipFile( location );
+        try
+        {
+            ZipEntry entry = jar.getEntry( modulePath );
+            if ( entry == null )
+            {
+                return null;
+            }
+            InputStream in = jar.getInputStream( entry );
+            try
+            {
+                return new ByteArrayInputStream( IOUtil.toByteArray( in ) );
+            }
+            finally
+            {
+                in.close();
+            }
+        }
+        finally
+        {
+            jar.close();
+        }
+    }
+
+    private static Map<File, Set<String>> listJarModules( List<File> classpath, final Log log )
+    {
+        Map<File, Set<String>> modules = new HashMap<File, Set<String>>();
+        final Map<File, String> missing = new LinkedHashMap<File, String>();
+        for ( File element : classpath )
+        {
+            if ( !element.isFile() )
+            {
+                continue;
+            }
+            String key = getKey( element );
+            Set<String> paths = JAR_MODULES.get( key );
+            if ( paths != null )
+            {
+                modules.put( element, paths );
+            }
+            else
+            {
+                missing.put( element, key );
+            }
+        }
+        if ( missing.isEmpty() )
+        {
+            return modules;
+        }
+
+        int threads = Math.min( missing.size(), Math.min( Runtime.getRuntime().availableProcessors(),
+                                                          MAX_SCAN_THREADS ) );
+        ExecutorService executor = Executors.newFixedThreadPool( threads );
+        try
+        {
+            Map<File, Future<Set<String>>> tasks = new LinkedHashMap<File, Future<Set<String>>>();
+            for ( final File jar : missing.keySet() )
+            {
+                tasks.put( jar, executor.submit( new Callable<Set<String>>()
+                {
+                    public Set<String> call()
+                    {
+                        try
+                        {
+                            return listModules( jar );
+                        }
+                        catch ( IOException e )
+                        {
+                            log.debug( "Failed to list GWT modules of " + jar + " : " + e.getMessage() );
+                            return null;
+                        }
+                    }
+                } ) );
+            }
+            for ( Map.Entry<File, Future<Set<String>>> task : tasks.entrySet() )
+            {
+                Set<String> paths = task.getValue().get();
+                if ( paths != null )
+                {
+                    JAR_MODULES.put( missing.get( task.getKey() ), paths );
+                    modules.put( task.getKey(), paths );
+                }
+            }
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+        }
+        catch ( ExecutionException e )
+        {
+            log.warn( "Failed to list GWT modules of the classpath", e.getCause() );
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+        return modules;
+    }
+
+    private static Set<String> listModules( File jar )
+        throws IOException
+    {
+        Set<String> paths = new HashSet<String>();
+        ZipFile zip = new ZipFile( jar );
+        try
+        {
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while ( entries.hasMoreElements() )
+            {
+                String name = entries.nextElement().getName();
+                if ( name.endsWith( DefaultGwtModuleReader.GWT_MODULE_EXTENSION ) )
+                {
+                    paths.add( name );
+                }
+            }
+        }
+        finally
+        {
+            zip.close();
+        }
+        return paths.isEmpty() ? Collections.<String> emptySet() : Collections.unmodifiableSet( paths );
+    }
+
+    private static String getKey( File jar )
+    {
+        return jar.getAbsolutePath() + '|' + jar.length() + '|' + jar.lastModified();
+    }
+}
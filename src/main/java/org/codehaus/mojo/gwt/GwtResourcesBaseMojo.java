@@ -23,11 +23,11 @@ import org.apache.maven.model.Resource;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.codehaus.mojo.gwt.utils.DefaultGwtModuleReader;
 import org.codehaus.mojo.gwt.utils.GwtModuleReaderException;
-import org.codehaus.plexus.util.DirectoryScanner;
 
 import java.io.File;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -85,12 +85,12 @@ abstract class GwtResourcesBaseMojo
                 {
                     getLog().debug( "GWT sources from " + name + '.' + source );
                     Collection<ResourceFile> files = getAsResources( module, source, sourcesAndResourcesPath,
-                                                                     "**/*.java" );
+                                                                     ".java" );
                     sourcesAndResources.addAll( files );
                     count += files.size();
 
                     Collection<ResourceFile> uifiles = getAsResources( module, source, sourcesAndResourcesPath,
-                            "**/*.ui.xml" );
+                            ".ui.xml" );
                     sourcesAndResources.addAll( uifiles );
                     count += uifiles.size();
                 }
@@ -98,12 +98,12 @@ abstract class GwtResourcesBaseMojo
                 {
                     getLog().debug( "GWT super-sources from " + name + '.' + source );
                     Collection<ResourceFile> files = getAsResources( module, source, sourcesAndResourcesPath,
-                                                                     "**/*.java" );
+                                                                     ".java" );
                     sourcesAndResources.addAll( files );
                     count += files.size();
 
                     Collection<ResourceFile> uifiles = getAsResources( module, source, sourcesAndResourcesPath,
-                            "**/*.ui.xml" );
+                            ".ui.xml" );
                     sourcesAndResources.addAll( uifiles );
                     count += uifiles.size();
                 }
@@ -119,10 +119,10 @@ abstract class GwtResourcesBaseMojo
 
     /**
      * @param source
-     * @param include TODO
+     * @param extension extension of the files to include
      * @param name
      */
-    private Collection<ResourceFile> getAsResources( GwtModule module, String source, Set<String> paths, String include )
+    private Collection<ResourceFile> getAsResources( GwtModule module, String source, Set<String> paths, String extension )
     {
         String pattern = module.getPackage().replace( '.', '/' );
 
@@ -136,11 +136,8 @@ abstract class GwtResourcesBaseMojo
             {
                 continue;
             }
-            DirectoryScanner scanner = new DirectoryScanner();
-            scanner.setBasedir( basedir );
-            scanner.setIncludes( new String[] { pattern + '/' + source + '/' + include } );
-            scanner.scan();
-            String[] includedFiles = scanner.getIncludedFiles();
+            List<String> includedFiles =
+                getSourceTreeIndex().get( basedir ).getFiles( pattern + '/' + source, extension );
             for ( String included : includedFiles )
             {
                 sourcesAndResources.add( new ResourceFile( basedir, included ) );
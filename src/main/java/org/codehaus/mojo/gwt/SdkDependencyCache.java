@@ -0,0 +1,245 @@
+package org.codehaus.mojo.gwt;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.maven.execution.MavenExecutionRequest;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.logging.Log;
+import org.codehaus.plexus.util.StringUtils;
+
+/**
+ * Cache of the resolved dependency closures of the Vaadin client SDK artifacts (<code>vaadin-client</code>,
+ * <code>vaadin-client-compiler</code>), which are needed several times by each mojo execution.
+ * <p>
+ * Closures are kept in the Maven session, so that they are resolved once per build whatever the number of modules and
+ * mojo executions, and in an index file per version in the local repository, so that released versions are resolved
+ * once across builds. Index entries whose files have been removed from the local repository are ignored.
+ *
+ * @since 8.28
+ */
+public class SdkDependencyCache
+{
+    private static final Map<MavenExecutionRequest, ConcurrentMap<String, List<File>>> SESSIONS =
+        new WeakHashMap<MavenExecutionRequest, ConcurrentMap<String, List<File>>>();
+
+    private static final String INDEX_DIRECTORY = ".cache/vaadin-maven-plugin";
+
+    private final ConcurrentMap<String, List<File>> closures;
+
+    private final File indexDirectory;
+
+    private final Log log;
+
+    /**
+     * @param session current Maven session, or <code>null</code> to only cache in this instance
+     * @param localRepository base directory of the local repository, or <code>null</code> to not use an index
+     * @param log logger
+     */
+    public SdkDependencyCache( MavenSession session, File localRepository, Log log )
+    {
+        this.closures = getSessionClosures( session );
+        this.indexDirectory = localRepository != null ? new File( localRepository, INDEX_DIRECTORY ) : null;
+        this.log = log;
+    }
+
+    private static ConcurrentMap<String, List<File>> getSessionClosures( MavenSession session )
+    {
+        if ( session == null || session.getRequest() == null )
+        {
+            return new ConcurrentHashMap<String, List<File>>();
+        }
+        // parallel builds use a copy of the session per module, sharing the same request
+        synchronized ( SESSIONS )
+        {
+            ConcurrentMap<String, List<File>> closures = SESSIONS.get( session.getRequest() );
+            if ( closures == null )
+            {
+                closures = new ConcurrentHashMap<String, List<File>>();
+                SESSIONS.put( session.getRequest(), closures );
+            }
+            return closures;
+        }
+    }
+
+    /**
+     * @param groupId group of the root artifact
+     * @param artifactId root artifact
+     * @param version version of the root artifact
+     * @return the files of the root artifact and its dependencies, or <code>null</code> if not cached
+     */
+    public List<File> get( String groupId, String artifactId, String version )
+    {
+        String key = getKey( groupId, artifactId, version );
+        List<File> files = closures.get( key );
+        if ( files == null && isIndexed( version ) )
+        {
+            files = readIndex( key, version );
+            if ( files != null )
+            {
+                log.debug( "Using dependencies of " + key + " from " + getIndexFile( version ) );
+                closures.putIfAbsent( key, files );
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Cache a resolved closure.
+     *
+     * @return the cached, unmodifiable, list of files
+     */
+    public List<File> put( String groupId, String artifactId, String version, List<File> files )
+    {
+        String key = getKey( groupId, artifactId, version );
+        List<File> closure = Collections.unmodifiableList( new ArrayList<File>( files ) );
+        closures.put( key, closure );
+        if ( isIndexed( version ) )
+        {
+            writeIndex( key, version, closure );
+        }
+        return closure;
+    }
+
+    private static String getKey( String groupId, String artifactId, String version )
+    {
+        return groupId + ":" + artifactId + ":" + version;
+    }
+
+    /**
+     * Snapshots may change in the remote repositories, only releases are indexed.
+     */
+    private boolean isIndexed( String version )
+    {
+        return indexDirectory != null && !version.endsWith( "-SNAPSHOT" );
+    }
+
+    private File getIndexFile( String version )
+    {
+        return new File( indexDirectory, "sdk-" + version + ".properties" );
+    }
+
+    private List<File> readIndex( String key, String version )
+    {
+        String value = loadIndex( version ).getProperty( key );
+        if ( value == null )
+        {
+            return null;
+        }
+        List<File> files = new ArrayList<File>();
+        for ( String path : StringUtils.split( value, File.pathSeparator ) )
+        {
+            File file = new File( path );
+            if ( !file.exists() )
+            {
+                return null;
+            }
+            files.add( file );
+        }
+        return Collections.unmodifiableList( files );
+    }
+
+    private void writeIndex( String key, String version, List<File> files )
+    {
+        List<String> paths = new ArrayList<String>( files.size() );
+        for ( File file : files )
+        {
+            if ( file == null )
+            {
+                return;
+            }
+            paths.add( file.getAbsolutePath() );
+        }
+        // concurrent builds may update the same index
+        synchronized ( SdkDependencyCache.class )
+        {
+            Properties index = loadIndex( version );
+            index.setProperty( key, StringUtils.join( paths.iterator(), File.pathSeparator ) );
+            File indexFile = getIndexFile( version );
+            File temp = new File( indexFile.getPath() + ".tmp" + System.nanoTime() );
+            try
+            {
+                indexDirectory.mkdirs();
+                OutputStream out = new FileOutputStream( temp );
+                try
+                {
+                    index.store( out, "Resolved dependencies of the Vaadin client SDK" );
+                }
+                finally
+                {
+                    out.close();
+                }
+                if ( !temp.renameTo( indexFile ) )
+                {
+                    indexFile.delete();
+                    temp.renameTo( indexFile );
+                }
+            }
+            catch ( IOException e )
+            {
+                log.debug( "Failed to write " + indexFile, e );
+            }
+            finally
+            {
+                temp.delete();
+            }
+        }
+    }
+
+    private Properties loadIndex( String version )
+    {
+        Properties index = new Properties();
+        File indexFile = getIndexFile( version );
+        if ( indexFile.isFile() )
+        {
+            try
+            {
+                InputStream in = new FileInputStream( indexFile );
+                try
+                {
+                    index.load( in );
+                }
+                finally
+                {
+                    in.close();
+                }
+            }
+            catch ( IOException e )
+            {
+                log.debug( "Failed to read " + indexFile, e );
+            }
+        }
+        return index;
+    }
+}
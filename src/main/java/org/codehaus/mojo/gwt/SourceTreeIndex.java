@@ -0,0 +1,243 @@
+package org.codehaus.mojo.gwt;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.maven.execution.MavenExecutionRequest;
+import org.apache.maven.execution.MavenSession;
+import org.codehaus.mojo.gwt.utils.DefaultGwtModuleReader;
+
+/**
+ * Index of the source and resource trees of the project, so that each tree is walked once per build to find GWT
+ * modules, Vaadin themes and client source files, instead of once per scan and mojo.
+ * <p>
+ * Trees are kept in the Maven session. A tree is walked again when one of its directories has been modified since, as
+ * files added or removed during the build (generated sources, widgetset descriptors written by
+ * <code>update-widgetset</code>) change the modification date of their directory. Paths are relative to the tree root
+ * and use the platform separator, as {@link org.codehaus.plexus.util.DirectoryScanner} does.
+ *
+ * @since 8.28
+ */
+public class SourceTreeIndex
+{
+    private static final Map<MavenExecutionRequest, ConcurrentMap<File, Tree>> SESSIONS =
+        new WeakHashMap<MavenExecutionRequest, ConcurrentMap<File, Tree>>();
+
+    /**
+     * Directories modified this close to a walk may be modified again without their date changing on file systems
+     * with a coarse date resolution.
+     */
+    private static final long DATE_RESOLUTION = 2000;
+
+    private static final String THEMES = "VAADIN" + File.separatorChar + "themes" + File.separatorChar;
+
+    private final ConcurrentMap<File, Tree> trees;
+
+    /**
+     * @param session current Maven session, or <code>null</code> to only cache in this instance
+     */
+    public SourceTreeIndex( MavenSession session )
+    {
+        this.trees = getSessionTrees( session );
+    }
+
+    private static ConcurrentMap<File, Tree> getSessionTrees( MavenSession session )
+    {
+        if ( session == null || session.getRequest() == null )
+        {
+            return new ConcurrentHashMap<File, Tree>();
+        }
+        // parallel builds use a copy of the session per module, sharing the same request
+        synchronized ( SESSIONS )
+        {
+            ConcurrentMap<File, Tree> trees = SESSIONS.get( session.getRequest() );
+            if ( trees == null )
+            {
+                trees = new ConcurrentHashMap<File, Tree>();
+                SESSIONS.put( session.getRequest(), trees );
+            }
+            return trees;
+        }
+    }
+
+    /**
+     * @param root root directory of a source or resource tree
+     * @return the index of the tree, empty if the directory doesn't exist
+     */
+    public Tree get( File root )
+    {
+        File key = root.getAbsoluteFile();
+        Tree tree = trees.get( key );
+        if ( tree == null || tree.isModified() )
+        {
+            tree = Tree.walk( key );
+            trees.put( key, tree );
+        }
+        return tree;
+    }
+
+    /**
+     * Content of a source or resource tree.
+     */
+    public static class Tree
+    {
+        private final List<String> modules = new ArrayList<String>();
+
+        private final List<String> themes = new ArrayList<String>();
+
+        private final List<String> files = new ArrayList<String>();
+
+        private final Map<File, Long> directories = new HashMap<File, Long>();
+
+        private long date;
+
+        private static Tree walk( final File root )
+        {
+            final Tree tree = new Tree();
+            tree.date = System.currentTimeMillis();
+            if ( !root.isDirectory() )
+            {
+                tree.directories.put( root, 0L );
+                return tree;
+            }
+            final Path base = root.toPath();
+            try
+            {
+                // follow links as DirectoryScanner does
+                Files.walkFileTree( base, EnumSet.of( FileVisitOption.FOLLOW_LINKS ), Integer.MAX_VALUE,
+                                    new SimpleFileVisitor<Path>()
+                {
+                    @Override
+                    public FileVisitResult preVisitDirectory( Path dir, BasicFileAttributes attrs )
+                    {
+                        tree.directories.put( dir.toFile(), attrs.lastModifiedTime().toMillis() );
+                        String path = base.relativize( dir ).toString();
+                        if ( path.startsWith( THEMES ) && path.indexOf( File.separatorChar, THEMES.length() ) < 0 )
+                        {
+                            tree.themes.add( path );
+                        }
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFile( Path file, BasicFileAttributes attrs )
+                    {
+                        String path = base.relativize( file ).toString();
+                        tree.files.add( path );
+                        if ( path.endsWith( DefaultGwtModuleReader.GWT_MODULE_EXTENSION ) )
+                        {
+                            tree.modules.add( path );
+                        }
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFileFailed( Path file, IOException e )
+                    {
+                        // unreadable file or link cycle, skipped as DirectoryScanner does
+                        return FileVisitResult.CONTINUE;
+                    }
+                } );
+            }
+            catch ( IOException e )
+            {
+                // the visitor doesn't fail, only the root could not be read
+            }
+            return tree;
+        }
+
+        private boolean isModified()
+        {
+            for ( Map.Entry<File, Long> directory : directories.entrySet() )
+            {
+                long lastModified = directory.getKey().lastModified();
+                if ( lastModified != directory.getValue() || lastModified > date - DATE_RESOLUTION )
+                {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * @return the paths of the GWT module descriptors
+         */
+        public List<String> getModules()
+        {
+            return Collections.unmodifiableList( modules );
+        }
+
+        /**
+         * @return the paths of the Vaadin theme directories, <code>VAADIN/themes/*</code>
+         */
+        public List<String> getThemes()
+        {
+            return Collections.unmodifiableList( themes );
+        }
+
+        /**
+         * @return the paths of all the files
+         */
+        public List<String> getFiles()
+        {
+            return Collections.unmodifiableList( files );
+        }
+
+        /**
+         * @param directory path of a directory, using '/' as separator
+         * @param extension file extension, such as <code>.java</code>
+         * @return the paths of the files with the extension in the directory and its sub-directories
+         */
+        public List<String> getFiles( String directory, String extension )
+        {
+            String prefix = directory.replace( '/', File.separatorChar );
+            if ( prefix.length() > 0 && prefix.charAt( prefix.length() - 1 ) != File.separatorChar )
+            {
+                prefix += File.separatorChar;
+            }
+            List<String> matches = new ArrayList<String>();
+            for ( String file : files )
+            {
+                if ( file.startsWith( prefix ) && file.endsWith( extension ) )
+                {
+                    matches.add( file );
+                }
+            }
+            return matches;
+        }
+    }
+}
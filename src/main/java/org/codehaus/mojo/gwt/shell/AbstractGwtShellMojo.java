@@ -20,7 +20,9 @@ package org.codehaus.mojo.gwt.shell;
  */
 
 import java.io.File;
+import java.io.IOException;
 import java.net.MalformedURLException;
+import java.net.URISyntaxException;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -34,13 +36,17 @@ import java.util.Set;
 
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.artifact.DependencyResolutionRequiredException;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.MojoExecution;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.codehaus.mojo.gwt.AbstractGwtModuleMojo;
+import org.codehaus.mojo.gwt.BuildTrace;
 import org.codehaus.plexus.util.StringUtils;
 import org.codehaus.plexus.util.cli.CommandLineUtils;
 
+import com.vaadin.integration.maven.AddonManifestCache;
 import com.vaadin.integration.maven.ClassPathExplorer;
 import com.vaadin.wscdn.client.WidgetSetRequest;
 
@@ -166,6 +172,76 @@ extends AbstractGwtModuleMojo
     @Parameter(defaultValue = "local", property = "vaadin.widgetset.mode")
     protected String widgetsetMode;
 
+    /**
+     * Run the tool inside the Maven JVM instead of forking a new JVM, for the goals running short-lived tools
+     * (update-widgetset, compile-theme, i18n and css). This saves the JVM startup and class loading time, but the
+     * JVM arguments other than system properties are ignored. Other goals, and all goals with a <code>timeOut</code>,
+     * always fork.
+     * <p>
+     * Can be set from command line using '-Dgwt.inProcess=true'
+     *
+     * @since 8.28
+     */
+    @Parameter(defaultValue = "false", property = "gwt.inProcess")
+    private boolean inProcess;
+
+    /**
+     * Start forked JVMs (Java 11 and later) with a class-data sharing archive of the classes they load from the
+     * classpath jars, created by the first fork with a given classpath. This reduces the startup time of the GWT
+     * compiler, SuperDevMode, theme compiler and widgetset builder forks.
+     * <p>
+     * Only the jars preceding the first directory of the classpath can be archived, the classpath order being kept so
+     * that project classes and modules still override those of the dependencies. Forks whose classpath starts with a
+     * directory run without an archive.
+     * <p>
+     * Can be set from command line using '-Dgwt.classDataSharing=true'
+     *
+     * @since 8.28
+     */
+    @Parameter(defaultValue = "false", property = "gwt.classDataSharing")
+    private boolean classDataSharing;
+
+    /**
+     * Folder for the class-data sharing archives, one per JVM and classpath. Archives unused for a month are removed.
+     *
+     * @since 8.28
+     */
+    @Parameter(defaultValue = "${user.home}/.m2/vaadin-cds", property = "gwt.classDataSharingDirectory")
+    private File classDataSharingDirectory;
+
+    /**
+     * Number of output lines of the forked tools buffered while the Maven log consumes them, so that a slow console
+     * doesn't stall the tool on a full pipe. With 0, the output is logged by the threads reading it.
+     * <p>
+     * Can be set from command line using '-Dgwt.outputBuffer=n'
+     *
+     * @since 8.28
+     */
+    @Parameter(defaultValue = "10000", property = "gwt.outputBuffer")
+    private int outputBuffer;
+
+    /**
+     * Write the output of the forked tools to a file of <code>spillDirectory</code> instead of the Maven log, only
+     * warnings and errors being logged. The file is named in the log at the end of each tool run.
+     * <p>
+     * Can be set from command line using '-Dgwt.spillOutput=true'
+     *
+     * @since 8.28
+     */
+    @Parameter(defaultValue = "false", property = "gwt.spillOutput")
+    private boolean spillOutput;
+
+    /**
+     * Folder for the output files of <code>spillOutput</code>.
+     *
+     * @since 8.28
+     */
+    @Parameter(defaultValue = "${project.build.directory}/gwt-output", property = "gwt.spillDirectory")
+    private File spillDirectory;
+
+    @Parameter(defaultValue = "${mojoExecution}", readonly = true)
+    private MojoExecution mojoExecution;
+
 
     // methods
 
@@ -178,7 +254,69 @@ extends AbstractGwtModuleMojo
     public final void execute()
             throws MojoExecutionException, MojoFailureException
     {
-        doExecute();
+        BuildTrace trace = getBuildTrace();
+        String goal = mojoExecution != null ? mojoExecution.getGoal() : getClass().getSimpleName();
+        BuildTrace.Span execution = trace.startExecution( goal + " (" + getProject().getArtifactId() + ")" );
+        long start = System.currentTimeMillis();
+        boolean succeeded = false;
+        try
+        {
+            doExecute();
+            succeeded = true;
+        }
+        finally
+        {
+            trace.endExecution( execution );
+            if ( isTrace() )
+            {
+                trace.summarize( execution, getLog() );
+                try
+                {
+                    trace.write( getTraceFile() );
+                }
+                catch ( IOException e )
+                {
+                    getLog().warn( "Failed to write build trace " + getTraceFile() + " : " + e.getMessage() );
+                }
+            }
+            if ( getPerfReport() != null )
+            {
+                recordPerformance( goal, start, succeeded, trace.countJavaRuns( execution ) );
+            }
+        }
+    }
+
+    private void recordPerformance( String goal, long start, boolean succeeded, Map<String, Integer> javaRuns )
+    {
+        long wallTime = System.currentTimeMillis() - start;
+        try
+        {
+            Integer forks = javaRuns.get( "fork" );
+            // tells the records of the same build apart from the ones of previous builds
+            Long buildStart = null;
+            MavenSession session = getSession();
+            if ( session != null && session.getRequest() != null && session.getRequest().getStartTime() != null )
+            {
+                buildStart = session.getRequest().getStartTime().getTime();
+            }
+            new PerformanceReport()
+                .put( "scenario", getPerfScenario() )
+                .put( "buildStart", buildStart )
+                .put( "project", getProject().getGroupId() + ":" + getProject().getArtifactId() )
+                .put( "basedir", getProject().getBasedir() )
+                .put( "goal", goal )
+                .put( "execution", mojoExecution != null ? mojoExecution.getExecutionId() : null )
+                .put( "succeeded", succeeded )
+                .put( "wallMs", wallTime )
+                .put( "forks", forks != null ? forks : 0 )
+                .put( "javaRuns", javaRuns )
+                .put( "bytesWritten", PerformanceReport.getBytesWritten( getProject().getBasedir(), start ) )
+                .append( getPerfReport() );
+        }
+        catch ( IOException e )
+        {
+            getLog().warn( "Failed to write performance report " + getPerfReport() + " : " + e.getMessage() );
+        }
     }
 
     public abstract void doExecute()
@@ -251,12 +389,39 @@ extends AbstractGwtModuleMojo
         this.timeOut = timeOut;
     }
 
+    /**
+     * Whether the tool run by this goal can run inside the Maven JVM.
+     */
+    protected boolean isInProcessSupported()
+    {
+        return false;
+    }
+
+    protected boolean isInProcess()
+    {
+        return inProcess && isInProcessSupported();
+    }
+
+    /**
+     * @return the class-data sharing archives of the forks, <code>null</code> if disabled
+     */
+    protected ClassDataSharing getClassDataSharing()
+    {
+        return classDataSharing ? new ClassDataSharing( classDataSharingDirectory, getLog() ) : null;
+    }
+
     protected JavaCommand createJavaCommand() {
         return new JavaCommand()
         .setLog( getLog() )
         .setJvm( getJvm() )
         .setJvmArgs( getJvmArgs() )
         .setTimeOut( timeOut )
+        .setForkBudget( ForkBudget.getInstance() )
+        .setInProcess( isInProcess() )
+        .setClassDataSharing( getClassDataSharing() )
+        .setTrace( getBuildTrace() )
+        .setOutputBuffer( outputBuffer )
+        .setSpillDirectory( spillOutput ? spillDirectory : null )
         .addClassPathProcessors( new ClassPathProcessor()
         {
             @Override
@@ -380,18 +545,18 @@ extends AbstractGwtModuleMojo
             }
         }
         Map<String, URL> availableWidgetSets;
-        availableWidgetSets = ClassPathExplorer.getAvailableWidgetSets(urls);
+        // jars of the local repository don't change, their manifest attributes are cached next to them
+        File cacheFile = getLocalRepository() != null ? new File(getLocalRepository().getBasedir(),
+            ".cache/vaadin-maven-plugin/addon-manifests.properties") : null;
+        availableWidgetSets = ClassPathExplorer.getAvailableWidgetSetsAndStylesheets(urls,
+            new AddonManifestCache(cacheFile)).getWidgetsets();
         Set<Artifact> uniqueArtifacts = new HashSet<Artifact>();
 
-        for (String name : availableWidgetSets.keySet()) {
-            URL url = availableWidgetSets.get(name);
-            for (Artifact a : artifacts) {
-                String u = url.toExternalForm();
-                if (u.contains(a.getArtifactId())
-                        && u.contains(a.getBaseVersion()) && !u.contains(
-                                "vaadin-client")) {
-                    uniqueArtifacts.add(a);
-                }
+        Map<String, Artifact> artifactsByPath = getArtifactsByPath(artifacts);
+        for (URL url : availableWidgetSets.values()) {
+            Artifact a = artifactsByPath.get(getPath(url));
+            if (a != null && !a.getArtifactId().contains("vaadin-client")) {
+                uniqueArtifacts.add(a);
             }
         }
 
@@ -408,4 +573,32 @@ extends AbstractGwtModuleMojo
         return wsReq;
     }
 
+    /**
+     * @return the artifacts packaged as files, by absolute path
+     */
+    private static Map<String, Artifact> getArtifactsByPath(Collection<Artifact> artifacts) {
+        Map<String, Artifact> artifactsByPath = new HashMap<String, Artifact>(artifacts.size() * 2);
+        for (Artifact artifact : artifacts) {
+            // reactor modules resolved to their output directory are not published to the CDN
+            if (artifact.getFile() != null && artifact.getFile().isFile()) {
+                artifactsByPath.put(artifact.getFile().getAbsolutePath(), artifact);
+            }
+        }
+        return artifactsByPath;
+    }
+
+    /**
+     * @return the absolute path of a classpath element, <code>null</code> if it is not a file
+     */
+    private static String getPath(URL url) {
+        try {
+            return new File(url.toURI()).getAbsolutePath();
+        } catch (URISyntaxException e) {
+            return null;
+        } catch (IllegalArgumentException e) {
+            // not a file URL
+            return null;
+        }
+    }
+
 }
@@ -0,0 +1,85 @@
+package org.codehaus.mojo.gwt.shell;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ * Number of local workers and heap of a GWT compiler JVM, sized from the processors and memory available and the
+ * number of permutations to compile.
+ * <p>
+ * The compiler loads the module once, then compiles the permutations in parallel on its local workers, each one
+ * holding its own copy of the Java AST : the heap needed grows with the number of workers. Workers are not useful
+ * beyond the number of permutations, and are reduced until their heap fits in the available memory.
+ *
+ * @since 8.28
+ */
+public class AdaptiveSizing
+{
+    /**
+     * Heap used by the compiler besides the permutation workers, in megabytes.
+     */
+    static final long BASE_HEAP = 512;
+
+    private final int workers;
+
+    private final long heap;
+
+    private AdaptiveSizing( int workers, long heap )
+    {
+        this.workers = workers;
+        this.heap = heap;
+    }
+
+    /**
+     * @param processors processors available to the compiler
+     * @param memory memory available to the compiler in megabytes, 0 if unknown
+     * @param permutations number of permutations to compile
+     * @param permutationHeap heap needed by a worker to compile a permutation, in megabytes
+     * @return the sizing of the compiler JVM
+     */
+    public static AdaptiveSizing compute( int processors, long memory, int permutations, long permutationHeap )
+    {
+        int workers = Math.max( 1, Math.min( processors, permutations ) );
+        if ( memory > 0 )
+        {
+            long fitting = ( memory - BASE_HEAP ) / Math.max( 1, permutationHeap );
+            workers = (int) Math.max( 1, Math.min( workers, fitting ) );
+        }
+        long heap = BASE_HEAP + workers * permutationHeap;
+        if ( memory > 0 )
+        {
+            // a single worker gets all the memory there is, even if less than wanted
+            heap = Math.min( heap, memory );
+        }
+        return new AdaptiveSizing( workers, heap );
+    }
+
+    public int getWorkers()
+    {
+        return workers;
+    }
+
+    /**
+     * @return the heap of the compiler JVM in megabytes
+     */
+    public long getHeap()
+    {
+        return heap;
+    }
+}
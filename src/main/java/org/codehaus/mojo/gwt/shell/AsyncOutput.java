@@ -0,0 +1,247 @@
+package org.codehaus.mojo.gwt.shell;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.codehaus.plexus.util.cli.StreamConsumer;
+
+/**
+ * Passes the output lines of a command to their consumers (the Maven log, the compiler output parser) from a thread
+ * of its own, so that the threads draining the stdout and stderr pipes of the command are not slowed down by the
+ * consumers : with a verbose log level, the GWT compiler writes tens of thousands of lines, and a command blocks as
+ * soon as its pipe is full.
+ * <p>
+ * Lines are queued in a ring buffer of bounded capacity, in the order they are read from both streams, and handed to
+ * their consumer in batches. The draining threads only wait when the buffer is full, that is when the consumers can't
+ * keep up with the command for longer than the buffer allows.
+ *
+ * @since 8.28
+ */
+class AsyncOutput
+    extends Thread
+{
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition notEmpty = lock.newCondition();
+
+    private final Condition notFull = lock.newCondition();
+
+    private final String[] lines;
+
+    private final StreamConsumer[] consumers;
+
+    /**
+     * Times the lines were read, for the consumers measuring the command from its output.
+     */
+    private final long[] times;
+
+    private int head;
+
+    private int size;
+
+    private boolean closed;
+
+    private Exception failure;
+
+    /**
+     * @param name name of the command, for the name of the thread
+     * @param capacity number of lines the buffer holds
+     */
+    AsyncOutput( String name, int capacity )
+    {
+        super( "gwt-output-" + name );
+        setDaemon( true );
+        lines = new String[capacity];
+        consumers = new StreamConsumer[capacity];
+        times = new long[capacity];
+    }
+
+    /**
+     * @param consumer consumer of the lines of a stream, called from the thread of this output. A
+     *            {@link TimedStreamConsumer} gets the time each line was read.
+     * @return a consumer queuing the lines for <code>consumer</code>
+     */
+    StreamConsumer wrap( final StreamConsumer consumer )
+    {
+        return new StreamConsumer()
+        {
+            public void consumeLine( String line )
+                throws IOException
+            {
+                add( consumer, line );
+            }
+        };
+    }
+
+    private void add( StreamConsumer consumer, String line )
+        throws IOException
+    {
+        long time = System.nanoTime();
+        lock.lock();
+        try
+        {
+            while ( size == lines.length && !closed && isAlive() )
+            {
+                notFull.await( 100, TimeUnit.MILLISECONDS );
+            }
+            if ( !closed && isAlive() )
+            {
+                int tail = ( head + size ) % lines.length;
+                lines[tail] = line;
+                consumers[tail] = consumer;
+                times[tail] = time;
+                size++;
+                notEmpty.signal();
+                return;
+            }
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+        }
+        finally
+        {
+            lock.unlock();
+        }
+        // the command has ended, or the consumer thread died : the line is passed on directly
+        consume( consumer, line, time );
+    }
+
+    private static void consume( StreamConsumer consumer, String line, long time )
+        throws IOException
+    {
+        if ( consumer instanceof TimedStreamConsumer )
+        {
+            ( (TimedStreamConsumer) consumer ).consumeLine( line, time );
+        }
+        else
+        {
+            consumer.consumeLine( line );
+        }
+    }
+
+    @Override
+    public void run()
+    {
+        String[] batchLines = new String[lines.length];
+        StreamConsumer[] batchConsumers = new StreamConsumer[lines.length];
+        long[] batchTimes = new long[lines.length];
+        while ( true )
+        {
+            int count;
+            lock.lock();
+            try
+            {
+                while ( size == 0 && !closed )
+                {
+                    notEmpty.awaitUninterruptibly();
+                }
+                if ( size == 0 )
+                {
+                    return;
+                }
+                count = size;
+                for ( int i = 0; i < count; i++ )
+                {
+                    int index = ( head + i ) % lines.length;
+                    batchLines[i] = lines[index];
+                    batchConsumers[i] = consumers[index];
+                    batchTimes[i] = times[index];
+                    lines[index] = null;
+                    consumers[index] = null;
+                }
+                head = ( head + count ) % lines.length;
+                size = 0;
+                notFull.signalAll();
+            }
+            finally
+            {
+                lock.unlock();
+            }
+            for ( int i = 0; i < count; i++ )
+            {
+                try
+                {
+                    consume( batchConsumers[i], batchLines[i], batchTimes[i] );
+                }
+                catch ( IOException e )
+                {
+                    fail( e );
+                }
+                catch ( RuntimeException e )
+                {
+                    // keep draining, or the command would block on a full pipe
+                    fail( e );
+                }
+                batchLines[i] = null;
+                batchConsumers[i] = null;
+            }
+        }
+    }
+
+    private void fail( Exception e )
+    {
+        if ( failure == null )
+        {
+            failure = e;
+        }
+    }
+
+    /**
+     * Wait until the queued lines have been consumed, the following lines being passed directly to their consumer.
+     *
+     * @throws IOException the first failure of the consumers
+     */
+    void close()
+        throws IOException
+    {
+        lock.lock();
+        try
+        {
+            closed = true;
+            notEmpty.signal();
+            notFull.signalAll();
+        }
+        finally
+        {
+            lock.unlock();
+        }
+        try
+        {
+            join();
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+        }
+        if ( failure instanceof IOException )
+        {
+            throw (IOException) failure;
+        }
+        if ( failure != null )
+        {
+            throw new IOException( failure.toString(), failure );
+        }
+    }
+}
@@ -74,6 +74,11 @@ public class CSSMojo
         return true;
     }
 
+    @Override
+    protected boolean isInProcessSupported() {
+        return true;
+    }
+
     @Override
     public void doExecute()
         throws MojoExecutionException, MojoFailureException
@@ -0,0 +1,207 @@
+package org.codehaus.mojo.gwt.shell;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.maven.plugin.logging.Log;
+import org.codehaus.plexus.util.cli.CommandLineException;
+import org.codehaus.plexus.util.cli.CommandLineUtils;
+import org.codehaus.plexus.util.cli.Commandline;
+import org.codehaus.plexus.util.cli.StreamConsumer;
+
+/**
+ * Application class-data sharing (AppCDS) archives for forked JVMs, so that the classes of the compiler and its
+ * dependencies are mapped from an archive instead of being loaded and verified again by each fork.
+ * <p>
+ * An archive is created per java executable and classpath : the first fork records the classes it loads with
+ * <code>-XX:DumpLoadedClassList</code>, then a short <code>-Xshare:dump</code> run archives those coming from the jars
+ * of the classpath. Later forks with the same classpath start with <code>-XX:SharedArchiveFile</code>.
+ * <p>
+ * HotSpot refuses to archive classes when non-empty directories precede the archived jars in the classpath, and
+ * aborts dynamic dumps (<code>-XX:ArchiveClassesAtExit</code>) as soon as a class is loaded from a directory. Archives
+ * therefore only hold classes from the jars found at the start of the classpath, before its first directory. The
+ * classpath order is kept, as project classes and modules may override those of the dependencies : when a directory
+ * comes first, class-data sharing is not used.
+ *
+ * @since 8.28
+ */
+public class ClassDataSharing
+{
+    private static final long UNUSED_ARCHIVE_AGE = 30L * 24 * 60 * 60 * 1000;
+
+    private final File directory;
+
+    private final Log log;
+
+    /**
+     * @param directory folder holding the archives
+     * @param log logger
+     */
+    public ClassDataSharing( File directory, Log log )
+    {
+        this.directory = directory;
+        this.log = log;
+    }
+
+    /**
+     * @param javaVersion feature version of the forked JVM
+     * @return <code>true</code> if the JVM supports application class-data sharing
+     */
+    public static boolean isSupported( int javaVersion )
+    {
+        return javaVersion >= 11;
+    }
+
+    /**
+     * @return the jars at the start of the classpath, before its first directory
+     */
+    static List<File> getArchivedJars( List<File> classpath )
+    {
+        List<File> jars = new ArrayList<File>( classpath.size() );
+        for ( File element : classpath )
+        {
+            if ( element.isDirectory() )
+            {
+                break;
+            }
+            if ( element.isFile() )
+            {
+                jars.add( element );
+            }
+        }
+        return jars;
+    }
+
+    /**
+     * @return the archive for a java executable and classpath, which may not exist yet
+     */
+    File getArchive( String java, List<File> classpath )
+        throws IOException
+    {
+        File executable = new File( java );
+        CompileFingerprint fingerprint =
+            new CompileFingerprint().add( "java", executable.getAbsolutePath() + '|' + executable.lastModified() );
+        for ( File jar : getArchivedJars( classpath ) )
+        {
+            // the JVM checks the size and date of the archived jars
+            fingerprint.add( "classpath", jar.getAbsolutePath() + '|' + jar.length() + '|' + jar.lastModified() );
+        }
+        return new File( directory, fingerprint.getValue() + ".jsa" );
+    }
+
+    /**
+     * JVM arguments to use an existing archive.
+     */
+    List<String> getArchiveArguments( File archive )
+    {
+        // keep unused archives from being removed
+        archive.setLastModified( System.currentTimeMillis() );
+        List<String> arguments = new ArrayList<String>();
+        arguments.add( "-Xshare:auto" );
+        arguments.add( "-XX:SharedArchiveFile=" + archive.getAbsolutePath() );
+        return arguments;
+    }
+
+    /**
+     * Create an archive from the classes loaded by a fork, then remove the archives unused for a month.
+     *
+     * @param java java executable of the fork
+     * @param classpath classpath of the fork
+     * @param classList file written by <code>-XX:DumpLoadedClassList</code>
+     * @param archive archive to create
+     */
+    void dump( String java, List<File> classpath, File classList, File archive )
+    {
+        if ( !classList.isFile() || classList.length() == 0 )
+        {
+            return;
+        }
+        directory.mkdirs();
+        File temp = new File( directory, archive.getName() + ".tmp" + System.nanoTime() );
+        File argumentsFile = null;
+        try
+        {
+            List<String> arguments = new ArrayList<String>();
+            arguments.add( "-Xshare:dump" );
+            arguments.add( "-XX:SharedClassListFile=" + classList.getAbsolutePath() );
+            arguments.add( "-XX:SharedArchiveFile=" + temp.getAbsolutePath() );
+            argumentsFile = JavaCommand.writeArgumentsFile( getArchivedJars( classpath ), arguments );
+
+            Commandline cmd = new Commandline();
+            cmd.setExecutable( java );
+            cmd.addArguments( new String[] { "@" + argumentsFile.getAbsolutePath() } );
+            StreamConsumer debug = new StreamConsumer()
+            {
+                public void consumeLine( String line )
+                {
+                    log.debug( line );
+                }
+            };
+            log.debug( "Creating class-data sharing archive " + archive );
+            int status = CommandLineUtils.executeCommandLine( cmd, debug, debug );
+            if ( status == 0 && temp.isFile() && ( temp.renameTo( archive ) || archive.isFile() ) )
+            {
+                log.info( "Created class-data sharing archive " + archive );
+            }
+            else
+            {
+                log.warn( "Failed to create class-data sharing archive " + archive + ", status " + status );
+            }
+        }
+        catch ( IOException e )
+        {
+            log.warn( "Failed to create class-data sharing archive " + archive, e );
+        }
+        catch ( CommandLineException e )
+        {
+            log.warn( "Failed to create class-data sharing archive " + archive, e );
+        }
+        finally
+        {
+            temp.delete();
+            if ( argumentsFile != null )
+            {
+                argumentsFile.delete();
+            }
+        }
+        removeUnusedArchives();
+    }
+
+    private void removeUnusedArchives()
+    {
+        File[] archives = directory.listFiles();
+        if ( archives == null )
+        {
+            return;
+        }
+        long limit = System.currentTimeMillis() - UNUSED_ARCHIVE_AGE;
+        for ( File archive : archives )
+        {
+            if ( archive.lastModified() < limit && archive.delete() )
+            {
+                log.debug( "Removed unused class-data sharing archive " + archive );
+            }
+        }
+    }
+}
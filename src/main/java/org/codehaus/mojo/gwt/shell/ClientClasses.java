@@ -0,0 +1,565 @@
+package org.codehaus.mojo.gwt.shell;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Finds the java files of the client source folders that only hold server-side code, so that editing them doesn't
+ * trigger a GWT compilation.
+ * <p>
+ * The compiled classes of the source folders are read to build their reference graph. Client code is what is
+ * reachable from the module entry points, from the classes named by the deferred binding rules of the modules and
+ * from the types the GWT and Vaadin generators look up by themselves (connectors, widgets, shared state, RPC
+ * interfaces, serializers, generators and linkers).
+ * <p>
+ * As some dependencies don't show in the compiled classes, java files that are not compiled, or compiled before their
+ * last modification, java files declaring constants (inlined by javac), annotations (source retention ones are not
+ * compiled in) or JSNI methods are considered as client code, and the types referenced by JSNI are followed.
+ *
+ * @since 8.28
+ */
+class ClientClasses
+{
+    /**
+     * Types whose subtypes are used by GWT or the Vaadin generators without being referenced from an entry point.
+     */
+    private static final Set<String> CLIENT_TYPES = new HashSet<String>( Arrays.asList(
+        "com/google/gwt/core/client/EntryPoint",
+        "com/google/gwt/user/client/ui/IsWidget",
+        "com/google/gwt/core/ext/Generator",
+        "com/google/gwt/core/ext/Linker",
+        "com/vaadin/client/ServerConnector",
+        "com/vaadin/client/communication/JSONSerializer",
+        "com/vaadin/shared/communication/SharedState",
+        "com/vaadin/shared/communication/ClientRpc",
+        "com/vaadin/shared/communication/ServerRpc" ) );
+
+    private static final Pattern TYPE_DESCRIPTOR = Pattern.compile( "L([^;<>\\[]+)[;<]" );
+
+    private static final int ACC_PRIVATE = 0x0002;
+
+    private static final int ACC_ANNOTATION = 0x2000;
+
+    private static final String JSNI_START = "/*-{";
+
+    /**
+     * Type of a JSNI member reference, such as <code>@com.example.Foo::bar()()</code>.
+     */
+    private static final Pattern JSNI_REFERENCE = Pattern.compile( "@([\\w.$]+)::" );
+
+    private final File classesDirectory;
+
+    private final List<File> classpath;
+
+    private final Log log;
+
+    /**
+     * Classes of the project, by internal name.
+     */
+    private final Map<String, ClassInfo> classes = new HashMap<String, ClassInfo>();
+
+    /**
+     * Classes of the dependencies, by internal name, <code>null</code> when not found.
+     */
+    private final Map<String, ClassInfo> dependencies = new HashMap<String, ClassInfo>();
+
+    private final Map<String, Boolean> clientTypes = new HashMap<String, Boolean>();
+
+    private URLClassLoader loader;
+
+    /**
+     * @param classesDirectory output folder of the project classes
+     * @param classpath classpath of the compiler, to find the super types of the project classes
+     * @param log logger
+     */
+    ClientClasses( File classesDirectory, List<File> classpath, Log log )
+    {
+        this.classesDirectory = classesDirectory;
+        this.classpath = classpath;
+        this.log = log;
+    }
+
+    /**
+     * @param sourceDirectories client source folders, with the source root they belong to
+     * @param roots class names of the module entry points and of the classes named by its deferred binding rules
+     * @return the java files of the source folders that are not reachable from client code
+     */
+    Set<File> getServerOnlySources( Map<File, File> sourceDirectories, Collection<String> roots )
+    {
+        Map<File, List<ClassInfo>> sources = new HashMap<File, List<ClassInfo>>();
+        Map<String, File> owners = new HashMap<String, File>();
+        for ( Map.Entry<File, File> directory : sourceDirectories.entrySet() )
+        {
+            List<File> javaFiles = new ArrayList<File>();
+            listJavaFiles( directory.getKey(), javaFiles );
+            for ( File javaFile : javaFiles )
+            {
+                List<ClassInfo> infos = readClasses( directory.getValue(), javaFile );
+                if ( infos != null )
+                {
+                    sources.put( javaFile, infos );
+                    for ( ClassInfo info : infos )
+                    {
+                        owners.put( info.name, javaFile );
+                    }
+                }
+            }
+        }
+
+        Set<String> rootNames = new HashSet<String>();
+        for ( String root : roots )
+        {
+            rootNames.add( root.replace( '.', '/' ) );
+        }
+        Set<File> reachable = new HashSet<File>();
+        Deque<File> pending = new ArrayDeque<File>();
+        for ( Map.Entry<File, List<ClassInfo>> source : sources.entrySet() )
+        {
+            for ( ClassInfo info : source.getValue() )
+            {
+                // nested classes are named with a dot in modules
+                if ( rootNames.contains( info.name ) || rootNames.contains( info.name.replace( '$', '/' ) )
+                    || info.constants || info.annotation || info.jsni || isClientType( info.name ) )
+                {
+                    if ( reachable.add( source.getKey() ) )
+                    {
+                        pending.add( source.getKey() );
+                    }
+                    break;
+                }
+            }
+        }
+        // the compiler reads whole compilation units, so all the classes of a reachable file are followed
+        while ( !pending.isEmpty() )
+        {
+            for ( ClassInfo info : sources.get( pending.remove() ) )
+            {
+                for ( String reference : info.references )
+                {
+                    File owner = owners.get( reference );
+                    if ( owner == null && info.jsni )
+                    {
+                        // JSNI references name nested classes with a dot
+                        owner = getOwner( owners, reference );
+                    }
+                    if ( owner != null && reachable.add( owner ) )
+                    {
+                        pending.add( owner );
+                    }
+                }
+            }
+        }
+
+        Set<File> serverOnly = new HashSet<File>( sources.keySet() );
+        serverOnly.removeAll( reachable );
+        if ( !serverOnly.isEmpty() )
+        {
+            log.debug( "Server side sources ignored by the GWT compilation check : " + serverOnly );
+        }
+        return serverOnly;
+    }
+
+    /**
+     * @return the file declaring a class named with dots for nested classes, <code>null</code> if not found
+     */
+    private static File getOwner( Map<String, File> owners, String name )
+    {
+        String candidate = name;
+        int nested = candidate.lastIndexOf( '/' );
+        while ( nested > 0 )
+        {
+            candidate = candidate.substring( 0, nested ) + '$' + candidate.substring( nested + 1 );
+            File owner = owners.get( candidate );
+            if ( owner != null )
+            {
+                return owner;
+            }
+            nested = candidate.lastIndexOf( '/', nested - 1 );
+        }
+        return null;
+    }
+
+    /**
+     * Release the resources used to read the classes of the dependencies.
+     */
+    void close()
+    {
+        if ( loader != null )
+        {
+            try
+            {
+                loader.close();
+            }
+            catch ( IOException e )
+            {
+                // ignored
+            }
+            loader = null;
+        }
+    }
+
+    private static void listJavaFiles( File directory, List<File> javaFiles )
+    {
+        File[] files = directory.listFiles();
+        if ( files == null )
+        {
+            return;
+        }
+        for ( File file : files )
+        {
+            if ( file.isDirectory() )
+            {
+                listJavaFiles( file, javaFiles );
+            }
+            else if ( file.getName().endsWith( ".java" ) )
+            {
+                javaFiles.add( file );
+            }
+        }
+    }
+
+    /**
+     * @return the classes compiled from a java file, <code>null</code> if they are missing, outdated or unreadable
+     */
+    private List<ClassInfo> readClasses( File root, File javaFile )
+    {
+        String path = root.toURI().relativize( javaFile.toURI() ).getPath();
+        final String simpleName = javaFile.getName().substring( 0, javaFile.getName().length() - ".java".length() );
+        File classFile = new File( classesDirectory, path.substring( 0, path.length() - ".java".length() ) + ".class" );
+        if ( !classFile.isFile() || classFile.lastModified() < javaFile.lastModified() )
+        {
+            return null;
+        }
+        File[] classFiles = classFile.getParentFile().listFiles( new FilenameFilter()
+        {
+            public boolean accept( File dir, String name )
+            {
+                return name.equals( simpleName + ".class" )
+                    || ( name.startsWith( simpleName + "$" ) && name.endsWith( ".class" ) );
+            }
+        } );
+        List<ClassInfo> infos = new ArrayList<ClassInfo>();
+        try
+        {
+            for ( File file : classFiles )
+            {
+                InputStream in = new FileInputStream( file );
+                try
+                {
+                    ClassInfo info = ClassInfo.read( in );
+                    classes.put( info.name, info );
+                    infos.add( info );
+                }
+                finally
+                {
+                    in.close();
+                }
+            }
+        }
+        catch ( IOException e )
+        {
+            log.debug( "Failed to read classes of " + javaFile + " : " + e.getMessage() );
+            return null;
+        }
+        if ( !infos.isEmpty() && !readJsniReferences( javaFile, infos.get( 0 ) ) )
+        {
+            return null;
+        }
+        return infos;
+    }
+
+    /**
+     * Add the types referenced by the JSNI methods of a java file, which don't show in the compiled classes, to one of
+     * its classes.
+     *
+     * @return <code>false</code> if the java file cannot be read
+     */
+    private boolean readJsniReferences( File javaFile, ClassInfo info )
+    {
+        String source;
+        try
+        {
+            source = new String( Files.readAllBytes( javaFile.toPath() ), StandardCharsets.UTF_8 );
+        }
+        catch ( IOException e )
+        {
+            log.debug( "Failed to read " + javaFile + " : " + e.getMessage() );
+            return false;
+        }
+        if ( source.contains( JSNI_START ) )
+        {
+            info.jsni = true;
+            Matcher matcher = JSNI_REFERENCE.matcher( source );
+            while ( matcher.find() )
+            {
+                info.references.add( matcher.group( 1 ).replace( '.', '/' ) );
+            }
+        }
+        return true;
+    }
+
+    private boolean isClientType( String name )
+    {
+        if ( CLIENT_TYPES.contains( name ) )
+        {
+            return true;
+        }
+        Boolean clientType = clientTypes.get( name );
+        if ( clientType != null )
+        {
+            return clientType;
+        }
+        // cycles can't happen in a valid hierarchy, but don't loop on broken classes
+        clientTypes.put( name, Boolean.FALSE );
+        ClassInfo info = getClassInfo( name );
+        boolean result = false;
+        if ( info != null )
+        {
+            if ( info.superName != null )
+            {
+                result = isClientType( info.superName );
+            }
+            for ( int i = 0; !result && i < info.interfaces.length; i++ )
+            {
+                result = isClientType( info.interfaces[i] );
+            }
+        }
+        clientTypes.put( name, result );
+        return result;
+    }
+
+    private ClassInfo getClassInfo( String name )
+    {
+        ClassInfo info = classes.get( name );
+        if ( info != null || name.startsWith( "java/" ) )
+        {
+            return info;
+        }
+        if ( dependencies.containsKey( name ) )
+        {
+            return dependencies.get( name );
+        }
+        try
+        {
+            InputStream in = getLoader().getResourceAsStream( name + ".class" );
+            if ( in != null )
+            {
+                try
+                {
+                    info = ClassInfo.read( in );
+                }
+                finally
+                {
+                    in.close();
+                }
+            }
+        }
+        catch ( IOException e )
+        {
+            log.debug( "Failed to read class " + name + " : " + e.getMessage() );
+        }
+        dependencies.put( name, info );
+        return info;
+    }
+
+    private URLClassLoader getLoader()
+        throws IOException
+    {
+        if ( loader == null )
+        {
+            URL[] urls = new URL[classpath.size()];
+            for ( int i = 0; i < urls.length; i++ )
+            {
+                urls[i] = classpath.get( i ).toURI().toURL();
+            }
+            loader = new URLClassLoader( urls, null );
+        }
+        return loader;
+    }
+
+    /**
+     * Name, super types and referenced types of a class, read from its constant pool.
+     */
+    static class ClassInfo
+    {
+        String name;
+
+        String superName;
+
+        String[] interfaces;
+
+        /**
+         * Whether the class is an annotation type.
+         */
+        boolean annotation;
+
+        /**
+         * Whether the class declares constant fields, inlined in the classes using them.
+         */
+        boolean constants;
+
+        /**
+         * Whether the java file of the class holds JSNI methods.
+         */
+        boolean jsni;
+
+        final Set<String> references = new HashSet<String>();
+
+        static ClassInfo read( InputStream input )
+            throws IOException
+        {
+            DataInputStream in = new DataInputStream( new BufferedInputStream( input ) );
+            if ( in.readInt() != 0xCAFEBABE )
+            {
+                throw new IOException( "Not a class file" );
+            }
+            in.readUnsignedShort();
+            in.readUnsignedShort();
+            int count = in.readUnsignedShort();
+            String[] strings = new String[count];
+            int[] classes = new int[count];
+            for ( int i = 1; i < count; i++ )
+            {
+                int tag = in.readUnsignedByte();
+                switch ( tag )
+                {
+                    case 1: // Utf8
+                        strings[i] = in.readUTF();
+                        break;
+                    case 7: // Class
+                        classes[i] = in.readUnsignedShort();
+                        break;
+                    case 8: // String
+                    case 16: // MethodType
+                    case 19: // Module
+                    case 20: // Package
+                        in.readUnsignedShort();
+                        break;
+                    case 15: // MethodHandle
+                        in.readUnsignedByte();
+                        in.readUnsignedShort();
+                        break;
+                    case 3: // Integer
+                    case 4: // Float
+                    case 9: // Fieldref
+                    case 10: // Methodref
+                    case 11: // InterfaceMethodref
+                    case 12: // NameAndType
+                    case 17: // Dynamic
+                    case 18: // InvokeDynamic
+                        in.readInt();
+                        break;
+                    case 5: // Long
+                    case 6: // Double
+                        in.readLong();
+                        i++;
+                        break;
+                    default:
+                        throw new IOException( "Unknown constant pool tag " + tag );
+                }
+            }
+
+            ClassInfo info = new ClassInfo();
+            for ( int i = 1; i < count; i++ )
+            {
+                if ( strings[i] != null )
+                {
+                    // class names, and field, method and generic signatures
+                    info.references.add( strings[i] );
+                    Matcher matcher = TYPE_DESCRIPTOR.matcher( strings[i] );
+                    while ( matcher.find() )
+                    {
+                        info.references.add( matcher.group( 1 ) );
+                    }
+                }
+            }
+            info.annotation = ( in.readUnsignedShort() & ACC_ANNOTATION ) != 0;
+            info.name = strings[classes[in.readUnsignedShort()]];
+            int superClass = in.readUnsignedShort();
+            info.superName = superClass != 0 ? strings[classes[superClass]] : null;
+            info.interfaces = new String[in.readUnsignedShort()];
+            for ( int i = 0; i < info.interfaces.length; i++ )
+            {
+                info.interfaces[i] = strings[classes[in.readUnsignedShort()]];
+            }
+            int fields = in.readUnsignedShort();
+            for ( int i = 0; i < fields && !info.constants; i++ )
+            {
+                // private constants can only be inlined in the classes of the same file
+                boolean visible = ( in.readUnsignedShort() & ACC_PRIVATE ) == 0;
+                in.readUnsignedShort();
+                in.readUnsignedShort();
+                int attributes = in.readUnsignedShort();
+                for ( int j = 0; j < attributes; j++ )
+                {
+                    // final fields initialized with a constant expression
+                    String attribute = strings[in.readUnsignedShort()];
+                    if ( visible && "ConstantValue".equals( attribute ) )
+                    {
+                        info.constants = true;
+                    }
+                    skip( in, in.readInt() );
+                }
+            }
+            info.references.remove( info.name );
+            return info;
+        }
+
+        private static void skip( DataInputStream in, int length )
+            throws IOException
+        {
+            int remaining = length;
+            while ( remaining > 0 )
+            {
+                int skipped = in.skipBytes( remaining );
+                if ( skipped <= 0 )
+                {
+                    throw new IOException( "Truncated class file" );
+                }
+                remaining -= skipped;
+            }
+        }
+    }
+}
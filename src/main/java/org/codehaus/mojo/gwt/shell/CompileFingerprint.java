@@ -0,0 +1,357 @@
+package org.codehaus.mojo.gwt.shell;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.io.FileUtils;
+
+/**
+ * Content based fingerprint of the inputs of a GWT compilation.
+ * <p>
+ * Unlike file timestamps, the fingerprint is stable across fresh checkouts, branch switches and restored build
+ * caches : it only changes when the content of an input changes. Entries are identified by logical names (module
+ * name, path relative to a source root) rather than absolute paths, so the same project checked out in another
+ * location produces the same fingerprint.
+ *
+ * @since 8.28
+ */
+public class CompileFingerprint
+{
+    private static final String ALGORITHM = "SHA-1";
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    /**
+     * Jar digests are shared by all the compilations of the build, keyed by path, size and last modification time.
+     */
+    private static final Map<String, String> JAR_DIGESTS = new ConcurrentHashMap<String, String>();
+
+    private final MessageDigest digest = newDigest();
+
+    private final byte[] buffer = new byte[8192];
+
+    private final FileDigestCache digests;
+
+    /**
+     * Digests of the files added, by logical name.
+     */
+    private final Map<String, String> inputs = new LinkedHashMap<String, String>();
+
+    public CompileFingerprint()
+    {
+        this( null );
+    }
+
+    /**
+     * @param digests cache of the file digests, or <code>null</code> to read all the files
+     * @since 8.28
+     */
+    public CompileFingerprint( FileDigestCache digests )
+    {
+        this.digests = digests;
+    }
+
+    /**
+     * Add a named value to the fingerprint.
+     *
+     * @param name logical name of the value
+     * @param value the value, <code>null</code> is allowed
+     * @return this fingerprint
+     */
+    public CompileFingerprint add( String name, String value )
+    {
+        update( name + '=' + value + '\n' );
+        return this;
+    }
+
+    /**
+     * Add the content of a file to the fingerprint.
+     *
+     * @param name logical name of the file
+     * @param file the file, ignored if it does not exist
+     * @return this fingerprint
+     * @throws IOException if the file cannot be read
+     */
+    public CompileFingerprint addFile( String name, File file )
+        throws IOException
+    {
+        if ( file.isFile() )
+        {
+            String value = getDigest( file );
+            inputs.put( name, value );
+            update( name + '\n' + value + '\n' );
+        }
+        return this;
+    }
+
+    /**
+     * Add all the files found under a directory to the fingerprint, using their path relative to the directory.
+     *
+     * @param name logical name of the directory
+     * @param directory the directory, ignored if it does not exist
+     * @return this fingerprint
+     * @throws IOException if a file cannot be read
+     */
+    public CompileFingerprint addDirectory( String name, File directory )
+        throws IOException
+    {
+        return addDirectory( name, directory, null );
+    }
+
+    /**
+     * Add the files found under a directory and accepted by a filter to the fingerprint.
+     *
+     * @param name logical name of the directory
+     * @param directory the directory, ignored if it does not exist
+     * @param filter filter of the files, <code>null</code> to add all the files
+     * @return this fingerprint
+     * @throws IOException if a file cannot be read
+     * @since 8.28
+     */
+    public CompileFingerprint addDirectory( String name, File directory, FileFilter filter )
+        throws IOException
+    {
+        if ( directory.isDirectory() )
+        {
+            addDirectory( name, directory, "", filter );
+        }
+        return this;
+    }
+
+    private void addDirectory( String name, File directory, String relativePath, FileFilter filter )
+        throws IOException
+    {
+        File[] files = directory.listFiles();
+        if ( files == null )
+        {
+            return;
+        }
+        Arrays.sort( files );
+        for ( File file : files )
+        {
+            String path = relativePath + file.getName();
+            if ( file.isDirectory() )
+            {
+                addDirectory( name, file, path + '/', filter );
+            }
+            else if ( filter == null || filter.accept( file ) )
+            {
+                addFile( name + ':' + path, file );
+            }
+        }
+    }
+
+    /**
+     * Add a jar of the classpath to the fingerprint. Only the content of the jar is taken into account, not its
+     * location.
+     *
+     * @param jar the jar file
+     * @return this fingerprint
+     * @throws IOException if the jar cannot be read
+     */
+    public CompileFingerprint addJar( File jar )
+        throws IOException
+    {
+        String key = jar.getAbsolutePath() + '|' + jar.length() + '|' + jar.lastModified();
+        String value = JAR_DIGESTS.get( key );
+        if ( value == null )
+        {
+            value = getDigest( jar );
+            JAR_DIGESTS.put( key, value );
+        }
+        return add( "jar", value );
+    }
+
+    /**
+     * @return the digests of the files added so far, by logical name
+     */
+    public Map<String, String> getInputs()
+    {
+        return Collections.unmodifiableMap( inputs );
+    }
+
+    /**
+     * @return the hexadecimal representation of the fingerprint. The fingerprint must not be used after this call.
+     */
+    public String getValue()
+    {
+        return toHex( digest.digest() );
+    }
+
+    /**
+     * Read a fingerprint previously stored by {@link #write(File, String)}.
+     *
+     * @param file the fingerprint file
+     * @return the stored fingerprint, or <code>null</code> if there is none
+     */
+    public static String read( File file )
+    {
+        if ( !file.isFile() )
+        {
+            return null;
+        }
+        try
+        {
+            return FileUtils.readFileToString( file, StandardCharsets.UTF_8 ).trim();
+        }
+        catch ( IOException e )
+        {
+            return null;
+        }
+    }
+
+    /**
+     * Store a fingerprint.
+     *
+     * @param file the fingerprint file
+     * @param value the fingerprint
+     * @throws IOException if the file cannot be written
+     */
+    public static void write( File file, String value )
+        throws IOException
+    {
+        FileUtils.writeStringToFile( file, value, StandardCharsets.UTF_8 );
+    }
+
+    /**
+     * Read the inputs previously stored by {@link #writeInputs(File, Map)}.
+     *
+     * @param file the inputs file
+     * @return the stored inputs, empty if there are none
+     */
+    public static Map<String, String> readInputs( File file )
+    {
+        Map<String, String> inputs = new LinkedHashMap<String, String>();
+        if ( !file.isFile() )
+        {
+            return inputs;
+        }
+        try
+        {
+            for ( String line : FileUtils.readLines( file, StandardCharsets.UTF_8 ) )
+            {
+                int index = line.indexOf( ' ' );
+                if ( index > 0 )
+                {
+                    inputs.put( line.substring( index + 1 ), line.substring( 0, index ) );
+                }
+            }
+        }
+        catch ( IOException e )
+        {
+            inputs.clear();
+        }
+        return inputs;
+    }
+
+    /**
+     * Store the inputs of a fingerprint, one <code>digest name</code> line per file.
+     *
+     * @param file the inputs file
+     * @param inputs digests of the inputs by logical name
+     * @throws IOException if the file cannot be written
+     */
+    public static void writeInputs( File file, Map<String, String> inputs )
+        throws IOException
+    {
+        List<String> lines = new ArrayList<String>( inputs.size() );
+        for ( Map.Entry<String, String> input : inputs.entrySet() )
+        {
+            lines.add( input.getValue() + ' ' + input.getKey() );
+        }
+        FileUtils.writeLines( file, StandardCharsets.UTF_8.name(), lines, "\n" );
+    }
+
+    private void update( String text )
+    {
+        digest.update( text.getBytes( StandardCharsets.UTF_8 ) );
+    }
+
+    private String getDigest( File file )
+        throws IOException
+    {
+        if ( digests != null )
+        {
+            return digests.getDigest( file );
+        }
+        MessageDigest fileDigest = newDigest();
+        digestContent( fileDigest, file );
+        return toHex( fileDigest.digest() );
+    }
+
+    private void digestContent( MessageDigest target, File file )
+        throws IOException
+    {
+        InputStream in = new FileInputStream( file );
+        try
+        {
+            int read;
+            while ( ( read = in.read( buffer ) ) != -1 )
+            {
+                target.update( buffer, 0, read );
+            }
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+
+    static MessageDigest newDigest()
+    {
+        try
+        {
+            return MessageDigest.getInstance( ALGORITHM );
+        }
+        catch ( NoSuchAlgorithmException e )
+        {
+            throw new IllegalStateException( ALGORITHM + " is not available", e );
+        }
+    }
+
+    /**
+     * @return the bytes as lower case hexadecimal, two characters per byte
+     */
+    public static String toHex( byte[] bytes )
+    {
+        char[] chars = new char[bytes.length * 2];
+        for ( int i = 0; i < bytes.length; i++ )
+        {
+            chars[i * 2] = HEX[( bytes[i] >> 4 ) & 0xf];
+            chars[i * 2 + 1] = HEX[bytes[i] & 0xf];
+        }
+        return new String( chars );
+    }
+}
@@ -0,0 +1,324 @@
+package org.codehaus.mojo.gwt.shell;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Timings of the GWT compilation of modules, as parsed from the compiler output by {@link CompilerOutputParser}, and
+ * written as JSON or in the Prometheus text exposition format (for the textfile collector of the node exporter) to
+ * follow the compilation performance over time.
+ * <p>
+ * Durations are in seconds, -1 when the compiler output didn't allow to compute them.
+ *
+ * @since 8.28
+ */
+public class CompileMetrics
+{
+    /**
+     * Names and descriptions of the gauges of a module, in the order of {@link Module#getGaugeValues()}.
+     */
+    private static final String[][] GAUGES = {
+        { "gwt_compile_permutations", "Number of permutations compiled" },
+        { "gwt_compile_precompile_seconds", "Duration of the precompilation" },
+        { "gwt_compile_permutations_seconds", "Duration of the compilation of the permutations" },
+        { "gwt_compile_compile_seconds", "Duration of the compilation, before linking" },
+        { "gwt_compile_link_seconds", "Duration of the linking" },
+        { "gwt_compile_total_seconds", "Duration of the compilation and linking" },
+        { "gwt_compile_success", "1 if the module compiled successfully" } };
+
+    private final String project;
+
+    private final List<Module> modules = new ArrayList<Module>();
+
+    /**
+     * @param project name of the project, such as its artifactId
+     */
+    public CompileMetrics( String project )
+    {
+        this.project = project;
+    }
+
+    public synchronized void add( List<Module> compiled )
+    {
+        modules.addAll( compiled );
+    }
+
+    public synchronized List<Module> getModules()
+    {
+        return new ArrayList<Module>( modules );
+    }
+
+    /**
+     * Write the metrics as a JSON document.
+     *
+     * @param file file to write
+     * @throws IOException if the file cannot be written
+     */
+    public void writeJson( File file )
+        throws IOException
+    {
+        StringBuilder json = new StringBuilder();
+        json.append( "{\n  \"project\": " ).append( quote( project ) );
+        json.append( ",\n  \"timestamp\": " ).append( System.currentTimeMillis() );
+        json.append( ",\n  \"modules\": [" );
+        boolean first = true;
+        for ( Module module : getModules() )
+        {
+            json.append( first ? "\n" : ",\n" );
+            first = false;
+            json.append( "    {\n      \"module\": " ).append( quote( module.name ) );
+            json.append( ",\n      \"succeeded\": " ).append( module.succeeded );
+            json.append( ",\n      \"localWorkers\": " ).append( module.workers );
+            json.append( ",\n      \"permutations\": " ).append( module.getPermutationCount() );
+            json.append( ",\n      \"precompileSeconds\": " ).append( format( module.precompile ) );
+            json.append( ",\n      \"permutationsSeconds\": " ).append( format( module.permutationsTime ) );
+            json.append( ",\n      \"compileSeconds\": " ).append( format( module.compile ) );
+            json.append( ",\n      \"linkSeconds\": " ).append( format( module.link ) );
+            json.append( ",\n      \"totalSeconds\": " ).append( format( module.getTotal() ) );
+            json.append( ",\n      \"permutationDetails\": [" );
+            boolean firstPermutation = true;
+            for ( Permutation permutation : module.permutations )
+            {
+                json.append( firstPermutation ? "\n" : ",\n" );
+                firstPermutation = false;
+                json.append( "        { \"id\": " ).append( permutation.id );
+                json.append( ", \"startSeconds\": " ).append( format( permutation.start ) );
+                json.append( ", \"seconds\": " ).append( format( permutation.duration ) ).append( " }" );
+            }
+            json.append( firstPermutation ? "]\n    }" : "\n      ]\n    }" );
+        }
+        json.append( first ? "]\n}\n" : "\n  ]\n}\n" );
+        write( file, json.toString() );
+    }
+
+    /**
+     * Write the metrics in the Prometheus text exposition format.
+     *
+     * @param file file to write
+     * @throws IOException if the file cannot be written
+     */
+    public void writePrometheus( File file )
+        throws IOException
+    {
+        List<Module> compiled = getModules();
+        StringBuilder text = new StringBuilder();
+        for ( int i = 0; i < GAUGES.length; i++ )
+        {
+            text.append( "# HELP " ).append( GAUGES[i][0] ).append( ' ' ).append( GAUGES[i][1] ).append( '\n' );
+            text.append( "# TYPE " ).append( GAUGES[i][0] ).append( " gauge\n" );
+            for ( Module module : compiled )
+            {
+                double value = module.getGaugeValues()[i];
+                if ( value >= 0 )
+                {
+                    text.append( GAUGES[i][0] ).append( '{' ).append( labels( module ) ).append( "} " )
+                        .append( format( value ) ).append( '\n' );
+                }
+            }
+        }
+
+        text.append( "# HELP gwt_compile_permutation_seconds Duration of the compilation of a permutation\n" );
+        text.append( "# TYPE gwt_compile_permutation_seconds gauge\n" );
+        for ( Module module : compiled )
+        {
+            for ( Permutation permutation : module.permutations )
+            {
+                if ( permutation.duration >= 0 )
+                {
+                    text.append( "gwt_compile_permutation_seconds{" ).append( labels( module ) )
+                        .append( ",permutation=\"" ).append( permutation.id ).append( "\"} " )
+                        .append( format( permutation.duration ) ).append( '\n' );
+                }
+            }
+        }
+        write( file, text.toString() );
+    }
+
+    private String labels( Module module )
+    {
+        return "project=" + quote( project ) + ",module=" + quote( module.name );
+    }
+
+    private static String format( double seconds )
+    {
+        if ( seconds < 0 )
+        {
+            return "-1";
+        }
+        return String.format( Locale.ROOT, "%.3f", seconds );
+    }
+
+    private static String quote( String value )
+    {
+        return '"' + value.replace( "\\", "\\\\" ).replace( "\"", "\\\"" ).replace( "\n", "\\n" ) + '"';
+    }
+
+    private static void write( File file, String content )
+        throws IOException
+    {
+        file.getAbsoluteFile().getParentFile().mkdirs();
+        Writer writer = new OutputStreamWriter( new FileOutputStream( file ), StandardCharsets.UTF_8 );
+        try
+        {
+            writer.write( content );
+        }
+        finally
+        {
+            writer.close();
+        }
+    }
+
+    /**
+     * Timings of the compilation of a module.
+     */
+    public static class Module
+    {
+        final String name;
+
+        final int workers;
+
+        final List<Permutation> permutations = new ArrayList<Permutation>();
+
+        int permutationCount = -1;
+
+        boolean succeeded;
+
+        double precompile = -1;
+
+        double permutationsTime = -1;
+
+        double compile = -1;
+
+        double link = -1;
+
+        double measuredTotal = -1;
+
+        Module( String name, int workers )
+        {
+            this.name = name;
+            this.workers = workers;
+        }
+
+        public String getName()
+        {
+            return name;
+        }
+
+        public boolean isSucceeded()
+        {
+            return succeeded;
+        }
+
+        /**
+         * @return the number of permutations, -1 if unknown
+         */
+        public int getPermutationCount()
+        {
+            return permutationCount >= 0 ? permutationCount : permutations.isEmpty() ? -1 : permutations.size();
+        }
+
+        public List<Permutation> getPermutations()
+        {
+            return permutations;
+        }
+
+        public double getPrecompile()
+        {
+            return precompile;
+        }
+
+        public double getCompile()
+        {
+            return compile;
+        }
+
+        public double getLink()
+        {
+            return link;
+        }
+
+        double[] getGaugeValues()
+        {
+            return new double[] { getPermutationCount(), precompile, permutationsTime, compile, link, getTotal(),
+                succeeded ? 1 : 0 };
+        }
+
+        /**
+         * @return the duration of the compilation and linking as reported by the compiler, else as measured
+         */
+        public double getTotal()
+        {
+            if ( compile >= 0 && link >= 0 )
+            {
+                return compile + link;
+            }
+            return measuredTotal;
+        }
+    }
+
+    /**
+     * Timings of the compilation of a permutation.
+     */
+    public static class Permutation
+    {
+        final int id;
+
+        /**
+         * Start of the compilation, from the start of the module compilation.
+         */
+        final double start;
+
+        double duration = -1;
+
+        Permutation( int id, double start )
+        {
+            this.id = id;
+            this.start = start;
+        }
+
+        public int getId()
+        {
+            return id;
+        }
+
+        public double getStart()
+        {
+            return start;
+        }
+
+        /**
+         * @return the duration of the compilation, -1 when permutations are compiled in parallel, as the compiler
+         *         only logs their start
+         */
+        public double getDuration()
+        {
+            return duration;
+        }
+    }
+}
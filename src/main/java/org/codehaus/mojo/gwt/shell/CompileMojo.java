@@ -24,27 +24,43 @@ package org.codehaus.mojo.gwt.shell;
  */
 
 import java.io.File;
+import java.io.FileFilter;
 import java.io.FilenameFilter;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.maven.artifact.Artifact;
+import org.apache.maven.model.Resource;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.plugins.annotations.ResolutionScope;
+import org.codehaus.mojo.gwt.BuildTrace;
 import org.codehaus.mojo.gwt.GwtModule;
 import org.codehaus.mojo.gwt.utils.GwtModuleReaderException;
-import org.codehaus.plexus.compiler.util.scan.InclusionScanException;
-import org.codehaus.plexus.compiler.util.scan.StaleSourceScanner;
-import org.codehaus.plexus.compiler.util.scan.mapping.SingleTargetSourceMapping;
 import org.codehaus.plexus.util.StringUtils;
+import org.codehaus.plexus.util.cli.StreamConsumer;
 
 import com.vaadin.pro.licensechecker.BuildType;
 import com.vaadin.pro.licensechecker.LicenseChecker;
@@ -81,9 +97,28 @@ public class CompileMojo
     @Parameter(property = "gwt.compiler.force", defaultValue = "false")
     private boolean force;
 
+    /**
+     * Ignore the java files of the client source folders whose classes are not reachable from client code when
+     * checking if GWT compilation is up-to-date, so that editing server side classes placed in a client package
+     * doesn't trigger a compilation. Java files that are not compiled yet are always taken into account.
+     * <p>
+     * Reachability is found from the compiled classes, the deferred binding rules of the modules and the JSNI methods.
+     * Client code depending on a class in ways that don't show there, such as reflection in a generator, may then be
+     * left out of date : use <code>-Dgwt.compiler.force=true</code> in that case.
+     * <p>
+     * Can be set from command line using '-Dgwt.compiler.clientChangesOnly=true'.
+     *
+     * @since 8.28
+     */
+    @Parameter(property = "gwt.compiler.clientChangesOnly", defaultValue = "false")
+    private boolean clientChangesOnly;
+
     /**
      * On GWT 1.6+, number of parallel processes used to compile GWT premutations. Defaults to
-     * platform available processors number.
+     * platform available processors number, divided by the number of threads of a parallel Maven build.
+     * <p>
+     * Concurrent forks of the build share the processors : a compilation may get less workers than configured when
+     * the other ones are in use.
      * 
      * <p>
      * Can be unset from command line using '-Dgwt.compiler.localWorkers=n'.
@@ -417,13 +452,161 @@ public class CompileMojo
     @Parameter(defaultValue = "${project.build.directory}/wscdn-widgetset")
     private File lastWidgetset;
 
+    /**
+     * Directory where the fingerprints of the compiled modules are stored. A module is only recompiled when the
+     * fingerprint of its inputs (module sources, classpath content, Vaadin version and compiler options) differs from
+     * the stored one.
+     *
+     * @since 8.28
+     */
+    @Parameter(defaultValue = "${project.build.directory}/gwt-fingerprints")
+    private File fingerprintDirectory;
+
+    /**
+     * Store compiled widgetsets in a cache shared by all the projects of the machine, and restore them instead of
+     * running the GWT compiler when a module with the same inputs fingerprint has already been compiled, whatever
+     * the branch or workspace.
+     * <p>
+     * Can be set from command line using '-Dgwt.compiler.cache=true'.
+     *
+     * @since 8.28
+     */
+    @Parameter(defaultValue = "false", property = "gwt.compiler.cache")
+    private boolean widgetsetCache;
+
+    /**
+     * Location of the shared widgetset cache.
+     *
+     * @since 8.28
+     */
+    @Parameter(defaultValue = "${user.home}/.m2/vaadin-widgetset-cache", property = "gwt.compiler.cacheDirectory")
+    private File widgetsetCacheDirectory;
+
+    /**
+     * Maximum size of the shared widgetset cache in megabytes. The least recently used widgetsets are removed when
+     * the cache grows larger.
+     *
+     * @since 8.28
+     */
+    @Parameter(defaultValue = "2048", property = "gwt.compiler.cacheMaxSize")
+    private int widgetsetCacheMaxSize;
+
+    /**
+     * Maximum number of modules compiled concurrently, each one in its own JVM. The default value compiles all the
+     * modules one after the other in a single JVM.
+     * <p>
+     * The local workers are shared between the concurrent compilations, as well as the heap when
+     * <code>heapBudget</code> is set.
+     * <p>
+     * Ignored with <code>daemon</code>, as the compiler daemon of a classpath runs one compilation at a time : the
+     * modules are then compiled one after the other by the daemon, with all the local workers.
+     * <p>
+     * Can be set from command line using '-Dgwt.compiler.moduleForks=n'.
+     *
+     * @since 8.28
+     */
+    @Parameter(defaultValue = "1", property = "gwt.compiler.moduleForks")
+    private int moduleForks;
+
+    /**
+     * Total heap in megabytes for concurrent module compilations : each JVM gets <code>-Xmx</code> set to its share
+     * of the budget, overriding the one of <code>extraJvmArgs</code>. When not set, each JVM uses
+     * <code>extraJvmArgs</code>.
+     * <p>
+     * Can be set from command line using '-Dgwt.compiler.heapBudget=n'.
+     *
+     * @since 8.28
+     */
+    @Parameter(property = "gwt.compiler.heapBudget")
+    private int heapBudget;
+
+    /**
+     * Size the local workers and the heap of the compiler JVM from the processors and memory available, taking the
+     * limits of the container (Linux cgroups) into account, and from the number of permutations of the modules
+     * estimated from their <code>user.agent</code>, <code>locale</code> and other deferred binding properties.
+     * <p>
+     * The compiler gets one worker per permutation, up to the number of processors, and <code>-Xmx</code> set to 512
+     * megabytes plus <code>permutationHeap</code> per worker, overriding the one of <code>extraJvmArgs</code>. Workers
+     * are removed until the heap fits in the memory available, that is <code>heapBudget</code> when set, else three
+     * quarters of the memory divided by the number of threads of a parallel Maven build.
+     * <p>
+     * Can be set from command line using '-Dgwt.compiler.adaptiveSizing=true'.
+     *
+     * @since 8.28
+     */
+    @Parameter(defaultValue = "false", property = "gwt.compiler.adaptiveSizing")
+    private boolean adaptiveSizing;
+
+    /**
+     * Heap in megabytes needed by a local worker to compile a permutation, used by <code>adaptiveSizing</code>.
+     * <p>
+     * Can be set from command line using '-Dgwt.compiler.permutationHeap=n'.
+     *
+     * @since 8.28
+     */
+    @Parameter(defaultValue = "512", property = "gwt.compiler.permutationHeap")
+    private int permutationHeap;
+
+    /**
+     * File where the timings of the last compilation are written as JSON : number of permutations, precompilation,
+     * permutations, compilation and linking durations of each module, parsed from the compiler output. The compiler
+     * must log at INFO level or finer.
+     * <p>
+     * Can be set from command line using '-Dgwt.compiler.metricsFile=...'.
+     *
+     * @since 8.28
+     */
+    @Parameter(defaultValue = "${project.build.directory}/gwt-compile-metrics.json",
+               property = "gwt.compiler.metricsFile")
+    private File metricsFile;
+
+    /**
+     * Also write the compilation timings in the Prometheus text format, next to <code>metricsFile</code> with a
+     * <code>.prom</code> extension, for instance to be collected by the textfile collector of the node exporter.
+     * <p>
+     * Can be set from command line using '-Dgwt.compiler.prometheusMetrics=true'.
+     *
+     * @since 8.28
+     */
+    @Parameter(defaultValue = "false", property = "gwt.compiler.prometheusMetrics")
+    private boolean prometheusMetrics;
+
+    /**
+     * Run the GWT compiler in a long-lived background JVM, reused by the next compilations with the same classpath and
+     * JVM arguments, instead of forking a new JVM each time. This saves the JVM warm-up and keeps the compiler caches
+     * in memory between builds.
+     * <p>
+     * Can be set from command line using '-Dgwt.compiler.daemon=true'.
+     *
+     * @since 8.28
+     */
+    @Parameter(defaultValue = "false", property = "gwt.compiler.daemon")
+    private boolean daemon;
+
+    /**
+     * Time in seconds after which an unused compiler daemon stops.
+     *
+     * @since 8.28
+     */
+    @Parameter(defaultValue = "10800", property = "gwt.compiler.daemonIdleTimeOut")
+    private int daemonIdleTimeOut;
+
+    /**
+     * Folder holding the state (port, log) of the compiler daemons.
+     *
+     * @since 8.28
+     */
+    @Parameter(defaultValue = "${java.io.tmpdir}/vaadin-gwt-daemon")
+    private File daemonDirectory;
+
+    private String vaadinVersion;
 
     @Override
     public void doExecute( )
         throws MojoExecutionException, MojoFailureException
     {
         // Figure out Vaadin version
-        String vaadinVersion = null;
+        vaadinVersion = null;
         Set<Artifact> artifacts = getProject().getArtifacts();
         for (Artifact artifact : artifacts) {
             // Store the vaadin version
@@ -469,6 +652,32 @@ public class CompileMojo
         }
     }
 
+    /**
+     * @return <code>true</code> if widgetsets are compiled by this mojo, rather than skipped or fetched from the CDN
+     * @since 8.28
+     */
+    protected boolean isCompiling()
+    {
+        return !skip && !"pom".equals( getProject().getPackaging() ) && !"cdn".equals( widgetsetMode )
+            && !"fetch".equals( widgetsetMode );
+    }
+
+    /**
+     * @since 8.28
+     */
+    protected boolean isDaemon()
+    {
+        return daemon;
+    }
+
+    /**
+     * @since 8.28
+     */
+    protected boolean isIncremental()
+    {
+        return incremental;
+    }
+
     @Override
     protected String getExtraJvmArgs()
     {
@@ -485,10 +694,274 @@ public class CompileMojo
     private void compile( String[] modules )
         throws MojoExecutionException
     {
-        boolean upToDate = true;
+        File extraDirectory = getExtraDirectory();
+        JavaCommand cmd = createCompilerCommand( getLocalWorkers(), extraDirectory );
+
+        WidgetsetCache cache = null;
+        if ( widgetsetCache )
+        {
+            cache = new WidgetsetCache( widgetsetCacheDirectory, widgetsetCacheMaxSize * 1024L * 1024L, getLog() );
+        }
+
+        Map<String, GwtModule> compiled = new LinkedHashMap<String, GwtModule>();
+        Map<String, String> fingerprints = new LinkedHashMap<String, String>();
+        Map<String, Map<String, String>> inputs = new HashMap<String, Map<String, String>>();
+        FileDigestCache digests = new FileDigestCache( new File( fingerprintDirectory, "digests.properties" ) );
+        ClientClasses clientClasses = null;
+        if ( clientChangesOnly && !force )
+        {
+            clientClasses = new ClientClasses( new File( getProject().getBuild().getOutputDirectory() ),
+                                               cmd.getClasspath(), getLog() );
+        }
+        BuildTrace.Span check = getBuildTrace().start( "compile", "up-to-date check" );
+        try
+        {
+            String commandFingerprint = getCommandFingerprint( cmd, digests );
+            for ( String target : modules )
+            {
+                GwtModule gwtModule = readModule( target );
+                if ( gwtModule.getEntryPoints().size() == 0 )
+                {
+                    getLog().info( gwtModule.getName() + " has no EntryPoint - compilation skipped" );
+                    // No entry-point, this is an utility module : compiling this one will fail
+                    // with '[ERROR] Module has no entry points defined'
+                    continue;
+                }
+                CompileFingerprint moduleFingerprint =
+                    getFingerprint( gwtModule, commandFingerprint, digests, clientClasses );
+                Map<String, String> moduleInputs = moduleFingerprint.getInputs();
+                String fingerprint = moduleFingerprint.getValue();
+                if ( !compilationRequired( gwtModule, getOutputDirectory(), fingerprint, moduleInputs ) )
+                {
+                    continue;
+                }
+                fingerprints.put( target, fingerprint );
+                inputs.put( target, moduleInputs );
+                if ( cache != null && !force && cache.restore( fingerprint, getModuleOutput( gwtModule ),
+                                                               getModuleExtra( gwtModule, extraDirectory ) ) )
+                {
+                    getLog().info( target + " restored from widgetset cache. GWT compilation skipped" );
+                    continue;
+                }
+                compiled.put( target, gwtModule );
+            }
+        }
+        catch ( GwtModuleReaderException e )
+        {
+            throw new MojoExecutionException( e.getMessage(), e );
+        }
+        catch ( IOException e )
+        {
+            throw new MojoExecutionException( "Failed to compute fingerprint of GWT compilation inputs", e );
+        }
+        finally
+        {
+            check.end();
+            if ( clientClasses != null )
+            {
+                clientClasses.close();
+            }
+            try
+            {
+                digests.save();
+            }
+            catch ( IOException e )
+            {
+                getLog().debug( "Failed to store digests of GWT compilation inputs : " + e.getMessage() );
+            }
+        }
+        if ( !compiled.isEmpty() )
+        {
+            List<String> failures = new ArrayList<String>();
+            int forks = Math.min( Math.max( 1, moduleForks ), compiled.size() );
+            if ( forks > 1 && isDaemon() )
+            {
+                // the daemon of a classpath runs one compilation at a time, forks would only split its workers
+                getLog().warn( "The compiler daemon runs one compilation at a time, ignoring moduleForks="
+                    + moduleForks + " : modules are compiled in a single daemon request" );
+                forks = 1;
+            }
+            if ( forks == 1 )
+            {
+                for ( String target : compiled.keySet() )
+                {
+                    cmd.arg( target );
+                }
+                if ( adaptiveSizing )
+                {
+                    applySizing( cmd, compiled.values(), 1 );
+                }
+                CompilerOutputParser parser = new CompilerOutputParser( cmd.getOut(), cmd.getArgs() );
+                cmd.setOut( parser );
+                try
+                {
+                    cmd.execute();
+                }
+                catch ( JavaCommandException e )
+                {
+                    throw new MojoExecutionException( e.getMessage(), e );
+                }
+                finally
+                {
+                    writeMetrics( Collections.singletonList( parser ) );
+                }
+            }
+            else
+            {
+                failures = compileInParallel( compiled, forks, extraDirectory );
+            }
+            for ( String failure : failures )
+            {
+                compiled.remove( failure );
+                fingerprints.remove( failure );
+            }
+            if ( cache != null )
+            {
+                for ( Map.Entry<String, GwtModule> entry : compiled.entrySet() )
+                {
+                    cache.store( fingerprints.get( entry.getKey() ), getModuleOutput( entry.getValue() ),
+                                 getModuleExtra( entry.getValue(), extraDirectory ) );
+                }
+            }
+            storeFingerprints( fingerprints, inputs );
+            if ( !failures.isEmpty() )
+            {
+                throw new MojoExecutionException( "GWT compilation failed for modules " + failures );
+            }
+        }
+        else
+        {
+            storeFingerprints( fingerprints, inputs );
+        }
+    }
+
+    /**
+     * Compile modules in concurrent forks. The local workers and the heap budget are shared between the forks.
+     *
+     * @return the modules that failed to compile
+     */
+    private List<String> compileInParallel( Map<String, GwtModule> modules, int forks, File extraDirectory )
+        throws MojoExecutionException
+    {
+        int workers = Math.max( 1, getLocalWorkers() / forks );
+        String heap = heapBudget > 0 ? "-Xmx" + ( heapBudget / forks ) + "m" : null;
+        if ( !adaptiveSizing )
+        {
+            getLog().info( "Compiling " + modules.size() + " modules in " + forks + " parallel forks with " + workers
+                + " local workers" + ( heap != null ? " and " + heap : "" ) + " each" );
+        }
+
+        // commands are created here as dependency resolution is not thread safe
+        Map<String, JavaCommand> commands = new LinkedHashMap<String, JavaCommand>();
+        List<CompilerOutputParser> parsers = new ArrayList<CompilerOutputParser>();
+        for ( Map.Entry<String, GwtModule> entry : modules.entrySet() )
+        {
+            String module = entry.getKey();
+            JavaCommand command = createCompilerCommand( workers, extraDirectory ).arg( module );
+            if ( adaptiveSizing )
+            {
+                applySizing( command, Collections.singleton( entry.getValue() ), forks );
+            }
+            else if ( heap != null )
+            {
+                setHeap( command, heap );
+            }
+            final String prefix = "[" + module + "] ";
+            CompilerOutputParser parser = new CompilerOutputParser( new StreamConsumer()
+            {
+                public void consumeLine( String line )
+                {
+                    getLog().info( prefix + line );
+                }
+            }, command.getArgs() );
+            parsers.add( parser );
+            command.setOut( parser );
+            command.setErr( new StreamConsumer()
+            {
+                public void consumeLine( String line )
+                {
+                    getLog().error( prefix + line );
+                }
+            } );
+            commands.put( module, command );
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool( forks );
+        try
+        {
+            Map<String, Future<Void>> results = new LinkedHashMap<String, Future<Void>>();
+            for ( Map.Entry<String, JavaCommand> entry : commands.entrySet() )
+            {
+                final JavaCommand command = entry.getValue();
+                results.put( entry.getKey(), executor.submit( new Callable<Void>()
+                {
+                    public Void call()
+                        throws JavaCommandException
+                    {
+                        command.execute();
+                        return null;
+                    }
+                } ) );
+            }
+
+            List<String> failures = new ArrayList<String>();
+            for ( Map.Entry<String, Future<Void>> result : results.entrySet() )
+            {
+                try
+                {
+                    result.getValue().get();
+                }
+                catch ( ExecutionException e )
+                {
+                    getLog().error( "GWT compilation of " + result.getKey() + " failed : " + e.getCause().getMessage() );
+                    failures.add( result.getKey() );
+                }
+            }
+            return failures;
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException( "GWT compilation interrupted", e );
+        }
+        finally
+        {
+            executor.shutdownNow();
+            writeMetrics( parsers );
+        }
+    }
+
+    private File getExtraDirectory()
+    {
+        if ( extraParam || compileReport || ( saveSource && saveSourceOutput == null ) )
+        {
+            getLog().debug( "create extra directory " );
+            if ( !extra.exists() )
+            {
+                extra.mkdirs();
+            }
+            return extra;
+        }
+        getLog().debug( "NOT create extra directory " );
+        return null;
+    }
 
+    /**
+     * Create the compiler command line, without the modules to compile.
+     *
+     * @param workers number of local workers used to compile permutations
+     * @param extraDirectory directory for the -extra output, <code>null</code> if not used
+     */
+    private JavaCommand createCompilerCommand( int workers, File extraDirectory )
+        throws MojoExecutionException
+    {
         JavaCommand cmd = createJavaCommand()
-            .setMainClass( "com.google.gwt.dev.Compiler" );
+            .setMainClass( "com.google.gwt.dev.Compiler" )
+            .setWorkersArgument( "-localWorkers" );
+        if ( isDaemon() )
+        {
+            cmd.setDaemon( new CompilerDaemon( daemonDirectory, daemonIdleTimeOut, getLog() ) );
+        }
         if ( gwtSdkFirstInClasspath )
         {
             cmd.addToClasspath( getGwtUserJar() )
@@ -513,7 +986,7 @@ public class CompileMojo
         cmd.arg( "-logLevel", getLogLevel() )
             .arg( "-style", getStyle() )
             .arg( "-war", getOutputDirectory().getAbsolutePath() )
-            .arg( "-localWorkers", String.valueOf( getLocalWorkers() ) )
+            .arg( "-localWorkers", String.valueOf( workers ) )
             // optional advanced arguments
             .arg( checkAssertions, "-checkAssertions" )
             .arg( draftCompile, "-draftCompile" )
@@ -539,7 +1012,7 @@ public class CompileMojo
             .arg( incrementalCompileWarnings, "-incrementalCompileWarnings" )
             .arg( overlappingSourceWarnings, "-overlappingSourceWarnings")
             .arg( enableJsonSoyc, "-XenableJsonSoyc" )
-            .arg( incremental, "-incremental" )
+            .arg( isIncremental(), "-incremental" )
         ;
 
         if ( jsInteropMode != null && jsInteropMode.length() > 0 && !jsInteropMode.equals( "NONE" ) )
@@ -571,18 +1044,9 @@ public class CompileMojo
             cmd.arg( "-optimize" ).arg( Integer.toString( optimizationLevel ) );
         }
 
-        if ( extraParam || compileReport || ( saveSource && saveSourceOutput == null ) )
-        {
-            getLog().debug( "create extra directory " );
-            if ( !extra.exists() )
-            {
-                extra.mkdirs();
-            }
-            cmd.arg( "-extra" ).arg( extra.getAbsolutePath() );
-        }
-        else
+        if ( extraDirectory != null )
         {
-            getLog().debug( "NOT create extra directory " );
+            cmd.arg( "-extra" ).arg( extraDirectory.getAbsolutePath() );
         }
 
         addCompileSourceArtifacts( cmd );
@@ -595,143 +1059,386 @@ public class CompileMojo
             cmd.arg( "-workDir" ).arg( String.valueOf( workDir ) );
         }
 
-        for ( String target : modules )
+        return cmd;
+    }
+
+    private File getModuleOutput( GwtModule gwtModule )
+    {
+        return new File( getOutputDirectory(), gwtModule.getPath() );
+    }
+
+    private File getModuleExtra( GwtModule gwtModule, File extraDirectory )
+    {
+        return extraDirectory == null ? null : new File( extraDirectory, gwtModule.getPath() );
+    }
+
+    private int getLocalWorkers()
+    {
+        if ( localWorkers > 0 )
         {
-            if ( !compilationRequired( target, getOutputDirectory() ) )
-            {
-                continue;
-            }
-            cmd.arg( target );
-            upToDate = false;
+            return localWorkers;
         }
-        if ( !upToDate )
+        // leave room for the other modules of a parallel build
+        return Math.max( 1, ForkBudget.getInstance().getTotalWorkers() / getBuildThreads() );
+    }
+
+    private int getBuildThreads()
+    {
+        int threads = getSession() != null ? getSession().getRequest().getDegreeOfConcurrency() : 1;
+        return Math.max( 1, threads );
+    }
+
+    /**
+     * Set the local workers and the heap of a compiler command from the permutations of the modules it compiles.
+     *
+     * @param cmd compiler command
+     * @param modules modules compiled by the command
+     * @param forks number of compiler commands run concurrently, sharing the processors and memory
+     */
+    private void applySizing( JavaCommand cmd, Collection<GwtModule> modules, int forks )
+        throws MojoExecutionException
+    {
+        int permutations = 1;
+        for ( GwtModule module : modules )
         {
             try
             {
-                cmd.execute();
+                // modules are compiled one after the other, the largest one sets the size
+                permutations = Math.max( permutations, module.estimatePermutations() );
             }
-            catch ( JavaCommandException e )
+            catch ( GwtModuleReaderException e )
             {
                 throw new MojoExecutionException( e.getMessage(), e );
             }
         }
+        long memory = heapBudget > 0 ? heapBudget : ForkBudget.getInstance().getTotalHeap() / getBuildThreads();
+        int processors = Math.max( 1, getLocalWorkers() / forks );
+        AdaptiveSizing sizing = AdaptiveSizing.compute( processors, memory / forks, permutations, permutationHeap );
+        int index = cmd.getArgs().indexOf( "-localWorkers" );
+        cmd.getArgs().set( index + 1, String.valueOf( sizing.getWorkers() ) );
+        setHeap( cmd, "-Xmx" + sizing.getHeap() + "m" );
+        getLog().info( "Compiling with " + sizing.getWorkers() + " local workers and -Xmx" + sizing.getHeap() + "m for "
+            + permutations + " estimated permutations, " + processors + " processors and " + memory / forks
+            + " MB available" );
     }
 
-    private int getLocalWorkers()
+    /**
+     * Write the timings parsed from the output of the compilers.
+     */
+    private void writeMetrics( List<CompilerOutputParser> parsers )
     {
-        if ( localWorkers > 0 )
+        CompileMetrics metrics = new CompileMetrics( getProject().getArtifactId() );
+        for ( CompilerOutputParser parser : parsers )
         {
-            return localWorkers;
+            metrics.add( parser.getModules() );
+        }
+        if ( metrics.getModules().isEmpty() )
+        {
+            getLog().debug( "No compilation timings found in the compiler output" );
+            return;
+        }
+        try
+        {
+            metrics.writeJson( metricsFile );
+            if ( prometheusMetrics )
+            {
+                String name = metricsFile.getName();
+                int extension = name.lastIndexOf( '.' );
+                metrics.writePrometheus( new File( metricsFile.getParentFile(),
+                                                   ( extension > 0 ? name.substring( 0, extension ) : name )
+                                                       + ".prom" ) );
+            }
+        }
+        catch ( IOException e )
+        {
+            getLog().warn( "Failed to write GWT compilation metrics : " + e.getMessage() );
         }
-        return Runtime.getRuntime().availableProcessors();
+    }
+
+    private static void setHeap( JavaCommand cmd, String heap )
+    {
+        Iterator<String> jvmArgs = cmd.getJvmArgs().iterator();
+        while ( jvmArgs.hasNext() )
+        {
+            if ( jvmArgs.next().startsWith( "-Xmx" ) )
+            {
+                jvmArgs.remove();
+            }
+        }
+        cmd.getJvmArgs().add( heap );
     }
 
     /**
-     * Try to find out, if there are stale sources. If aren't some, we don't have to compile... ...this heuristic
-     * doesn't take into account, that there could be updated dependencies. But for this case, as 'clean compile' could
-     * be executed which would force a compilation.
+     * Check if a module needs to be compiled : the compiled output must exist and the fingerprint of the compilation
+     * inputs must match the one stored by the last successful compilation.
      *
-     * @param module Name of the GWT module to compile
+     * @param gwtModule the GWT module to compile
      * @param output Output path
-     * @return true if compilation is required (i.e. stale sources are found)
-     * @throws MojoExecutionException When sources scanning fails
-     * @author Alexander Gordt
+     * @param fingerprint fingerprint of the current compilation inputs of the module
+     * @return true if compilation is required
      */
-    private boolean compilationRequired( String module, File output )
-        throws MojoExecutionException
+    private boolean compilationRequired( GwtModule gwtModule, File output, String fingerprint,
+                                         Map<String, String> inputs )
     {
-        getLog().debug( "**Checking if compilation is required for " + module );
-        try
+        getLog().debug( "**Checking if compilation is required for " + gwtModule.getName() );
+        if ( force )
         {
+            return true;
+        }
+        getLog().debug( "Compilation not forced" );
 
-                GwtModule gwtModule = readModule( module );
-            if ( gwtModule.getEntryPoints().size() == 0 )
+        String modulePath = gwtModule.getPath();
+        File outputTargetFile = new File( output, modulePath + "/" + modulePath + ".nocache.js" );
+        // Require compilation if no js file present in target.
+        if ( !outputTargetFile.exists() )
+        {
+            return true;
+        }
+        getLog().debug( "Output file exists" );
+
+        String previous = CompileFingerprint.read( getFingerprintFile( gwtModule.getName() ) );
+        if ( !fingerprint.equals( previous ) )
+        {
+            getLog().debug( "Compilation inputs changed since last compilation (" + previous + " -> " + fingerprint
+                + ")" );
+            logChangedInputs( gwtModule, inputs );
+            return true;
+        }
+        getLog().info( gwtModule.getName() + " is up to date. GWT compilation skipped" );
+        return false;
+    }
+
+    private void logChangedInputs( GwtModule gwtModule, Map<String, String> inputs )
+    {
+        Map<String, String> previous = CompileFingerprint.readInputs( getInputsFile( gwtModule.getName() ) );
+        if ( previous.isEmpty() )
+        {
+            return;
+        }
+        Set<String> changes = new TreeSet<String>();
+        for ( Map.Entry<String, String> input : inputs.entrySet() )
+        {
+            if ( !input.getValue().equals( previous.get( input.getKey() ) ) )
             {
-                getLog().info( gwtModule.getName() + " has no EntryPoint - compilation skipped" );
-                // No entry-point, this is an utility module : compiling this one will fail
-                // with '[ERROR] Module has no entry points defined'
-                return false;
+                changes.add( input.getKey() );
             }
-            getLog().debug( "Module has an entrypoint" );
-
-            if ( force )
+        }
+        for ( String name : previous.keySet() )
+        {
+            if ( !inputs.containsKey( name ) )
             {
-                return true;
+                changes.add( name );
             }
-            getLog().debug( "Compilation not forced");
-            
-            String modulePath = gwtModule.getPath();
+        }
+        if ( !changes.isEmpty() )
+        {
+            getLog().info( gwtModule.getName() + " sources changed since last compilation : " + changes );
+        }
+    }
+
+    /**
+     * Compute the fingerprint of the inputs shared by all the modules compiled by a command : Vaadin version, compiler
+     * options and classpath content. Project source folders are not part of it, as they are handled per module.
+     */
+    private String getCommandFingerprint( JavaCommand cmd, FileDigestCache digests )
+        throws IOException
+    {
+        String basedir = getProject().getBasedir().getAbsolutePath();
+        CompileFingerprint fingerprint = new CompileFingerprint( digests )
+            .add( "vaadin", vaadinVersion )
+            .add( "main", cmd.getMainClass() );
 
-            String outputTarget = modulePath + "/" + modulePath + ".nocache.js";
-            File outputTargetFile = new File( output, outputTarget );
-            // Require compilation if no js file present in target.
-            if ( !outputTargetFile.exists() )
+        // the number of workers and the working directory don't change the compiler output
+        for ( int i = 0; i < cmd.getArgs().size(); i++ )
+        {
+            String arg = cmd.getArgs().get( i );
+            if ( "-localWorkers".equals( arg ) || "-workDir".equals( arg ) )
             {
-                return true;
+                i++;
+                continue;
             }
-            getLog().debug( "Output file exists");
-            
-            File moduleFile = gwtModule.getSourceFile();
-            if(moduleFile == null) {
-                return true; //the module was read from something like an InputStream; always recompile this because we can't make any other choice
+            fingerprint.add( "arg", arg.replace( basedir, "${basedir}" ) );
+        }
+        for ( String jvmArg : cmd.getJvmArgs() )
+        {
+            if ( jvmArg.startsWith( "-D" ) )
+            {
+                fingerprint.add( "jvmArg", jvmArg.replace( basedir, "${basedir}" ) );
             }
-            getLog().debug( "There is a module source file (not an input stream");
-            
-            //If input is newer than target, recompile
-            if(moduleFile.lastModified() > outputTargetFile.lastModified()) 
+        }
+        Map<Object, Object> properties = new TreeMap<Object, Object>( cmd.getSystemProperties() );
+        for ( Map.Entry<Object, Object> property : properties.entrySet() )
+        {
+            String key = String.valueOf( property.getKey() );
+            if ( !key.endsWith( DEVELOPER_LICENSE_SUFFIX ) )
             {
-                getLog().debug( "Module file has been modified since the output file was created; recompiling" );
-                return true;
+                fingerprint.add( "property", key + "=" + property.getValue() );
             }
-            getLog().debug( "The module XML hasn't been updated");
+        }
 
-            // js file already exists, but may not be up-to-date with project source files
-            SingleTargetSourceMapping singleTargetMapping = new SingleTargetSourceMapping( ".java", outputTarget );
-            StaleSourceScanner scanner = new StaleSourceScanner();
-            scanner.addSourceMapping( singleTargetMapping );
+        Set<File> sourceDirectories = getSourceDirectories();
+        File classesDirectory = new File( getProject().getBuild().getOutputDirectory() );
+        for ( File element : cmd.getClasspath() )
+        {
+            if ( element.isFile() )
+            {
+                fingerprint.addJar( element );
+            }
+            else if ( element.isDirectory() && !sourceDirectories.contains( element )
+                && !element.equals( classesDirectory ) )
+            {
+                // typically a reactor module, that may contain GWT library modules
+                fingerprint.addDirectory( "classpath", element );
+            }
+        }
+        return fingerprint.getValue();
+    }
 
-            SingleTargetSourceMapping uiBinderMapping = new SingleTargetSourceMapping( ".ui.xml", outputTarget );
-            scanner.addSourceMapping( uiBinderMapping );
+    /**
+     * Compute the fingerprint of the inputs of a module : the module descriptor and the source, super-source and
+     * public folders of the module and its inherited modules found in the project sources and resources, or in the
+     * classpath folder holding their descriptor. Modules from the classpath jars are covered by the command
+     * fingerprint.
+     *
+     * @return the fingerprint, whose inputs are the exact set of files the module depends on
+     */
+    private CompileFingerprint getFingerprint( GwtModule gwtModule, String commandFingerprint,
+                                               FileDigestCache digests, ClientClasses clientClasses )
+        throws IOException, GwtModuleReaderException
+    {
+        CompileFingerprint fingerprint = new CompileFingerprint( digests ).add( "command", commandFingerprint );
+        List<String> names = new ArrayList<String>();
+        List<File> directories = new ArrayList<File>();
+        Map<File, File> clientSourceDirectories = new LinkedHashMap<File, File>();
+        Set<GwtModule> modules = new LinkedHashSet<GwtModule>();
+        modules.add( gwtModule );
+        modules.addAll( gwtModule.getInherits() );
+        Set<File> sourceDirectories = getSourceDirectories();
+        for ( GwtModule module : modules )
+        {
+            if ( module.getSourceFile() == null )
+            {
+                continue;
+            }
+            fingerprint.addFile( module.getName(), module.getSourceFile() );
 
-            Collection<File> compileSourceRoots = new HashSet<File>();
-            for (String sourceRoot : getProject().getCompileSourceRoots()) {
-                for (String sourcePackage : gwtModule.getSources()) {
-                    String packagePath = gwtModule.getPackage().replace( '.', File.separatorChar );
-                    File sourceDirectory = new File (sourceRoot + File.separatorChar + packagePath + File.separator + sourcePackage);
-                    if(sourceDirectory.exists()) {
-                        getLog().debug(" Looking in a source directory "+sourceDirectory.getAbsolutePath() + " for possible changes");
-                        compileSourceRoots.add(sourceDirectory);                                        
-                    }
-                }
+            Set<String> paths = new LinkedHashSet<String>();
+            Set<String> sources = new HashSet<String>();
+            for ( String source : module.getSources() )
+            {
+                paths.add( source );
+                sources.add( source );
             }
+            for ( String superSource : module.getSuperSources() )
+            {
+                paths.add( superSource );
+            }
+            paths.add( module.getPublic() );
 
-            for ( File sourceRoot : compileSourceRoots )
+            String packagePath = module.getPackage().replace( '.', File.separatorChar );
+            Set<File> roots = new LinkedHashSet<File>( sourceDirectories );
+            File moduleRoot = getModuleRoot( module );
+            if ( moduleRoot != null )
             {
-                if ( !sourceRoot.isDirectory() )
-                {
-                    continue;
-                }
-                try
+                // typically an inherited module from another module of the reactor
+                roots.add( moduleRoot );
+            }
+            for ( File root : roots )
+            {
+                for ( String path : paths )
                 {
-                    // TODO only look into client side code!
-                    if ( !scanner.getIncludedSources( sourceRoot, output ).isEmpty() )
+                    if ( path != null )
                     {
-                        getLog().debug( "found stale source in " + sourceRoot + " compared with " + output );
-                        return true;
+                        File directory = new File( new File( root, packagePath ), path );
+                        names.add( module.getName() + ":" + path );
+                        directories.add( directory );
+                        if ( sources.contains( path ) )
+                        {
+                            clientSourceDirectories.put( directory, root );
+                        }
                     }
                 }
-                catch ( InclusionScanException e )
+            }
+        }
+
+        FileFilter filter = null;
+        if ( clientClasses != null )
+        {
+            Set<String> roots = new LinkedHashSet<String>( gwtModule.getEntryPoints() );
+            roots.addAll( gwtModule.getBindingClasses() );
+            final Set<File> serverOnly = clientClasses.getServerOnlySources( clientSourceDirectories, roots );
+            filter = new FileFilter()
+            {
+                public boolean accept( File file )
                 {
-                    throw new MojoExecutionException( "Error scanning source root: \'" + sourceRoot + "\' "
-                        + "for stale files to recompile.", e );
+                    return !serverOnly.contains( file );
                 }
+            };
+        }
+        for ( int i = 0; i < directories.size(); i++ )
+        {
+            fingerprint.addDirectory( names.get( i ), directories.get( i ), filter );
+        }
+        return fingerprint;
+    }
+
+    /**
+     * @return the folder holding the package of a module read from a file
+     */
+    private static File getModuleRoot( GwtModule module )
+    {
+        File root = module.getSourceFile().getAbsoluteFile().getParentFile();
+        if ( !module.getPackage().isEmpty() )
+        {
+            for ( int i = module.getPackage().split( "\\." ).length; i > 0 && root != null; i-- )
+            {
+                root = root.getParentFile();
             }
-            getLog().info( module + " is up to date. GWT compilation skipped" );
-            return false;
         }
-        catch ( GwtModuleReaderException e )
+        return root;
+    }
+
+    private Set<File> getSourceDirectories()
+    {
+        Set<File> directories = new LinkedHashSet<File>();
+        for ( String sourceRoot : getProject().getCompileSourceRoots() )
         {
-            throw new MojoExecutionException( e.getMessage(), e );
+            directories.add( new File( sourceRoot ) );
+        }
+        for ( Resource resource : getProject().getResources() )
+        {
+            directories.add( new File( resource.getDirectory() ) );
+        }
+        return directories;
+    }
+
+    private File getFingerprintFile( String module )
+    {
+        return new File( fingerprintDirectory, module + ".sha1" );
+    }
+
+    /**
+     * @return the file listing the inputs of the last compilation of a module
+     */
+    private File getInputsFile( String module )
+    {
+        return new File( fingerprintDirectory, module + ".inputs" );
+    }
+
+    private void storeFingerprints( Map<String, String> fingerprints, Map<String, Map<String, String>> inputs )
+    {
+        for ( Map.Entry<String, String> entry : fingerprints.entrySet() )
+        {
+            try
+            {
+                CompileFingerprint.write( getFingerprintFile( entry.getKey() ), entry.getValue() );
+                CompileFingerprint.writeInputs( getInputsFile( entry.getKey() ), inputs.get( entry.getKey() ) );
+            }
+            catch ( IOException e )
+            {
+                // next build will just recompile the module
+                getLog().warn( "Failed to store fingerprint of module " + entry.getKey() + " : " + e.getMessage() );
+            }
         }
     }
 
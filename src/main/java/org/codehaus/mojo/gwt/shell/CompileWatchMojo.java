@@ -0,0 +1,246 @@
+package org.codehaus.mojo.gwt.shell;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.maven.model.Resource;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Execute;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+
+/**
+ * Compiles the GWT modules, then compiles them again into the same output folder each time the project sources or
+ * resources change, until the build is interrupted.
+ * <p>
+ * The compiler runs in a {@link CompilerDaemon} worker with <code>-incremental</code>, so that recompilations reuse a
+ * warm JVM and the units compiled before. Unlike Super Dev Mode, the output is the optimized production widgetset.
+ * The compiler daemon needs Java 23 or older to trap <code>System.exit()</code> : on newer JVMs every compilation
+ * forks a new JVM, so that recompilations are as slow as the first one.
+ * <p>
+ * The goal first runs the lifecycle up to <code>process-classes</code>, including the goals bound to it, so that the
+ * classes are compiled. A <code>compile</code> goal bound to these phases compiles the widgetset once before watching.
+ *
+ * @since 8.28
+ */
+@Mojo(name = "compile-watch", requiresDirectInvocation = true, requiresDependencyResolution = ResolutionScope.COMPILE)
+@Execute(phase = LifecyclePhase.PROCESS_CLASSES)
+public class CompileWatchMojo
+    extends CompileMojo
+{
+    /**
+     * Time in milliseconds without further changes after which changed sources are compiled, so that a burst of
+     * changes (saving all files, switching branches) triggers a single compilation.
+     * <p>
+     * Can be set from command line using '-Dgwt.watch.delay=...'.
+     */
+    @Parameter(defaultValue = "500", property = "gwt.watch.delay")
+    private int watchDelay;
+
+    @Override
+    protected boolean isDaemon()
+    {
+        return true;
+    }
+
+    @Override
+    protected boolean isIncremental()
+    {
+        return true;
+    }
+
+    @Override
+    public void doExecute()
+        throws MojoExecutionException, MojoFailureException
+    {
+        warnIfDaemonUnsupported();
+        compileAndLog();
+        if ( !isCompiling() )
+        {
+            return;
+        }
+
+        Set<File> roots = new LinkedHashSet<File>();
+        for ( String sourceRoot : getProject().getCompileSourceRoots() )
+        {
+            roots.add( new File( sourceRoot ) );
+        }
+        for ( Resource resource : getProject().getResources() )
+        {
+            roots.add( new File( resource.getDirectory() ) );
+        }
+
+        try
+        {
+            WatchService watcher = FileSystems.getDefault().newWatchService();
+            try
+            {
+                Map<WatchKey, Path> keys = new HashMap<WatchKey, Path>();
+                for ( File root : roots )
+                {
+                    if ( root.isDirectory() )
+                    {
+                        register( watcher, root.toPath(), keys );
+                    }
+                }
+                while ( true )
+                {
+                    getLog().info( "Waiting for changes in " + roots + " (Ctrl+C to stop)" );
+                    Set<Path> changes = new LinkedHashSet<Path>();
+                    WatchKey key = watcher.take();
+                    // collect the changes until none happens during the delay
+                    while ( key != null )
+                    {
+                        collectChanges( watcher, key, keys, changes );
+                        key = watcher.poll( watchDelay, TimeUnit.MILLISECONDS );
+                    }
+                    if ( !changes.isEmpty() )
+                    {
+                        getLog().info( changes.size() + " file(s) changed : " + changes );
+                        compileAndLog();
+                    }
+                }
+            }
+            finally
+            {
+                watcher.close();
+            }
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+        }
+        catch ( ClosedWatchServiceException e )
+        {
+            // stopped
+        }
+        catch ( IOException e )
+        {
+            throw new MojoExecutionException( "Failed to watch " + roots, e );
+        }
+    }
+
+    private void warnIfDaemonUnsupported()
+        throws MojoExecutionException
+    {
+        String java;
+        try
+        {
+            java = createJavaCommand().getJavaCommand();
+        }
+        catch ( JavaCommandException e )
+        {
+            throw new MojoExecutionException( e.getMessage(), e );
+        }
+        if ( !CompilerDaemon.isSupported( JavaCommand.getJavaVersion( java ) ) )
+        {
+            getLog().warn( "Compiler daemon is not supported by " + java
+                + ", each change will be compiled in a new JVM without reusing the previous compilation."
+                + " Use a Java 23 or older jvm to recompile faster" );
+        }
+    }
+
+    /**
+     * Compile the modules, reporting failures without stopping the watch.
+     */
+    private void compileAndLog()
+        throws MojoExecutionException, MojoFailureException
+    {
+        long start = System.currentTimeMillis();
+        try
+        {
+            super.doExecute();
+            getLog().info( "GWT compilation done in " + ( System.currentTimeMillis() - start ) / 1000.0 + " s" );
+        }
+        catch ( MojoExecutionException e )
+        {
+            if ( !isCompiling() )
+            {
+                throw e;
+            }
+            getLog().error( "GWT compilation failed after " + ( System.currentTimeMillis() - start ) / 1000.0
+                + " s : " + e.getMessage() );
+        }
+    }
+
+    private void collectChanges( WatchService watcher, WatchKey key, Map<WatchKey, Path> keys, Set<Path> changes )
+        throws IOException
+    {
+        Path directory = keys.get( key );
+        for ( WatchEvent<?> event : key.pollEvents() )
+        {
+            if ( event.kind() == StandardWatchEventKinds.OVERFLOW || directory == null )
+            {
+                changes.add( directory != null ? directory : new File( "." ).toPath() );
+                continue;
+            }
+            Path path = directory.resolve( (Path) event.context() );
+            changes.add( path );
+            if ( event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory( path ) )
+            {
+                register( watcher, path, keys );
+            }
+        }
+        if ( !key.reset() )
+        {
+            // the directory has been removed
+            keys.remove( key );
+        }
+    }
+
+    private static void register( final WatchService watcher, Path root, final Map<WatchKey, Path> keys )
+        throws IOException
+    {
+        Files.walkFileTree( root, new SimpleFileVisitor<Path>()
+        {
+            @Override
+            public FileVisitResult preVisitDirectory( Path dir, BasicFileAttributes attrs )
+                throws IOException
+            {
+                WatchKey key = dir.register( watcher, StandardWatchEventKinds.ENTRY_CREATE,
+                                             StandardWatchEventKinds.ENTRY_DELETE,
+                                             StandardWatchEventKinds.ENTRY_MODIFY );
+                keys.put( key, dir );
+                return FileVisitResult.CONTINUE;
+            }
+        } );
+    }
+}
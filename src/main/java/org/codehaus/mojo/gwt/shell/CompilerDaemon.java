@@ -0,0 +1,375 @@
+package org.codehaus.mojo.gwt.shell;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URISyntaxException;
+import java.nio.channels.FileLock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.plugin.logging.Log;
+import org.codehaus.plexus.util.StringUtils;
+import org.codehaus.plexus.util.cli.StreamConsumer;
+
+/**
+ * Client side of the {@link CompilerWorker} : runs a main class in a long-lived background JVM instead of a fresh
+ * fork.
+ * <p>
+ * Workers are keyed by the java executable, the JVM arguments and the classpath (including the size and date of jars
+ * and the date of the newest class of classpath folders, as loaded classes are never reloaded by a worker). A worker
+ * is started on first use, checked with a ping before each request and replaced if it doesn't answer. It stops by
+ * itself after the idle time-out.
+ *
+ * @since 8.28
+ */
+public class CompilerDaemon
+{
+    private static final String PORT_FILE = "worker.port";
+
+    private static final String LOCK_FILE = "worker.lock";
+
+    private static final String LOG_FILE = "worker.log";
+
+    private static final int CONNECT_TIMEOUT = 2000;
+
+    private static final int START_TIMEOUT = 60000;
+
+    private final File directory;
+
+    private final int idleTimeOut;
+
+    private final Log log;
+
+    /**
+     * @param directory folder for the port files of the workers
+     * @param idleTimeOut time in seconds after which an unused worker stops
+     * @param log logger
+     */
+    public CompilerDaemon( File directory, int idleTimeOut, Log log )
+    {
+        this.directory = directory;
+        this.idleTimeOut = idleTimeOut;
+        this.log = log;
+    }
+
+    /**
+     * Workers rely on a security manager to trap <code>System.exit()</code>, that can't be installed anymore since
+     * Java 24.
+     *
+     * @param javaVersion feature version of the JVM running the worker
+     * @return <code>true</code> if a worker can run on this JVM
+     */
+    public static boolean isSupported( int javaVersion )
+    {
+        return javaVersion < 24;
+    }
+
+    /**
+     * Run a main class in a worker.
+     *
+     * @return the exit status of the main class
+     * @throws IOException if the worker can't be started or dies during the request. A
+     *             {@link java.net.SocketTimeoutException} is thrown if the request takes more than <code>timeOut</code>
+     *             seconds.
+     */
+    public int execute( String java, List<String> jvmArgs, List<File> classpath, String mainClass, List<String> args,
+                        Properties systemProperties, StreamConsumer out, StreamConsumer err, int timeOut )
+        throws IOException
+    {
+        List<File> workerClasspath = new ArrayList<File>( classpath );
+        workerClasspath.add( getPluginClasspathElement() );
+        File workerDirectory = new File( directory, getKey( java, jvmArgs, workerClasspath ) );
+        File portFile = new File( workerDirectory, PORT_FILE );
+
+        String[] worker = ping( portFile );
+        if ( worker == null )
+        {
+            worker = start( java, jvmArgs, workerClasspath, workerDirectory, portFile );
+        }
+        else
+        {
+            log.debug( "Reusing compiler daemon " + workerDirectory );
+        }
+
+        Socket socket = connect( worker );
+        try
+        {
+            if ( timeOut > 0 )
+            {
+                socket.setSoTimeout( timeOut * 1000 );
+            }
+            DataOutputStream request = new DataOutputStream( new BufferedOutputStream( socket.getOutputStream() ) );
+            CompilerWorker.writeString( request, worker[1] );
+            CompilerWorker.writeString( request, CompilerWorker.RUN );
+            CompilerWorker.writeString( request, mainClass );
+            request.writeInt( args.size() );
+            for ( String arg : args )
+            {
+                CompilerWorker.writeString( request, arg );
+            }
+            request.writeInt( systemProperties.size() );
+            for ( Map.Entry<Object, Object> entry : systemProperties.entrySet() )
+            {
+                CompilerWorker.writeString( request, String.valueOf( entry.getKey() ) );
+                CompilerWorker.writeString( request, String.valueOf( entry.getValue() ) );
+            }
+            request.flush();
+
+            DataInputStream response = new DataInputStream( new BufferedInputStream( socket.getInputStream() ) );
+            while ( true )
+            {
+                byte type;
+                try
+                {
+                    type = response.readByte();
+                }
+                catch ( EOFException e )
+                {
+                    throw new IOException( "Compiler daemon terminated unexpectedly, see "
+                        + new File( workerDirectory, LOG_FILE ) );
+                }
+                if ( type == CompilerWorker.EXIT )
+                {
+                    return response.readInt();
+                }
+                String line = CompilerWorker.readString( response );
+                if ( type == CompilerWorker.ERR )
+                {
+                    err.consumeLine( line );
+                }
+                else
+                {
+                    out.consumeLine( line );
+                }
+            }
+        }
+        finally
+        {
+            socket.close();
+        }
+    }
+
+    private String[] start( String java, List<String> jvmArgs, List<File> classpath, File workerDirectory,
+                            File portFile )
+        throws IOException
+    {
+        // prevent concurrent builds, in this JVM or another one, from starting the same worker twice
+        synchronized ( CompilerDaemon.class )
+        {
+            workerDirectory.mkdirs();
+            RandomAccessFile lockFile = new RandomAccessFile( new File( workerDirectory, LOCK_FILE ), "rw" );
+            try
+            {
+                FileLock lock = lockFile.getChannel().lock();
+                try
+                {
+                    String[] worker = ping( portFile );
+                    if ( worker != null )
+                    {
+                        return worker;
+                    }
+                    FileUtils.deleteQuietly( portFile );
+                    launch( java, jvmArgs, classpath, workerDirectory, portFile );
+
+                    long deadline = System.currentTimeMillis() + START_TIMEOUT;
+                    while ( System.currentTimeMillis() < deadline )
+                    {
+                        worker = ping( portFile );
+                        if ( worker != null )
+                        {
+                            return worker;
+                        }
+                        try
+                        {
+                            Thread.sleep( 100 );
+                        }
+                        catch ( InterruptedException e )
+                        {
+                            Thread.currentThread().interrupt();
+                            break;
+                        }
+                    }
+                    throw new IOException( "Compiler daemon failed to start, see "
+                        + new File( workerDirectory, LOG_FILE ) );
+                }
+                finally
+                {
+                    lock.release();
+                }
+            }
+            finally
+            {
+                lockFile.close();
+            }
+        }
+    }
+
+    private void launch( String java, List<String> jvmArgs, List<File> classpath, File workerDirectory,
+                         File portFile )
+        throws IOException
+    {
+        List<String> command = new ArrayList<String>();
+        command.add( java );
+        command.addAll( jvmArgs );
+        if ( JavaCommand.getJavaVersion( java ) >= 12 )
+        {
+            // allow the worker to install its System.exit() trap
+            command.add( "-Djava.security.manager=allow" );
+        }
+        command.add( CompilerWorker.class.getName() );
+        command.add( portFile.getAbsolutePath() );
+        command.add( String.valueOf( idleTimeOut ) );
+
+        List<String> path = new ArrayList<String>( classpath.size() );
+        for ( File file : classpath )
+        {
+            path.add( file.getAbsolutePath() );
+        }
+
+        log.info( "Starting compiler daemon " + workerDirectory );
+        log.debug( "Compiler daemon command : " + command );
+        ProcessBuilder builder = new ProcessBuilder( command );
+        builder.environment().put( "CLASSPATH", StringUtils.join( path.iterator(), File.pathSeparator ) );
+        builder.redirectErrorStream( true );
+        builder.redirectOutput( ProcessBuilder.Redirect.appendTo( new File( workerDirectory, LOG_FILE ) ) );
+        builder.start();
+    }
+
+    /**
+     * Health check of the worker listed in a port file.
+     *
+     * @return port and token of the worker, or <code>null</code> if there is no worker or it doesn't answer
+     */
+    private String[] ping( File portFile )
+    {
+        String[] worker = CompilerWorker.readPortFile( portFile );
+        if ( worker[0] == null )
+        {
+            return null;
+        }
+        try
+        {
+            Socket socket = connect( worker );
+            try
+            {
+                socket.setSoTimeout( CONNECT_TIMEOUT );
+                DataOutputStream request = new DataOutputStream( socket.getOutputStream() );
+                CompilerWorker.writeString( request, worker[1] );
+                CompilerWorker.writeString( request, CompilerWorker.PING );
+                request.flush();
+                DataInputStream response = new DataInputStream( socket.getInputStream() );
+                if ( response.readByte() == CompilerWorker.EXIT && response.readInt() == 0 )
+                {
+                    return worker;
+                }
+            }
+            finally
+            {
+                socket.close();
+            }
+        }
+        catch ( IOException e )
+        {
+            log.debug( "Compiler daemon " + portFile.getParent() + " is not available : " + e.getMessage() );
+        }
+        return null;
+    }
+
+    private Socket connect( String[] worker )
+        throws IOException
+    {
+        Socket socket = new Socket();
+        try
+        {
+            socket.connect( new InetSocketAddress( InetAddress.getLoopbackAddress(), Integer.parseInt( worker[0] ) ),
+                            CONNECT_TIMEOUT );
+        }
+        catch ( IOException e )
+        {
+            socket.close();
+            throw e;
+        }
+        return socket;
+    }
+
+    private String getKey( String java, List<String> jvmArgs, List<File> classpath )
+        throws IOException
+    {
+        CompileFingerprint fingerprint = new CompileFingerprint().add( "java", java );
+        for ( String jvmArg : jvmArgs )
+        {
+            fingerprint.add( "jvmArg", jvmArg );
+        }
+        for ( File element : classpath )
+        {
+            long stamp = element.isDirectory() ? getNewestClass( element ) : element.lastModified();
+            fingerprint.add( "classpath", element.getAbsolutePath() + '|' + element.length() + '|' + stamp );
+        }
+        return fingerprint.getValue();
+    }
+
+    private long getNewestClass( File directory )
+    {
+        long newest = 0;
+        File[] files = directory.listFiles();
+        if ( files != null )
+        {
+            for ( File file : files )
+            {
+                if ( file.isDirectory() )
+                {
+                    newest = Math.max( newest, getNewestClass( file ) );
+                }
+                else if ( file.getName().endsWith( ".class" ) )
+                {
+                    newest = Math.max( newest, file.lastModified() );
+                }
+            }
+        }
+        return newest;
+    }
+
+    private File getPluginClasspathElement()
+        throws IOException
+    {
+        try
+        {
+            return new File( CompilerWorker.class.getProtectionDomain().getCodeSource().getLocation().toURI() );
+        }
+        catch ( URISyntaxException e )
+        {
+            throw new IOException( "Failed to locate the plugin classes", e );
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package org.codehaus.mojo.gwt.shell;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.codehaus.plexus.util.cli.StreamConsumer;
+
+/**
+ * Consumer of the GWT compiler output, passing the lines to another consumer and recognizing the INFO messages of the
+ * compilation phases to measure them :
+ *
+ * <pre>
+ * Compiling module com.example.AppWidgetset
+ *    Compiling 2 permutations
+ *       Compiling permutation 0...
+ *       Compiling permutation 1...
+ *    Compile of permutations succeeded
+ *    Compilation succeeded -- 42.130s
+ * Linking into target/classes/VAADIN/widgetsets/com.example.AppWidgetset
+ *    Link succeeded
+ *    Linking succeeded -- 1.250s
+ * </pre>
+ *
+ * Phases are timed from the time their messages were read from the compiler, while the compilation and linking durations are the ones
+ * reported by the compiler. The compiler only logs the start of a permutation : its duration is only known when the
+ * permutations are compiled one after the other by a single worker.
+ *
+ * @since 8.28
+ */
+public class CompilerOutputParser
+    implements TimedStreamConsumer
+{
+    private static final Pattern MODULE = Pattern.compile( "Compiling module (\\S+)" );
+
+    private static final Pattern PERMUTATIONS = Pattern.compile( "Compiling (\\d+) permutations?" );
+
+    private static final Pattern PERMUTATION = Pattern.compile( "Compiling permutation (\\d+)\\.\\.\\." );
+
+    private static final Pattern COMPILED = Pattern.compile( "(?:Compilation|Validation) succeeded -- ([\\d.,]+)\\s*s" );
+
+    private static final Pattern LINKED = Pattern.compile( "Linking succeeded -- ([\\d.,]+)\\s*s" );
+
+    private final StreamConsumer delegate;
+
+    private final List<String> args;
+
+    private final List<CompileMetrics.Module> modules = new ArrayList<CompileMetrics.Module>();
+
+    private CompileMetrics.Module module;
+
+    private long moduleStart;
+
+    private long permutationsStart;
+
+    private long linkStart;
+
+    private int workers;
+
+    /**
+     * @param delegate consumer of the compiler output
+     * @param args arguments of the compiler, read when a module compilation starts to find the number of local workers
+     *            granted to the compiler
+     */
+    public CompilerOutputParser( StreamConsumer delegate, List<String> args )
+    {
+        this.delegate = delegate;
+        this.args = args;
+    }
+
+    public void consumeLine( String line )
+        throws IOException
+    {
+        consumeLine( line, System.nanoTime() );
+    }
+
+    public void consumeLine( String line, long time )
+        throws IOException
+    {
+        delegate.consumeLine( line );
+        parse( line.trim(), time );
+    }
+
+    synchronized void parse( String line, long time )
+    {
+        Matcher matcher = MODULE.matcher( line );
+        if ( matcher.matches() )
+        {
+            end( time );
+            workers = getWorkers();
+            module = new CompileMetrics.Module( matcher.group( 1 ), workers );
+            modules.add( module );
+            moduleStart = time;
+            permutationsStart = 0;
+            linkStart = 0;
+            return;
+        }
+        if ( module == null )
+        {
+            return;
+        }
+        if ( ( matcher = PERMUTATIONS.matcher( line ) ).matches() )
+        {
+            module.permutationCount = Integer.parseInt( matcher.group( 1 ) );
+            module.precompile = seconds( time - moduleStart );
+            permutationsStart = time;
+        }
+        else if ( ( matcher = PERMUTATION.matcher( line ) ).matches() )
+        {
+            endPermutation( time );
+            module.permutations.add( new CompileMetrics.Permutation( Integer.parseInt( matcher.group( 1 ) ),
+                                                                     seconds( time - moduleStart ) ) );
+        }
+        else if ( "Compile of permutations succeeded".equals( line ) )
+        {
+            endPermutations( time );
+        }
+        else if ( ( matcher = COMPILED.matcher( line ) ).matches() )
+        {
+            endPermutations( time );
+            module.compile = parseSeconds( matcher.group( 1 ) );
+        }
+        else if ( line.startsWith( "Linking into " ) )
+        {
+            endPermutations( time );
+            linkStart = time;
+        }
+        else if ( "Link succeeded".equals( line ) && linkStart != 0 )
+        {
+            module.link = seconds( time - linkStart );
+            module.succeeded = true;
+        }
+        else if ( ( matcher = LINKED.matcher( line ) ).matches() )
+        {
+            module.link = parseSeconds( matcher.group( 1 ) );
+            module.succeeded = true;
+            module.measuredTotal = seconds( time - moduleStart );
+        }
+    }
+
+    private int getWorkers()
+    {
+        int index = args.indexOf( "-localWorkers" );
+        try
+        {
+            return index >= 0 && index + 1 < args.size() ? Integer.parseInt( args.get( index + 1 ) ) : 1;
+        }
+        catch ( NumberFormatException e )
+        {
+            return 0;
+        }
+    }
+
+    private void endPermutation( long time )
+    {
+        if ( workers == 1 && !module.permutations.isEmpty() )
+        {
+            CompileMetrics.Permutation last = module.permutations.get( module.permutations.size() - 1 );
+            if ( last.duration < 0 )
+            {
+                last.duration = seconds( time - moduleStart ) - last.start;
+            }
+        }
+    }
+
+    private void endPermutations( long time )
+    {
+        if ( permutationsStart != 0 && module.permutationsTime < 0 )
+        {
+            endPermutation( time );
+            module.permutationsTime = seconds( time - permutationsStart );
+        }
+    }
+
+    private void end( long time )
+    {
+        if ( module != null && module.measuredTotal < 0 )
+        {
+            module.measuredTotal = seconds( time - moduleStart );
+        }
+    }
+
+    /**
+     * @return the modules compiled, with the timings found in the output
+     */
+    public synchronized List<CompileMetrics.Module> getModules()
+    {
+        end( System.nanoTime() );
+        return new ArrayList<CompileMetrics.Module>( modules );
+    }
+
+    private static double seconds( long nanos )
+    {
+        return nanos / 1e9;
+    }
+
+    private static double parseSeconds( String value )
+    {
+        try
+        {
+            return Double.parseDouble( value.replace( ',', '.' ) );
+        }
+        catch ( NumberFormatException e )
+        {
+            return -1;
+        }
+    }
+}
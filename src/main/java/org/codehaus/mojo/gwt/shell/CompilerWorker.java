@@ -0,0 +1,449 @@
+package org.codehaus.mojo.gwt.shell;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import java.lang.reflect.InvocationTargetException;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.Permission;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Main class of a long-lived JVM running the GWT compiler (or any other main class of its classpath) on request, so
+ * that the JIT-compiled code and in-memory caches of the compiler are reused by the next builds.
+ * <p>
+ * The worker listens on a loopback port, written with a random token to the port file given as first argument. Each
+ * connection carries a single request. Health checks are answered at once, while runs are processed one at a time as
+ * they share the standard streams and system properties of the JVM. The worker stops once it has been idle for the
+ * time-out (in seconds) given as second argument.
+ * <p>
+ * Wire format : the client sends the token, then {@link #PING} or {@link #RUN} followed by the main class, arguments
+ * and system properties. The worker answers with {@link #OUT} and {@link #ERR} frames for each line written by the
+ * main class to <code>System.out</code> and <code>System.err</code>, then an {@link #EXIT} frame with the status.
+ *
+ * This class runs with the compiler classpath : it must only depend on the JDK.
+ *
+ * @see CompilerDaemon
+ * @since 8.28
+ */
+public class CompilerWorker
+{
+    static final String PING = "PING";
+
+    static final String RUN = "RUN";
+
+    static final byte OUT = 'O';
+
+    static final byte ERR = 'E';
+
+    static final byte EXIT = 'X';
+
+    private static final int MAX_STRING_LENGTH = 16 * 1024 * 1024;
+
+    /**
+     * Set while a request is running : <code>System.exit()</code> calls from the main class are then turned into
+     * {@link ExitTrappedException}.
+     */
+    private static volatile boolean trapExit;
+
+    private static final Object RUN_LOCK = new Object();
+
+    private static int activeRequests;
+
+    private static long lastActivity = System.currentTimeMillis();
+
+    public static void main( String[] args )
+        throws Exception
+    {
+        File portFile = new File( args[0] );
+        int idleTimeOut = Integer.parseInt( args[1] );
+
+        ServerSocket server = new ServerSocket( 0, 50, InetAddress.getLoopbackAddress() );
+        // wake up regularly to check for idleness, as long requests don't go through accept()
+        server.setSoTimeout( Math.min( idleTimeOut, 60 ) * 1000 );
+        String token = new BigInteger( 130, new SecureRandom() ).toString( 32 );
+
+        File temp = new File( portFile.getPath() + ".tmp" );
+        Files.write( temp.toPath(), ( server.getLocalPort() + "\n" + token ).getBytes( StandardCharsets.UTF_8 ) );
+        if ( !temp.renameTo( portFile ) )
+        {
+            portFile.delete();
+            temp.renameTo( portFile );
+        }
+
+        System.setSecurityManager( new ExitTrap() );
+
+        try
+        {
+            while ( true )
+            {
+                final Socket socket;
+                try
+                {
+                    socket = server.accept();
+                }
+                catch ( SocketTimeoutException e )
+                {
+                    if ( isIdle( idleTimeOut ) )
+                    {
+                        break;
+                    }
+                    continue;
+                }
+                requestStarted();
+                final String expectedToken = token;
+                Thread thread = new Thread( "compiler-worker-request" )
+                {
+                    @Override
+                    public void run()
+                    {
+                        try
+                        {
+                            handle( socket, expectedToken );
+                        }
+                        catch ( Exception e )
+                        {
+                            e.printStackTrace();
+                        }
+                        finally
+                        {
+                            try
+                            {
+                                socket.close();
+                            }
+                            catch ( IOException e )
+                            {
+                                // ignored
+                            }
+                            requestEnded();
+                        }
+                    }
+                };
+                thread.setDaemon( true );
+                thread.start();
+            }
+        }
+        finally
+        {
+            server.close();
+            // don't remove the port file of a worker started meanwhile for the same key
+            if ( token.equals( readPortFile( portFile )[1] ) )
+            {
+                portFile.delete();
+            }
+        }
+        System.exit( 0 );
+    }
+
+    private static synchronized void requestStarted()
+    {
+        activeRequests++;
+        lastActivity = System.currentTimeMillis();
+    }
+
+    private static synchronized void requestEnded()
+    {
+        activeRequests--;
+        lastActivity = System.currentTimeMillis();
+    }
+
+    private static synchronized boolean isIdle( int idleTimeOut )
+    {
+        return activeRequests == 0 && System.currentTimeMillis() - lastActivity >= idleTimeOut * 1000L;
+    }
+
+    private static void handle( Socket socket, String token )
+        throws Exception
+    {
+        DataInputStream in = new DataInputStream( new BufferedInputStream( socket.getInputStream() ) );
+        final DataOutputStream out = new DataOutputStream( new BufferedOutputStream( socket.getOutputStream() ) );
+        if ( !token.equals( readString( in ) ) )
+        {
+            return;
+        }
+        String command = readString( in );
+        if ( PING.equals( command ) )
+        {
+            writeExit( out, 0 );
+            return;
+        }
+        if ( !RUN.equals( command ) )
+        {
+            return;
+        }
+
+        String mainClass = readString( in );
+        List<String> args = new ArrayList<String>();
+        for ( int i = in.readInt(); i > 0; i-- )
+        {
+            args.add( readString( in ) );
+        }
+        Properties properties = new Properties();
+        for ( int i = in.readInt(); i > 0; i-- )
+        {
+            properties.setProperty( readString( in ), readString( in ) );
+        }
+
+        int status;
+        synchronized ( RUN_LOCK )
+        {
+            status = run( mainClass, args.toArray( new String[args.size()] ), properties, out );
+        }
+        writeExit( out, status );
+    }
+
+    /**
+     * @return a stream encoding in UTF-8, as {@link LineForwarder} decodes
+     */
+    private static PrintStream newPrintStream( OutputStream out )
+    {
+        try
+        {
+            return new PrintStream( out, true, StandardCharsets.UTF_8.name() );
+        }
+        catch ( UnsupportedEncodingException e )
+        {
+            throw new IllegalStateException( e );
+        }
+    }
+
+    private static int run( String mainClass, String[] args, Properties properties, DataOutputStream out )
+    {
+        PrintStream systemOut = System.out;
+        PrintStream systemErr = System.err;
+        Properties systemProperties = (Properties) System.getProperties().clone();
+        PrintStream redirectedOut = newPrintStream( new LineForwarder( out, OUT ) );
+        PrintStream redirectedErr = newPrintStream( new LineForwarder( out, ERR ) );
+        System.setOut( redirectedOut );
+        System.setErr( redirectedErr );
+        for ( Map.Entry<Object, Object> entry : properties.entrySet() )
+        {
+            System.setProperty( (String) entry.getKey(), (String) entry.getValue() );
+        }
+        trapExit = true;
+        try
+        {
+            Class.forName( mainClass ).getMethod( "main", String[].class ).invoke( null, (Object) args );
+            return 0;
+        }
+        catch ( InvocationTargetException e )
+        {
+            return getStatus( e.getCause() );
+        }
+        catch ( Throwable t )
+        {
+            return getStatus( t );
+        }
+        finally
+        {
+            trapExit = false;
+            redirectedOut.flush();
+            redirectedErr.flush();
+            System.setOut( systemOut );
+            System.setErr( systemErr );
+            System.setProperties( systemProperties );
+        }
+    }
+
+    private static int getStatus( Throwable t )
+    {
+        if ( t instanceof ExitTrappedException )
+        {
+            return ( (ExitTrappedException) t ).status;
+        }
+        t.printStackTrace();
+        return 1;
+    }
+
+    private static void writeExit( DataOutputStream out, int status )
+        throws IOException
+    {
+        synchronized ( out )
+        {
+            out.writeByte( EXIT );
+            out.writeInt( status );
+            out.flush();
+        }
+    }
+
+    /**
+     * @return port and token of the worker, both <code>null</code> if the file doesn't exist or is invalid
+     */
+    static String[] readPortFile( File portFile )
+    {
+        try
+        {
+            if ( portFile.isFile() )
+            {
+                String[] lines = new String( Files.readAllBytes( portFile.toPath() ), StandardCharsets.UTF_8 )
+                    .split( "\n" );
+                if ( lines.length == 2 )
+                {
+                    Integer.parseInt( lines[0].trim() );
+                    return new String[] { lines[0].trim(), lines[1].trim() };
+                }
+            }
+        }
+        catch ( IOException e )
+        {
+            // no worker
+        }
+        catch ( NumberFormatException e )
+        {
+            // no worker
+        }
+        return new String[2];
+    }
+
+    static void writeString( DataOutputStream out, String value )
+        throws IOException
+    {
+        byte[] bytes = value.getBytes( StandardCharsets.UTF_8 );
+        out.writeInt( bytes.length );
+        out.write( bytes );
+    }
+
+    static String readString( DataInputStream in )
+        throws IOException
+    {
+        int length = in.readInt();
+        if ( length < 0 || length > MAX_STRING_LENGTH )
+        {
+            throw new IOException( "Invalid string length " + length );
+        }
+        byte[] bytes = new byte[length];
+        in.readFully( bytes );
+        return new String( bytes, StandardCharsets.UTF_8 );
+    }
+
+    /**
+     * Forwards each line written to the stream as a frame to the client.
+     */
+    private static class LineForwarder
+        extends OutputStream
+    {
+        private final DataOutputStream out;
+
+        private final byte type;
+
+        private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+
+        LineForwarder( DataOutputStream out, byte type )
+        {
+            this.out = out;
+            this.type = type;
+        }
+
+        @Override
+        public synchronized void write( int b )
+            throws IOException
+        {
+            if ( b == '\n' )
+            {
+                flushLine();
+            }
+            else if ( b != '\r' )
+            {
+                line.write( b );
+            }
+        }
+
+        @Override
+        public synchronized void flush()
+            throws IOException
+        {
+            if ( line.size() > 0 )
+            {
+                flushLine();
+            }
+        }
+
+        private void flushLine()
+            throws IOException
+        {
+            String text = new String( line.toByteArray(), StandardCharsets.UTF_8 );
+            line.reset();
+            synchronized ( out )
+            {
+                out.writeByte( type );
+                writeString( out, text );
+                out.flush();
+            }
+        }
+    }
+
+    private static class ExitTrap
+        extends SecurityManager
+    {
+        @Override
+        public void checkPermission( Permission perm )
+        {
+            // allow everything
+        }
+
+        @Override
+        public void checkPermission( Permission perm, Object context )
+        {
+            // allow everything
+        }
+
+        @Override
+        public void checkExit( int status )
+        {
+            if ( trapExit )
+            {
+                throw new ExitTrappedException( status );
+            }
+        }
+    }
+
+    static class ExitTrappedException
+        extends SecurityException
+    {
+        private static final long serialVersionUID = 1L;
+
+        final int status;
+
+        ExitTrappedException( int status )
+        {
+            super( "System.exit(" + status + ") trapped" );
+            this.status = status;
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package org.codehaus.mojo.gwt.shell;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Processor and memory limits of the Linux control group (v1 or v2) of the Maven JVM, such as the limits of a
+ * container or of a Kubernetes pod.
+ * <p>
+ * Old JVMs size themselves from the host, and the JVMs forked by the plugin don't know the memory left to them by
+ * Maven : the limits are read from the cgroup file system to size the forks. A limit set on a parent group applies to
+ * its children, so the lowest limit of the group and its ancestors is used.
+ *
+ * @since 8.28
+ */
+public class ContainerLimits
+{
+    private static final ContainerLimits INSTANCE =
+        new ContainerLimits( new File( "/sys/fs/cgroup" ), new File( "/proc/self/cgroup" ) );
+
+    private final File root;
+
+    /**
+     * Paths of the groups of the process by controller, the cgroup v2 path being stored with an empty controller.
+     */
+    private final Map<String, String> groups = new HashMap<String, String>();
+
+    /**
+     * @param root mount point of the cgroup file system
+     * @param cgroups the <code>/proc/self/cgroup</code> file listing the groups of the process
+     */
+    ContainerLimits( File root, File cgroups )
+    {
+        this.root = root;
+        try
+        {
+            List<String> lines = Files.readAllLines( cgroups.toPath(), StandardCharsets.UTF_8 );
+            for ( String line : lines )
+            {
+                // hierarchy-ID:controller-list:path
+                String[] fields = line.split( ":", 3 );
+                if ( fields.length < 3 )
+                {
+                    continue;
+                }
+                for ( String controller : fields[1].split( "," ) )
+                {
+                    groups.put( controller, fields[2] );
+                }
+            }
+        }
+        catch ( IOException e )
+        {
+            // not on Linux, or /proc not mounted
+        }
+    }
+
+    /**
+     * @return the limits of the Maven JVM
+     */
+    public static ContainerLimits getInstance()
+    {
+        return INSTANCE;
+    }
+
+    /**
+     * @return the number of processors the process may use, rounded up, 0 if not limited
+     */
+    public int getProcessors()
+    {
+        long limit = Long.MAX_VALUE;
+        // cgroup v2 : "quota period", quota being "max" when not limited
+        for ( File group : getGroups( "", "" ) )
+        {
+            String[] values = read( new File( group, "cpu.max" ) ).split( " " );
+            if ( values.length == 2 && !"max".equals( values[0] ) )
+            {
+                limit = Math.min( limit, processors( parse( values[0] ), parse( values[1] ) ) );
+            }
+        }
+        // cgroup v1 : quota of -1 when not limited
+        for ( File group : getGroups( "cpu", "cpu" ) )
+        {
+            long quota = parse( read( new File( group, "cpu.cfs_quota_us" ) ) );
+            long period = parse( read( new File( group, "cpu.cfs_period_us" ) ) );
+            limit = Math.min( limit, processors( quota, period ) );
+        }
+        return limit == Long.MAX_VALUE ? 0 : (int) limit;
+    }
+
+    /**
+     * @return the memory the process may use in bytes, 0 if not limited
+     */
+    public long getMemory()
+    {
+        long limit = Long.MAX_VALUE;
+        for ( File group : getGroups( "", "" ) )
+        {
+            limit = Math.min( limit, memory( read( new File( group, "memory.max" ) ) ) );
+        }
+        for ( File group : getGroups( "memory", "memory" ) )
+        {
+            limit = Math.min( limit, memory( read( new File( group, "memory.limit_in_bytes" ) ) ) );
+        }
+        return limit == Long.MAX_VALUE ? 0 : limit;
+    }
+
+    private static long processors( long quota, long period )
+    {
+        if ( quota <= 0 || period <= 0 )
+        {
+            return Long.MAX_VALUE;
+        }
+        return Math.max( 1, ( quota + period - 1 ) / period );
+    }
+
+    private static long memory( String value )
+    {
+        long memory = parse( value );
+        // cgroup v1 reports a huge page-aligned value when not limited
+        return memory <= 0 || memory >= Long.MAX_VALUE / 2 ? Long.MAX_VALUE : memory;
+    }
+
+    /**
+     * @param controller controller of the group, empty for cgroup v2
+     * @param directory directory where the controller hierarchy is mounted, empty for cgroup v2
+     * @return the directories of the group of the process and of its ancestors, from the mount point of a container
+     *         where the group is the root one, or from the host
+     */
+    private File[] getGroups( String controller, String directory )
+    {
+        File mount = directory.isEmpty() ? root : new File( root, directory );
+        String path = groups.get( controller );
+        if ( path == null || ( directory.isEmpty() && !new File( mount, "cgroup.controllers" ).isFile() ) )
+        {
+            return new File[0];
+        }
+        String[] names = path.split( "/" );
+        File[] groups = new File[names.length + 1];
+        File group = mount;
+        groups[0] = group;
+        int count = 1;
+        for ( String name : names )
+        {
+            if ( name.isEmpty() )
+            {
+                continue;
+            }
+            group = new File( group, name );
+            if ( !group.isDirectory() )
+            {
+                // within a container, the group of the process is mounted as the root
+                break;
+            }
+            groups[count++] = group;
+        }
+        File[] existing = new File[count];
+        System.arraycopy( groups, 0, existing, 0, count );
+        return existing;
+    }
+
+    private static String read( File file )
+    {
+        try
+        {
+            return new String( Files.readAllBytes( file.toPath() ), StandardCharsets.UTF_8 ).trim();
+        }
+        catch ( IOException e )
+        {
+            return "";
+        }
+    }
+
+    private static long parse( String value )
+    {
+        try
+        {
+            return Long.parseLong( value );
+        }
+        catch ( NumberFormatException e )
+        {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package org.codehaus.mojo.gwt.shell;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Content digests of the compilation inputs, persisted between builds and keyed by file path, size and modification
+ * date, so that the fingerprint of unchanged inputs is computed without reading them.
+ * <p>
+ * Digests of files modified shortly before being read are not persisted, as a later modification within the
+ * resolution of the file system dates would go unnoticed.
+ *
+ * @since 8.28
+ */
+public class FileDigestCache
+{
+    private static final long DATE_RESOLUTION = 2000;
+
+    private static final String SEPARATOR = "|";
+
+    private final File file;
+
+    private final Map<String, String> previous = new ConcurrentHashMap<String, String>();
+
+    private final Map<String, String> current = new ConcurrentHashMap<String, String>();
+
+    private final byte[] buffer = new byte[8192];
+
+    /**
+     * @param file file holding the digests between builds
+     */
+    public FileDigestCache( File file )
+    {
+        this.file = file;
+        load();
+    }
+
+    /**
+     * @return the hexadecimal digest of the file content
+     * @throws IOException if the file cannot be read
+     */
+    public String getDigest( File input )
+        throws IOException
+    {
+        String path = input.getAbsolutePath();
+        String state = input.length() + SEPARATOR + input.lastModified();
+        String value = current.get( path );
+        if ( value == null )
+        {
+            value = previous.get( path );
+        }
+        if ( value != null && value.startsWith( state + SEPARATOR ) )
+        {
+            current.put( path, value );
+            return value.substring( state.length() + 1 );
+        }
+        String digest = computeDigest( input );
+        if ( input.lastModified() < System.currentTimeMillis() - DATE_RESOLUTION )
+        {
+            current.put( path, state + SEPARATOR + digest );
+        }
+        return digest;
+    }
+
+    /**
+     * Save the digests of the files read since this cache was loaded.
+     *
+     * @throws IOException if the cache file cannot be written
+     */
+    public void save()
+        throws IOException
+    {
+        Properties properties = new Properties();
+        properties.putAll( current );
+        file.getParentFile().mkdirs();
+        OutputStream out = new FileOutputStream( file );
+        try
+        {
+            properties.store( out, "Digests of GWT compilation inputs" );
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+
+    private void load()
+    {
+        if ( !file.isFile() )
+        {
+            return;
+        }
+        Properties properties = new Properties();
+        try
+        {
+            InputStream in = new FileInputStream( file );
+            try
+            {
+                properties.load( in );
+            }
+            finally
+            {
+                in.close();
+            }
+        }
+        catch ( IOException e )
+        {
+            // digests are computed again
+            return;
+        }
+        for ( String path : properties.stringPropertyNames() )
+        {
+            previous.put( path, properties.getProperty( path ) );
+        }
+    }
+
+    private synchronized String computeDigest( File input )
+        throws IOException
+    {
+        MessageDigest digest = CompileFingerprint.newDigest();
+        InputStream in = new FileInputStream( input );
+        try
+        {
+            int read;
+            while ( ( read = in.read( buffer ) ) != -1 )
+            {
+                digest.update( buffer, 0, read );
+            }
+        }
+        finally
+        {
+            in.close();
+        }
+        return CompileFingerprint.toHex( digest.digest() );
+    }
+}
@@ -0,0 +1,255 @@
+package org.codehaus.mojo.gwt.shell;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.lang.reflect.Method;
+import java.util.List;
+
+/**
+ * Pool of worker threads and heap shared by all the JVMs forked by the plugin in the Maven JVM.
+ * <p>
+ * With a parallel build (<code>mvn -T</code>), several modules may compile widgetsets, themes or run GWT tests at the
+ * same time. Each fork acquires workers and heap from this pool before starting and gives them back when it ends, so
+ * the forks of concurrent mojo executions never use more processors and memory than the machine has : a fork waits
+ * until enough resources are available.
+ * <p>
+ * A fork always gets at least one worker, and a fork asking for more heap than the whole pool is granted the whole
+ * pool, so that a single fork can always run.
+ *
+ * @since 8.28
+ */
+public class ForkBudget
+{
+    private static final ForkBudget INSTANCE = new ForkBudget( getProcessors(), getDefaultHeap() );
+
+    private final int totalWorkers;
+
+    private final long totalHeap;
+
+    private int availableWorkers;
+
+    private long availableHeap;
+
+    /**
+     * @param totalWorkers number of workers of the pool
+     * @param totalHeap heap of the pool in megabytes, 0 to not limit the heap
+     */
+    ForkBudget( int totalWorkers, long totalHeap )
+    {
+        this.totalWorkers = totalWorkers;
+        this.totalHeap = totalHeap;
+        this.availableWorkers = totalWorkers;
+        this.availableHeap = totalHeap;
+    }
+
+    /**
+     * @return the pool shared by all the mojo executions of the Maven JVM
+     */
+    public static ForkBudget getInstance()
+    {
+        return INSTANCE;
+    }
+
+    public int getTotalWorkers()
+    {
+        return totalWorkers;
+    }
+
+    public long getTotalHeap()
+    {
+        return totalHeap;
+    }
+
+    /**
+     * Wait until at least one worker and the requested heap are available, and take them from the pool.
+     *
+     * @param workers number of workers wanted, the grant may contain less
+     * @param heap heap in megabytes needed by the fork
+     * @return the granted resources, to be released once the fork has ended
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public synchronized Grant acquire( int workers, long heap )
+        throws InterruptedException
+    {
+        long wantedHeap = totalHeap > 0 ? Math.min( heap, totalHeap ) : 0;
+        while ( availableWorkers < 1 || availableHeap < wantedHeap )
+        {
+            wait();
+        }
+        int granted = Math.max( 1, Math.min( workers, availableWorkers ) );
+        availableWorkers -= granted;
+        availableHeap -= wantedHeap;
+        return new Grant( granted, wantedHeap );
+    }
+
+    private synchronized void release( Grant grant )
+    {
+        availableWorkers += grant.workers;
+        availableHeap += grant.heap;
+        notifyAll();
+    }
+
+    /**
+     * Resources granted to a fork.
+     */
+    public class Grant
+    {
+        private final int workers;
+
+        private final long heap;
+
+        private boolean released;
+
+        Grant( int workers, long heap )
+        {
+            this.workers = workers;
+            this.heap = heap;
+        }
+
+        public int getWorkers()
+        {
+            return workers;
+        }
+
+        /**
+         * Give the resources back to the pool.
+         */
+        public void release()
+        {
+            synchronized ( ForkBudget.this )
+            {
+                if ( released )
+                {
+                    return;
+                }
+                released = true;
+            }
+            ForkBudget.this.release( this );
+        }
+    }
+
+    /**
+     * Heap a JVM started with some arguments will use : the <code>-Xmx</code> argument or, by default, a quarter of
+     * the physical memory.
+     *
+     * @param jvmArgs JVM arguments
+     * @return heap in megabytes, 0 if unknown
+     */
+    public static long getHeap( List<String> jvmArgs )
+    {
+        for ( int i = jvmArgs.size() - 1; i >= 0; i-- )
+        {
+            String arg = jvmArgs.get( i );
+            if ( arg.startsWith( "-Xmx" ) )
+            {
+                return parseSize( arg.substring( 4 ) ) / ( 1024 * 1024 );
+            }
+        }
+        return getPhysicalMemory() / 4 / ( 1024 * 1024 );
+    }
+
+    /**
+     * @param size a JVM memory size such as <code>512m</code> or <code>2G</code>
+     * @return the size in bytes, 0 if invalid
+     */
+    static long parseSize( String size )
+    {
+        if ( size.isEmpty() )
+        {
+            return 0;
+        }
+        long unit = 1;
+        switch ( Character.toLowerCase( size.charAt( size.length() - 1 ) ) )
+        {
+            case 'k':
+                unit = 1024L;
+                break;
+            case 'm':
+                unit = 1024L * 1024;
+                break;
+            case 'g':
+                unit = 1024L * 1024 * 1024;
+                break;
+            case 't':
+                unit = 1024L * 1024 * 1024 * 1024;
+                break;
+            default:
+                break;
+        }
+        try
+        {
+            return Long.parseLong( unit == 1 ? size : size.substring( 0, size.length() - 1 ) ) * unit;
+        }
+        catch ( NumberFormatException e )
+        {
+            return 0;
+        }
+    }
+
+    /**
+     * @return the processors of the machine, or of the container when its limit is lower
+     */
+    static int getProcessors()
+    {
+        int processors = Runtime.getRuntime().availableProcessors();
+        int limit = ContainerLimits.getInstance().getProcessors();
+        return limit > 0 ? Math.min( processors, limit ) : processors;
+    }
+
+    /**
+     * Forks may use up to three quarters of the physical memory, the rest being left to Maven and the system.
+     */
+    private static long getDefaultHeap()
+    {
+        return getPhysicalMemory() * 3 / 4 / ( 1024 * 1024 );
+    }
+
+    /**
+     * @return the physical memory in bytes, or the memory of the container when its limit is lower, 0 if unknown
+     */
+    static long getPhysicalMemory()
+    {
+        long memory = getMachineMemory();
+        long limit = ContainerLimits.getInstance().getMemory();
+        return limit > 0 && ( memory == 0 || limit < memory ) ? limit : memory;
+    }
+
+    private static long getMachineMemory()
+    {
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        try
+        {
+            // com.sun.management.OperatingSystemMXBean is not available on all JVMs
+            Class<?> type = Class.forName( "com.sun.management.OperatingSystemMXBean" );
+            if ( !type.isInstance( os ) )
+            {
+                return 0;
+            }
+            Method method = type.getMethod( "getTotalPhysicalMemorySize" );
+            return ( (Number) method.invoke( os ) ).longValue();
+        }
+        catch ( Exception e )
+        {
+            return 0;
+        }
+    }
+}
@@ -83,6 +83,11 @@ public class I18NMojo
     protected boolean isGenerator() {
         return true;
     }
+
+    @Override
+    protected boolean isInProcessSupported() {
+        return true;
+    }
     
     public void doExecute( )
         throws MojoExecutionException, MojoFailureException
@@ -0,0 +1,483 @@
+package org.codehaus.mojo.gwt.shell;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.security.Permission;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.maven.plugin.logging.Log;
+import org.codehaus.plexus.util.StringUtils;
+import org.codehaus.plexus.util.cli.StreamConsumer;
+
+/**
+ * Runs a main class inside the Maven JVM, as a cheaper alternative to forking a JVM for short-lived tools.
+ * <p>
+ * The main class is loaded by a child-first class loader built from the command classpath, isolated from the plugin
+ * and Maven classes. Lines written to <code>System.out</code> and <code>System.err</code> by the threads of the run are
+ * sent to the command consumers, and <code>System.exit()</code> is turned into the exit status of the run. The system
+ * properties of the command (including <code>java.class.path</code>, which some tools scan) are set for the duration of
+ * the run, and only those are restored afterwards, so that the properties set meanwhile by other threads of a parallel
+ * build are kept. As standard streams, system properties and the security manager are global to the JVM, runs are
+ * serialized.
+ * <p>
+ * A run can't be stopped safely, as the threads of the tool would outlive the exit trap and the stream redirections :
+ * commands with a time-out are forked.
+ * <p>
+ * Trapping <code>System.exit()</code> requires installing a security manager, which is not possible since Java 18
+ * unless Maven runs with <code>-Djava.security.manager=allow</code> : commands are then forked as usual.
+ *
+ * @since 8.28
+ */
+class InProcessRunner
+{
+    private static final Object LOCK = new Object();
+
+    private static Boolean supported;
+
+    private final Log log;
+
+    InProcessRunner( Log log )
+    {
+        this.log = log;
+    }
+
+    /**
+     * @return <code>true</code> if <code>System.exit()</code> can be trapped in this JVM
+     */
+    static boolean isSupported()
+    {
+        synchronized ( LOCK )
+        {
+            if ( supported == null )
+            {
+                SecurityManager current = System.getSecurityManager();
+                try
+                {
+                    System.setSecurityManager( new ExitTrap( current, null ) );
+                    System.setSecurityManager( current );
+                    supported = Boolean.TRUE;
+                }
+                catch ( UnsupportedOperationException e )
+                {
+                    supported = Boolean.FALSE;
+                }
+                catch ( SecurityException e )
+                {
+                    supported = Boolean.FALSE;
+                }
+            }
+            return supported.booleanValue();
+        }
+    }
+
+    /**
+     * Run the main class and wait for it to return or call <code>System.exit()</code>.
+     *
+     * @return the exit status
+     */
+    int run( String mainClass, List<File> classpath, List<String> args, Properties systemProperties,
+             StreamConsumer out, StreamConsumer err )
+        throws JavaCommandException
+    {
+        URL[] urls = new URL[classpath.size()];
+        List<String> path = new java.util.ArrayList<String>( classpath.size() );
+        try
+        {
+            for ( int i = 0; i < urls.length; i++ )
+            {
+                File file = classpath.get( i ).getAbsoluteFile();
+                urls[i] = file.toURI().toURL();
+                path.add( file.getPath() );
+            }
+        }
+        catch ( MalformedURLException e )
+        {
+            throw new JavaCommandException( "Invalid classpath entry", e );
+        }
+
+        synchronized ( LOCK )
+        {
+            ChildFirstClassLoader loader = new ChildFirstClassLoader( urls, getPlatformClassLoader() );
+            ThreadGroup group = new ThreadGroup( "in-process-" + mainClass );
+            Runner runner = new Runner( group, loader, mainClass, args.toArray( new String[args.size()] ) );
+
+            PrintStream systemOut = System.out;
+            PrintStream systemErr = System.err;
+            Map<String, String> previousProperties = new HashMap<String, String>();
+            SecurityManager securityManager = System.getSecurityManager();
+            PrintStream redirectedOut = new PrintStream( new Redirect( group, out, systemOut ), true );
+            PrintStream redirectedErr = new PrintStream( new Redirect( group, err, systemErr ), true );
+            try
+            {
+                for ( Map.Entry<Object, Object> entry : systemProperties.entrySet() )
+                {
+                    setProperty( (String) entry.getKey(), (String) entry.getValue(), previousProperties );
+                }
+                setProperty( "java.class.path", StringUtils.join( path.iterator(), File.pathSeparator ),
+                             previousProperties );
+                System.setOut( redirectedOut );
+                System.setErr( redirectedErr );
+                System.setSecurityManager( new ExitTrap( securityManager, group ) );
+
+                runner.start();
+                runner.join();
+                return runner.status;
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+                throw new JavaCommandException( "Interrupted while running " + mainClass, e );
+            }
+            finally
+            {
+                System.setSecurityManager( securityManager );
+                redirectedOut.flush();
+                redirectedErr.flush();
+                System.setOut( systemOut );
+                System.setErr( systemErr );
+                for ( Map.Entry<String, String> previous : previousProperties.entrySet() )
+                {
+                    if ( previous.getValue() == null )
+                    {
+                        System.clearProperty( previous.getKey() );
+                    }
+                    else
+                    {
+                        System.setProperty( previous.getKey(), previous.getValue() );
+                    }
+                }
+                try
+                {
+                    loader.close();
+                }
+                catch ( IOException e )
+                {
+                    log.debug( "Failed to close class loader of " + mainClass, e );
+                }
+            }
+        }
+    }
+
+    /**
+     * Set a system property, keeping its value before the run in <code>previousProperties</code>.
+     */
+    private static void setProperty( String key, String value, Map<String, String> previousProperties )
+    {
+        String previous = System.setProperty( key, value );
+        if ( !previousProperties.containsKey( key ) )
+        {
+            previousProperties.put( key, previous );
+        }
+    }
+
+    private static ClassLoader getPlatformClassLoader()
+    {
+        try
+        {
+            // Java 9+
+            return (ClassLoader) ClassLoader.class.getMethod( "getPlatformClassLoader" ).invoke( null );
+        }
+        catch ( Exception e )
+        {
+            // Java 8 : the extension class loader
+            return ClassLoader.getSystemClassLoader().getParent();
+        }
+    }
+
+    /**
+     * Thread running the main class, in its own thread group so that the output of the threads it starts can be told
+     * apart from the output of the other threads of the JVM.
+     */
+    private static class Runner
+        extends Thread
+    {
+        private final String mainClass;
+
+        private final String[] args;
+
+        private volatile int status;
+
+        Runner( ThreadGroup group, ClassLoader loader, String mainClass, String[] args )
+        {
+            super( group, "main" );
+            this.mainClass = mainClass;
+            this.args = args;
+            setContextClassLoader( loader );
+        }
+
+        @Override
+        public void run()
+        {
+            try
+            {
+                Class<?> main = Class.forName( mainClass, true, getContextClassLoader() );
+                main.getMethod( "main", String[].class ).invoke( null, (Object) args );
+                status = 0;
+            }
+            catch ( InvocationTargetException e )
+            {
+                status = getStatus( e.getCause() );
+            }
+            catch ( Throwable t )
+            {
+                status = getStatus( t );
+            }
+        }
+
+        private int getStatus( Throwable t )
+        {
+            if ( t instanceof ExitTrappedException )
+            {
+                return ( (ExitTrappedException) t ).status;
+            }
+            t.printStackTrace();
+            return 1;
+        }
+    }
+
+    /**
+     * Sends the lines written by the threads of the run to a consumer, and the other ones to the original stream.
+     */
+    private static class Redirect
+        extends OutputStream
+    {
+        private final ThreadGroup group;
+
+        private final StreamConsumer consumer;
+
+        private final PrintStream original;
+
+        private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+
+        /**
+         * Set while a consumer handles a line : consumers usually log to the standard streams themselves.
+         */
+        private static final ThreadLocal<Boolean> CONSUMING = new ThreadLocal<Boolean>();
+
+        Redirect( ThreadGroup group, StreamConsumer consumer, PrintStream original )
+        {
+            this.group = group;
+            this.consumer = consumer;
+            this.original = original;
+        }
+
+        private boolean isRunThread()
+        {
+            ThreadGroup current = Thread.currentThread().getThreadGroup();
+            return current != null && group.parentOf( current ) && CONSUMING.get() == null;
+        }
+
+        @Override
+        public void write( int b )
+            throws IOException
+        {
+            if ( !isRunThread() )
+            {
+                original.write( b );
+                return;
+            }
+            synchronized ( line )
+            {
+                if ( b == '\n' )
+                {
+                    flushLine();
+                }
+                else if ( b != '\r' )
+                {
+                    line.write( b );
+                }
+            }
+        }
+
+        @Override
+        public void write( byte[] b, int off, int len )
+            throws IOException
+        {
+            if ( !isRunThread() )
+            {
+                original.write( b, off, len );
+                return;
+            }
+            for ( int i = off; i < off + len; i++ )
+            {
+                write( b[i] );
+            }
+        }
+
+        @Override
+        public void flush()
+            throws IOException
+        {
+            if ( !isRunThread() )
+            {
+                original.flush();
+                return;
+            }
+            synchronized ( line )
+            {
+                if ( line.size() > 0 )
+                {
+                    flushLine();
+                }
+            }
+        }
+
+        private void flushLine()
+            throws IOException
+        {
+            String text = line.toString();
+            line.reset();
+            CONSUMING.set( Boolean.TRUE );
+            try
+            {
+                consumer.consumeLine( text );
+            }
+            finally
+            {
+                CONSUMING.remove();
+            }
+        }
+    }
+
+    /**
+     * Turns <code>System.exit()</code> calls of the run threads into {@link ExitTrappedException}, and delegates other
+     * checks to the security manager in place, if any.
+     */
+    private static class ExitTrap
+        extends SecurityManager
+    {
+        private final SecurityManager delegate;
+
+        private final ThreadGroup group;
+
+        ExitTrap( SecurityManager delegate, ThreadGroup group )
+        {
+            this.delegate = delegate;
+            this.group = group;
+        }
+
+        @Override
+        public void checkPermission( Permission perm )
+        {
+            if ( delegate != null )
+            {
+                delegate.checkPermission( perm );
+            }
+        }
+
+        @Override
+        public void checkPermission( Permission perm, Object context )
+        {
+            if ( delegate != null )
+            {
+                delegate.checkPermission( perm, context );
+            }
+        }
+
+        @Override
+        public void checkExit( int status )
+        {
+            ThreadGroup current = Thread.currentThread().getThreadGroup();
+            if ( group != null && current != null && group.parentOf( current ) )
+            {
+                throw new ExitTrappedException( status );
+            }
+            if ( delegate != null )
+            {
+                delegate.checkExit( status );
+            }
+        }
+    }
+
+    private static class ExitTrappedException
+        extends SecurityException
+    {
+        private static final long serialVersionUID = 1L;
+
+        final int status;
+
+        ExitTrappedException( int status )
+        {
+            super( "System.exit(" + status + ") trapped" );
+            this.status = status;
+        }
+    }
+
+    /**
+     * Class loader looking up classes and resources in its own classpath before its parent.
+     */
+    private static class ChildFirstClassLoader
+        extends URLClassLoader
+    {
+        ChildFirstClassLoader( URL[] urls, ClassLoader parent )
+        {
+            super( urls, parent );
+        }
+
+        @Override
+        protected Class<?> loadClass( String name, boolean resolve )
+            throws ClassNotFoundException
+        {
+            synchronized ( getClassLoadingLock( name ) )
+            {
+                Class<?> type = findLoadedClass( name );
+                if ( type == null && !name.startsWith( "java." ) )
+                {
+                    try
+                    {
+                        type = findClass( name );
+                    }
+                    catch ( ClassNotFoundException e )
+                    {
+                        // look in parent
+                    }
+                }
+                if ( type == null )
+                {
+                    type = getParent().loadClass( name );
+                }
+                if ( resolve )
+                {
+                    resolveClass( type );
+                }
+                return type;
+            }
+        }
+
+        @Override
+        public URL getResource( String name )
+        {
+            URL url = findResource( name );
+            return url != null ? url : super.getResource( name );
+        }
+    }
+}
@@ -20,6 +20,7 @@ package org.codehaus.mojo.gwt.shell;
  */
 
 import org.apache.maven.plugin.logging.Log;
+import org.codehaus.mojo.gwt.BuildTrace;
 import org.codehaus.plexus.util.Os;
 import org.codehaus.plexus.util.StringUtils;
 import org.codehaus.plexus.util.cli.CommandLineException;
@@ -29,12 +30,24 @@ import org.codehaus.plexus.util.cli.Commandline;
 import org.codehaus.plexus.util.cli.StreamConsumer;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.SocketTimeoutException;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
 
 /**
  * @author <a href="mailto:olamy@apache.org">Olivier Lamy</a>
@@ -62,14 +75,45 @@ public class JavaCommand
 
     private List<ClassPathProcessor> classPathProcessors = new ArrayList<ClassPathProcessor>();
 
+    private CompilerDaemon daemon;
+
+    private ForkBudget forkBudget;
+
+    private String workersArgument;
+
+    private boolean inProcess;
+
+    private ClassDataSharing classDataSharing;
+
+    private BuildTrace trace = BuildTrace.DISABLED;
+
+    private int outputBuffer;
+
+    private File spillDirectory;
+
+    /**
+     * File receiving the output while the command runs, when spilling it
+     */
+    private volatile OutputSpill spill;
+
+    /**
+     * Feature version of the JVMs, by java executable
+     */
+    private static final Map<String, Integer> JAVA_VERSIONS = new ConcurrentHashMap<String, Integer>();
+
     /**
      * A plexus-util StreamConsumer to redirect messages to plugin log
      */
     private StreamConsumer out = new StreamConsumer()
     {
         public void consumeLine( String line )
+            throws IOException
         {
-            log.info( line );
+            OutputSpill current = spill;
+            if ( current == null || current.write( line, false ) )
+            {
+                log.info( line );
+            }
         }
     };
 
@@ -79,8 +123,13 @@ public class JavaCommand
     private StreamConsumer err = new StreamConsumer()
     {
         public void consumeLine( String line )
+            throws IOException
         {
-            log.error( line );
+            OutputSpill current = spill;
+            if ( current == null || current.write( line, true ) )
+            {
+                log.error( line );
+            }
         }
     };
 
@@ -204,12 +253,147 @@ public class JavaCommand
         return this;
     }
 
+    public CompilerDaemon getDaemon()
+    {
+        return daemon;
+    }
+
+    /**
+     * Run the command in a long-lived {@link CompilerDaemon} worker instead of a new JVM. Environment variables are
+     * not passed to the worker.
+     */
+    public JavaCommand setDaemon( CompilerDaemon daemon )
+    {
+        this.daemon = daemon;
+        return this;
+    }
+
+    public ForkBudget getForkBudget()
+    {
+        return forkBudget;
+    }
+
+    /**
+     * Wait for the resources of the command (heap, and workers when the command has a {@link #setWorkersArgument
+     * workers argument}) to be available in the budget before running it.
+     */
+    public JavaCommand setForkBudget( ForkBudget forkBudget )
+    {
+        this.forkBudget = forkBudget;
+        return this;
+    }
+
+    public BuildTrace getTrace()
+    {
+        return trace;
+    }
+
+    /**
+     * Record the time spent waiting for resources, starting and running the command in the build trace.
+     */
+    public JavaCommand setTrace( BuildTrace trace )
+    {
+        this.trace = trace;
+        return this;
+    }
+
+    public String getWorkersArgument()
+    {
+        return workersArgument;
+    }
+
+    /**
+     * Name of the argument holding the number of worker threads of the command, such as <code>-localWorkers</code>.
+     * Its value is lowered to the number of workers granted by the {@link #setForkBudget fork budget}.
+     */
+    public JavaCommand setWorkersArgument( String workersArgument )
+    {
+        this.workersArgument = workersArgument;
+        return this;
+    }
+
+    public boolean isInProcess()
+    {
+        return inProcess;
+    }
+
+    /**
+     * Run the main class inside the Maven JVM in an isolated class loader instead of forking a new JVM. Only the
+     * <code>-D</code> JVM arguments and the system properties apply, environment variables are ignored. Commands are
+     * still forked when <code>System.exit()</code> can't be trapped in the Maven JVM, or when they have a time-out.
+     *
+     * @see InProcessRunner
+     */
+    public JavaCommand setInProcess( boolean inProcess )
+    {
+        this.inProcess = inProcess;
+        return this;
+    }
+
+    public ClassDataSharing getClassDataSharing()
+    {
+        return classDataSharing;
+    }
+
+    /**
+     * Start forks with a class-data sharing archive of the jars at the start of the classpath, created by the first
+     * fork. The classpath order is kept, so forks whose classpath starts with a directory don't use an archive.
+     */
+    public JavaCommand setClassDataSharing( ClassDataSharing classDataSharing )
+    {
+        this.classDataSharing = classDataSharing;
+        return this;
+    }
+
+    public int getOutputBuffer()
+    {
+        return outputBuffer;
+    }
+
+    /**
+     * Pass the output of the command to its consumers from a thread of its own, through a buffer of
+     * <code>outputBuffer</code> lines, so that slow consumers don't block the command on a full pipe. With 0, the
+     * output is consumed by the threads reading it.
+     */
+    public JavaCommand setOutputBuffer( int outputBuffer )
+    {
+        this.outputBuffer = outputBuffer;
+        return this;
+    }
+
+    public File getSpillDirectory()
+    {
+        return spillDirectory;
+    }
+
+    /**
+     * Write the output of the command to a file of this folder instead of the log, where only the errors and warnings
+     * are written. Consumers set with {@link #setOut} and {@link #setErr} still receive the whole output when they
+     * don't pass it to the default consumers.
+     */
+    public JavaCommand setSpillDirectory( File spillDirectory )
+    {
+        this.spillDirectory = spillDirectory;
+        return this;
+    }
+
+    public StreamConsumer getOut()
+    {
+        return out;
+    }
+
     public JavaCommand setOut( StreamConsumer out )
     {
         this.out = out;
         return this;
     }
 
+    public JavaCommand setErr( StreamConsumer err )
+    {
+        this.err = err;
+        return this;
+    }
+
     public JavaCommand addToClasspath( File file )
     {
         return addToClasspath( Collections.singleton( file ) );
@@ -269,19 +453,209 @@ public class JavaCommand
             classPathProcessor.postProcessClassPath( classpath );
         }
 
+        String name = mainClass.substring( mainClass.lastIndexOf( '.' ) + 1 );
+        BuildTrace.Span span = trace.start( "fork", name )
+            .arg( "mainClass", mainClass ).arg( "args", StringUtils.join( args.iterator(), " " ) );
+        AsyncOutput output = null;
+        StreamConsumer out = this.out;
+        StreamConsumer err = this.err;
+        boolean succeeded = false;
+        try
+        {
+            if ( spillDirectory != null )
+            {
+                try
+                {
+                    spill = new OutputSpill( spillDirectory, name );
+                }
+                catch ( IOException e )
+                {
+                    log.warn( "Failed to create an output file in " + spillDirectory + " : " + e.getMessage() );
+                }
+            }
+            if ( outputBuffer > 0 )
+            {
+                output = new AsyncOutput( name, outputBuffer );
+                output.start();
+                out = output.wrap( out );
+                err = output.wrap( err );
+            }
+
+            if ( inProcess )
+            {
+                if ( timeOut > 0 )
+                {
+                    log.warn( "A run in the Maven JVM can't be stopped on time-out, forking a new JVM to run "
+                        + mainClass );
+                }
+                else if ( InProcessRunner.isSupported() )
+                {
+                    span.arg( "mode", "in-process" );
+                    executeInProcess( out, err );
+                    succeeded = true;
+                    return;
+                }
+                else
+                {
+                    log.warn( "System.exit() can't be trapped in the Maven JVM, forking a new JVM to run "
+                        + mainClass );
+                }
+            }
+
+            BuildTrace.Span waiting = trace.start( "fork", "wait for workers and heap" );
+            ForkBudget.Grant grant = acquireBudget();
+            waiting.end();
+            try
+            {
+                if ( daemon != null )
+                {
+                    String java = getJavaCommand();
+                    if ( CompilerDaemon.isSupported( getJavaVersion( java ) ) )
+                    {
+                        span.arg( "mode", "daemon" );
+                        executeInDaemon( java, out, err );
+                        succeeded = true;
+                        return;
+                    }
+                    log.warn( "Compiler daemon is not supported by " + java + ", forking a new JVM" );
+                }
+                span.arg( "mode", "fork" );
+                executeFork( span, out, err );
+                succeeded = true;
+            }
+            finally
+            {
+                if ( grant != null )
+                {
+                    grant.release();
+                }
+            }
+        }
+        finally
+        {
+            closeOutput( output, succeeded );
+            span.end();
+        }
+    }
+
+    private void closeOutput( AsyncOutput output, boolean succeeded )
+    {
+        if ( output != null )
+        {
+            try
+            {
+                output.close();
+            }
+            catch ( IOException e )
+            {
+                log.warn( "Failed to consume the output of " + mainClass + " : " + e.getMessage() );
+            }
+        }
+        OutputSpill current = spill;
+        if ( current != null )
+        {
+            spill = null;
+            try
+            {
+                current.close();
+            }
+            catch ( IOException e )
+            {
+                log.warn( "Failed to write the output of " + mainClass + " to " + current.getFile() + " : "
+                    + e.getMessage() );
+            }
+            String message = "Output of " + mainClass + " (" + current.getLines() + " lines) written to "
+                + current.getFile();
+            if ( succeeded )
+            {
+                log.info( message );
+            }
+            else
+            {
+                log.error( message );
+            }
+        }
+    }
+
+    private ForkBudget.Grant acquireBudget()
+        throws JavaCommandException
+    {
+        if ( forkBudget == null )
+        {
+            return null;
+        }
+        int workers = 1;
+        int index = workersArgument != null ? args.indexOf( workersArgument ) : -1;
+        if ( index >= 0 && index + 1 < args.size() )
+        {
+            try
+            {
+                workers = Integer.parseInt( args.get( index + 1 ) );
+            }
+            catch ( NumberFormatException e )
+            {
+                index = -1;
+            }
+        }
+        long heap = ForkBudget.getHeap( getJvmArgs() );
+        ForkBudget.Grant grant;
+        try
+        {
+            grant = forkBudget.acquire( workers, heap );
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new JavaCommandException( "Interrupted while waiting for resources to run " + mainClass, e );
+        }
+        log.debug( "Granted " + grant.getWorkers() + " workers and " + heap + "m heap to run " + mainClass );
+        if ( index >= 0 && grant.getWorkers() < workers )
+        {
+            log.info( "Using " + grant.getWorkers() + " workers instead of " + workers
+                + " as the other forks of the build use the remaining ones" );
+            args.set( index + 1, String.valueOf( grant.getWorkers() ) );
+        }
+        return grant;
+    }
+
+    private void executeFork( BuildTrace.Span span, StreamConsumer out, StreamConsumer err )
+        throws JavaCommandException
+    {
+        String java = this.getJavaCommand();
+        File archive = null;
+        File classList = null;
         List<String> command = new ArrayList<String>();
         if (this.jvmArgs != null)
         {
             command.addAll( this.jvmArgs );
         }
-
-        List<String> path = new ArrayList<String>( classpath.size() );
-        for ( File file : classpath )
+        if ( classDataSharing != null && ClassDataSharing.isSupported( getJavaVersion( java ) ) )
         {
-            path.add( file.getAbsolutePath() );
+            if ( ClassDataSharing.getArchivedJars( classpath ).isEmpty() )
+            {
+                log.info( "Class-data sharing disabled : the classpath starts with a directory" );
+            }
+            else
+            {
+                try
+                {
+                    archive = classDataSharing.getArchive( java, classpath );
+                    if ( archive.isFile() )
+                    {
+                        command.addAll( classDataSharing.getArchiveArguments( archive ) );
+                    }
+                    else
+                    {
+                        classList = File.createTempFile( "gwt-", ".classlist" );
+                        command.add( "-XX:DumpLoadedClassList=" + classList.getAbsolutePath() );
+                    }
+                }
+                catch ( IOException e )
+                {
+                    log.warn( "Class-data sharing disabled : " + e.getMessage() );
+                }
+            }
         }
-        environment("CLASSPATH", StringUtils.join( path.iterator(), File.pathSeparator ));
-
 
         if ( systemProperties != null )
         {
@@ -293,18 +667,29 @@ public class JavaCommand
         command.add( mainClass );
         command.addAll( args );
 
+        File launchFile = null;
+        ProcessSampler sampler = null;
         try
         {
-            String[] arguments = command.toArray( new String[command.size()] );
-
             // On windows, the default Shell will fall into command line length limitation issue
             // On Unixes, not using a Shell breaks the classpath (NoClassDefFoundError:
             // com/google/gwt/dev/Compiler).
             Commandline cmd =
                 Os.isFamily( Os.FAMILY_WINDOWS ) ? new Commandline( new JavaShell() ) : new Commandline();
 
-            cmd.setExecutable( this.getJavaCommand() );
-            cmd.addArguments( arguments );
+            cmd.setExecutable( java );
+            // keep the command line short : the classpath may hold hundreds of jars
+            if ( getJavaVersion( java ) >= 9 )
+            {
+                launchFile = writeArgumentsFile( classpath, command );
+                cmd.addArguments( new String[] { "@" + launchFile.getAbsolutePath() } );
+            }
+            else
+            {
+                launchFile = writePathingJar( classpath );
+                cmd.addArguments( new String[] { "-classpath", launchFile.getAbsolutePath() } );
+                cmd.addArguments( command.toArray( new String[command.size()] ) );
+            }
             if ( env != null )
             {
                 for ( Map.Entry<?, ?> entry : env.entrySet() )
@@ -314,20 +699,45 @@ public class JavaCommand
                 }
             }
 
-            log.debug( "Execute command :\n" + cmd.toString() );
+            log.debug( "Execute command :\n" + cmd.toString() + "\nwith arguments :\n" + quote( command ) );
+            StreamConsumer forkOut = out;
+            StreamConsumer forkErr = err;
+            BuildTrace.Span startup = trace.start( "fork", "JVM startup" );
+            if ( trace.isEnabled() )
+            {
+                // the first output line tells the JVM has started
+                forkOut = endOnFirstLine( out, startup );
+                forkErr = endOnFirstLine( err, startup );
+                if ( ProcessSampler.isSupported() )
+                {
+                    sampler = new ProcessSampler( launchFile.getAbsolutePath() );
+                    sampler.start();
+                }
+            }
             int status;
-            if ( timeOut > 0 )
+            try
             {
-                status = CommandLineUtils.executeCommandLine( cmd, out, err, timeOut );
+                if ( timeOut > 0 )
+                {
+                    status = CommandLineUtils.executeCommandLine( cmd, forkOut, forkErr, timeOut );
+                }
+                else
+                {
+                    status = CommandLineUtils.executeCommandLine( cmd, forkOut, forkErr );
+                }
             }
-            else
+            finally
             {
-                status = CommandLineUtils.executeCommandLine( cmd, out, err );
+                startup.end();
             }
 
+            if ( status == 0 && classList != null )
+            {
+                classDataSharing.dump( java, classpath, classList, archive );
+            }
             if ( status != 0 )
             {
-                throw new JavaCommandException( "Command [[\n" + cmd.toString()
+                throw new JavaCommandException( "Command [[\n" + java + " " + quote( command )
                     + "\n]] failed with status " + status );
             }
         }
@@ -344,9 +754,286 @@ public class JavaCommand
         {
             throw new JavaCommandException( "Failed to execute command line :\n" + command, e );
         }
+        catch ( IOException e )
+        {
+            throw new JavaCommandException( "Failed to write the launch file of " + mainClass, e );
+        }
+        finally
+        {
+            if ( sampler != null )
+            {
+                sampler.finish();
+                addSamples( span, sampler );
+            }
+            if ( launchFile != null && !launchFile.delete() )
+            {
+                launchFile.deleteOnExit();
+            }
+            if ( classList != null )
+            {
+                classList.delete();
+            }
+        }
+    }
+
+    private static StreamConsumer endOnFirstLine( final StreamConsumer consumer, final BuildTrace.Span span )
+    {
+        return new StreamConsumer()
+        {
+            public void consumeLine( String line )
+                throws IOException
+            {
+                span.end();
+                consumer.consumeLine( line );
+            }
+        };
+    }
+
+    private static void addSamples( BuildTrace.Span span, ProcessSampler sampler )
+    {
+        if ( sampler.getPid() == null )
+        {
+            return;
+        }
+        span.arg( "pid", Long.valueOf( sampler.getPid() ) );
+        if ( sampler.getCpuTime() >= 0 )
+        {
+            span.arg( "cpuMs", sampler.getCpuTime() );
+        }
+        if ( sampler.getPeakMemory() >= 0 )
+        {
+            span.arg( "peakRssMb", sampler.getPeakMemory() / ( 1024 * 1024 ) );
+        }
+        if ( sampler.getExitTime() != 0 )
+        {
+            // time to drain the output of the process once it has ended, within the sampling interval
+            span.arg( "outputDrainMs", ( System.nanoTime() - sampler.getExitTime() ) / 1000000 );
+        }
+    }
+
+    /**
+     * Write the classpath and arguments to a java launcher argument file (<code>java @file</code>, Java 9+).
+     */
+    static File writeArgumentsFile( List<File> classpath, List<String> arguments )
+        throws IOException
+    {
+        List<String> path = new ArrayList<String>( classpath.size() );
+        for ( File file : classpath )
+        {
+            path.add( file.getAbsolutePath() );
+        }
+        File file = File.createTempFile( "gwt-", ".args" );
+        Writer writer = new OutputStreamWriter( new FileOutputStream( file ), Charset.defaultCharset() );
+        try
+        {
+            writer.write( "-classpath\n" );
+            writer.write( quoteArgument( StringUtils.join( path.iterator(), File.pathSeparator ) ) );
+            writer.write( '\n' );
+            for ( String argument : arguments )
+            {
+                writer.write( quoteArgument( argument ) );
+                writer.write( '\n' );
+            }
+        }
+        finally
+        {
+            writer.close();
+        }
+        return file;
+    }
+
+    /**
+     * Quote an argument for an argument file, where backslashes are escape characters.
+     */
+    static String quoteArgument( String argument )
+    {
+        return '"' + argument.replace( "\\", "\\\\" ).replace( "\"", "\\\"" ) + '"';
+    }
+
+    /**
+     * Write an empty jar whose manifest <code>Class-Path</code> holds the classpath, for Java 8 JVMs that don't support
+     * argument files.
+     */
+    static File writePathingJar( List<File> classpath )
+        throws IOException
+    {
+        StringBuilder path = new StringBuilder();
+        for ( File element : classpath )
+        {
+            String url = element.getAbsoluteFile().toURI().toString();
+            if ( element.isDirectory() && !url.endsWith( "/" ) )
+            {
+                url += "/";
+            }
+            if ( path.length() > 0 )
+            {
+                path.append( ' ' );
+            }
+            path.append( url );
+        }
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put( Attributes.Name.MANIFEST_VERSION, "1.0" );
+        manifest.getMainAttributes().put( Attributes.Name.CLASS_PATH, path.toString() );
+
+        File file = File.createTempFile( "gwt-classpath-", ".jar" );
+        JarOutputStream jar = new JarOutputStream( new FileOutputStream( file ), manifest );
+        jar.close();
+        return file;
+    }
+
+    /**
+     * Arguments as shown by plexus-utils command lines.
+     */
+    private static String quote( List<String> arguments )
+    {
+        StringBuilder quoted = new StringBuilder();
+        for ( String argument : arguments )
+        {
+            if ( quoted.length() > 0 )
+            {
+                quoted.append( ' ' );
+            }
+            quoted.append( '\'' ).append( argument ).append( '\'' );
+        }
+        return quoted.toString();
+    }
+
+    private void executeInDaemon( String java, StreamConsumer out, StreamConsumer err )
+        throws JavaCommandException
+    {
+        log.debug( "Execute in compiler daemon :\n" + mainClass + " " + args );
+        int status;
+        try
+        {
+            status = daemon.execute( java, getJvmArgs(), classpath, mainClass, args, systemProperties, out, err,
+                                     timeOut );
+        }
+        catch ( SocketTimeoutException e )
+        {
+            throw new JavaCommandException( mainClass + " " + args + " has been abandoned in compiler daemon on "
+                + "time-out after " + timeOut + " seconds", e );
+        }
+        catch ( IOException e )
+        {
+            throw new JavaCommandException( "Failed to execute " + mainClass + " in compiler daemon", e );
+        }
+        if ( status != 0 )
+        {
+            throw new JavaCommandException( mainClass + " " + args + " failed in compiler daemon with status "
+                + status );
+        }
+    }
+
+    private void executeInProcess( StreamConsumer out, StreamConsumer err )
+        throws JavaCommandException
+    {
+        Properties properties = new Properties();
+        for ( String jvmArg : getJvmArgs() )
+        {
+            if ( jvmArg.startsWith( "-D" ) )
+            {
+                int index = jvmArg.indexOf( '=' );
+                properties.setProperty( jvmArg.substring( 2, index > 0 ? index : jvmArg.length() ),
+                                        index > 0 ? jvmArg.substring( index + 1 ) : "" );
+            }
+            else
+            {
+                log.debug( "Ignoring JVM argument " + jvmArg + " to run " + mainClass + " in process" );
+            }
+        }
+        if ( systemProperties != null )
+        {
+            properties.putAll( systemProperties );
+        }
+
+        log.debug( "Execute in process :\n" + mainClass + " " + args );
+        int status = new InProcessRunner( log ).run( mainClass, classpath, args, properties, out, err );
+        if ( status != 0 )
+        {
+            throw new JavaCommandException( mainClass + " " + args + " failed in process with status " + status );
+        }
+    }
+
+    /**
+     * Detect the feature version (8, 11, 17...) of a JVM from the <code>release</code> file of its installation.
+     *
+     * @param java path to the java executable
+     * @return the feature version, 8 if it can't be detected
+     */
+    static int getJavaVersion( String java )
+    {
+        Integer version = JAVA_VERSIONS.get( java );
+        if ( version == null )
+        {
+            version = detectJavaVersion( java );
+            JAVA_VERSIONS.put( java, version );
+        }
+        return version;
+    }
+
+    private static int detectJavaVersion( String java )
+    {
+        // <home>/bin/java, or <jdk>/jre/bin/java for Java 8
+        File home = new File( java ).getAbsoluteFile().getParentFile().getParentFile();
+        for ( File dir : new File[] { home, home.getParentFile() } )
+        {
+            if ( dir == null )
+            {
+                continue;
+            }
+            File release = new File( dir, "release" );
+            if ( release.isFile() )
+            {
+                Properties properties = new Properties();
+                try
+                {
+                    InputStream in = new FileInputStream( release );
+                    try
+                    {
+                        properties.load( in );
+                    }
+                    finally
+                    {
+                        in.close();
+                    }
+                }
+                catch ( IOException e )
+                {
+                    break;
+                }
+                String value = properties.getProperty( "JAVA_VERSION" );
+                if ( value != null )
+                {
+                    return parseJavaVersion( value.replace( "\"", "" ) );
+                }
+            }
+        }
+        if ( home.equals( new File( System.getProperty( "java.home" ) ).getAbsoluteFile() ) )
+        {
+            return parseJavaVersion( System.getProperty( "java.specification.version" ) );
+        }
+        return 8;
+    }
+
+    static int parseJavaVersion( String version )
+    {
+        String[] parts = version.trim().split( "[._+-]" );
+        try
+        {
+            int major = Integer.parseInt( parts[0] );
+            if ( major == 1 && parts.length > 1 )
+            {
+                return Integer.parseInt( parts[1] );
+            }
+            return major;
+        }
+        catch ( NumberFormatException e )
+        {
+            return 8;
+        }
     }
 
-    private String getJavaCommand()
+    String getJavaCommand()
         throws JavaCommandException
     {
         if ( StringUtils.isEmpty( jvm ) )
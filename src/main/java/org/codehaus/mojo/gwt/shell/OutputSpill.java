@@ -0,0 +1,103 @@
+package org.codehaus.mojo.gwt.shell;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Pattern;
+
+/**
+ * File receiving the whole output of a command, only the warnings and errors being echoed to the Maven log.
+ *
+ * @since 8.28
+ */
+class OutputSpill
+{
+    /**
+     * Warnings and errors of the GWT tree logger (<code>[WARN]</code>, <code>[ERROR]</code>) and of the JVM.
+     */
+    private static final Pattern PROBLEM =
+        Pattern.compile( "\\[(WARN|ERROR)\\]|^\\s*(WARNING|ERROR|SEVERE|Exception in thread)\\b" );
+
+    private final File file;
+
+    private final Writer writer;
+
+    private int lines;
+
+    /**
+     * @param directory folder of the file, created if needed
+     * @param name name of the command, used as prefix of the file name
+     * @throws IOException if the file cannot be created
+     */
+    OutputSpill( File directory, String name )
+        throws IOException
+    {
+        directory.mkdirs();
+        file = File.createTempFile( name + "-", ".log", directory );
+        writer = new BufferedWriter( new OutputStreamWriter( new FileOutputStream( file ), StandardCharsets.UTF_8 ) );
+    }
+
+    File getFile()
+    {
+        return file;
+    }
+
+    /**
+     * Write a line to the file.
+     *
+     * @param line output line
+     * @param error <code>true</code> for a line of the error stream, always echoed
+     * @return <code>true</code> if the line is to be echoed to the log
+     * @throws IOException if the file cannot be written
+     */
+    synchronized boolean write( String line, boolean error )
+        throws IOException
+    {
+        writer.write( line );
+        writer.write( '\n' );
+        lines++;
+        return error || isProblem( line );
+    }
+
+    static boolean isProblem( String line )
+    {
+        return PROBLEM.matcher( line ).find();
+    }
+
+    /**
+     * @return the number of lines written
+     */
+    synchronized int getLines()
+    {
+        return lines;
+    }
+
+    synchronized void close()
+        throws IOException
+    {
+        writer.close();
+    }
+}
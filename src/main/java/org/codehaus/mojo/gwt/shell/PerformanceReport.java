@@ -0,0 +1,216 @@
+package org.codehaus.mojo.gwt.shell;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Performance record of a goal execution (duration, Java programs run, bytes written), appended as a JSON line to a
+ * report shared by the builds, such as the ones of the performance suite of the integration tests, to follow the
+ * effect of the up-to-date checks and caches over builds.
+ *
+ * @since 8.28
+ */
+public class PerformanceReport
+{
+    private final Map<String, Object> record = new LinkedHashMap<String, Object>();
+
+    public PerformanceReport()
+    {
+        record.put( "timestamp", System.currentTimeMillis() );
+    }
+
+    /**
+     * Add a field to the record, ignored if <code>null</code>.
+     *
+     * @return this report
+     */
+    public PerformanceReport put( String key, Object value )
+    {
+        if ( value != null )
+        {
+            record.put( key, value );
+        }
+        return this;
+    }
+
+    Map<String, Object> getRecord()
+    {
+        return record;
+    }
+
+    /**
+     * Append the record as a line of the report, locking the file as the builds of a parallel integration test run
+     * share the same report.
+     *
+     * @param file report to append to
+     * @throws IOException if the report cannot be written
+     */
+    public void append( File file )
+        throws IOException
+    {
+        byte[] line = ( toJson() + "\n" ).getBytes( StandardCharsets.UTF_8 );
+        file.getAbsoluteFile().getParentFile().mkdirs();
+        FileOutputStream out = new FileOutputStream( file, true );
+        try
+        {
+            FileChannel channel = out.getChannel();
+            FileLock lock = channel.lock();
+            try
+            {
+                channel.write( ByteBuffer.wrap( line ) );
+            }
+            finally
+            {
+                lock.release();
+            }
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+
+    String toJson()
+    {
+        StringBuilder json = new StringBuilder( "{" );
+        for ( Map.Entry<String, Object> field : record.entrySet() )
+        {
+            if ( json.length() > 1 )
+            {
+                json.append( ", " );
+            }
+            json.append( quote( field.getKey() ) ).append( ": " );
+            Object value = field.getValue();
+            if ( value instanceof Number || value instanceof Boolean )
+            {
+                json.append( value );
+            }
+            else if ( value instanceof Map )
+            {
+                json.append( '{' );
+                boolean first = true;
+                for ( Map.Entry<?, ?> entry : ( (Map<?, ?>) value ).entrySet() )
+                {
+                    json.append( first ? "" : ", " ).append( quote( String.valueOf( entry.getKey() ) ) )
+                        .append( ": " ).append( entry.getValue() );
+                    first = false;
+                }
+                json.append( '}' );
+            }
+            else
+            {
+                json.append( quote( String.valueOf( value ) ) );
+            }
+        }
+        return json.append( '}' ).toString();
+    }
+
+    /**
+     * Sum the size of the files of a folder modified since a date. Dates are compared to the second, as file systems
+     * may not record them more precisely, so files written by a previous goal in the same second are counted too.
+     * Build logs are left out, as they are written by the build running the goals.
+     *
+     * @param directory folder to walk
+     * @param since date in milliseconds
+     * @return the size of the modified files, in bytes
+     * @throws IOException if the folder cannot be walked
+     */
+    public static long getBytesWritten( File directory, long since )
+        throws IOException
+    {
+        if ( !directory.isDirectory() )
+        {
+            return 0;
+        }
+        final long from = since - since % 1000;
+        final long[] bytes = new long[1];
+        Files.walkFileTree( directory.toPath(), new SimpleFileVisitor<Path>()
+        {
+            @Override
+            public FileVisitResult visitFile( Path file, BasicFileAttributes attrs )
+            {
+                if ( attrs.isRegularFile() && attrs.lastModifiedTime().toMillis() >= from
+                    && !file.getFileName().toString().endsWith( ".log" ) )
+                {
+                    bytes[0] += attrs.size();
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed( Path file, IOException e )
+            {
+                // removed while walking
+                return FileVisitResult.CONTINUE;
+            }
+        } );
+        return bytes[0];
+    }
+
+    private static String quote( String value )
+    {
+        StringBuilder quoted = new StringBuilder( "\"" );
+        for ( char c : value.toCharArray() )
+        {
+            switch ( c )
+            {
+                case '"':
+                    quoted.append( "\\\"" );
+                    break;
+                case '\\':
+                    quoted.append( "\\\\" );
+                    break;
+                case '\n':
+                    quoted.append( "\\n" );
+                    break;
+                case '\r':
+                    quoted.append( "\\r" );
+                    break;
+                case '\t':
+                    quoted.append( "\\t" );
+                    break;
+                default:
+                    if ( c < ' ' )
+                    {
+                        quoted.append( String.format( "\\u%04x", (int) c ) );
+                    }
+                    else
+                    {
+                        quoted.append( c );
+                    }
+            }
+        }
+        return quoted.append( '"' ).toString();
+    }
+}
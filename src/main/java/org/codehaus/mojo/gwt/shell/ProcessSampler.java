@@ -0,0 +1,214 @@
+package org.codehaus.mojo.gwt.shell;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * Samples the CPU time and peak resident memory of a forked JVM from the Linux <code>/proc</code> file system while
+ * it runs. The process is found by a marker of its command line, as plexus-utils doesn't expose the forked process.
+ * <p>
+ * Values are those of the last sample, taken at most {@link #INTERVAL} milliseconds before the process ended.
+ * Nothing is sampled on other systems.
+ *
+ * @since 8.28
+ */
+class ProcessSampler
+    extends Thread
+{
+    static final long INTERVAL = 200;
+
+    /**
+     * Clock ticks per second of the CPU times of <code>/proc/[pid]/stat</code>, 100 on all Linux architectures.
+     */
+    private static final long CLOCK_TICKS = 100;
+
+    private static final File PROC = new File( "/proc" );
+
+    private final String marker;
+
+    private volatile boolean stopped;
+
+    private volatile String pid;
+
+    private volatile long cpuTime = -1;
+
+    private volatile long peakMemory = -1;
+
+    private volatile long exitTime;
+
+    /**
+     * @param marker a string only found in the command line of the process, such as the path of its argument file
+     */
+    ProcessSampler( String marker )
+    {
+        super( "gwt-process-sampler" );
+        this.marker = marker;
+        setDaemon( true );
+    }
+
+    static boolean isSupported()
+    {
+        return new File( PROC, "self/stat" ).isFile();
+    }
+
+    @Override
+    public void run()
+    {
+        while ( !stopped )
+        {
+            sample();
+            try
+            {
+                Thread.sleep( INTERVAL );
+            }
+            catch ( InterruptedException e )
+            {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Stop sampling.
+     */
+    void finish()
+    {
+        stopped = true;
+        interrupt();
+    }
+
+    private void sample()
+    {
+        if ( pid == null )
+        {
+            pid = find();
+            return;
+        }
+        if ( exitTime != 0 )
+        {
+            return;
+        }
+        try
+        {
+            String stat = read( new File( PROC, pid + "/stat" ) );
+            // the fields following the command name, starting with the state (field 3)
+            String[] fields = stat.substring( stat.lastIndexOf( ')' ) + 2 ).split( " " );
+            if ( "Z".equals( fields[0] ) )
+            {
+                exitTime = System.nanoTime();
+                return;
+            }
+            cpuTime = ( Long.parseLong( fields[11] ) + Long.parseLong( fields[12] ) ) * 1000 / CLOCK_TICKS;
+            for ( String line : read( new File( PROC, pid + "/status" ) ).split( "\n" ) )
+            {
+                if ( line.startsWith( "VmHWM:" ) )
+                {
+                    // in kB
+                    String value = line.substring( 6 ).trim();
+                    peakMemory = Long.parseLong( value.substring( 0, value.indexOf( ' ' ) ) ) * 1024;
+                }
+            }
+        }
+        catch ( IOException e )
+        {
+            exitTime = System.nanoTime();
+        }
+        catch ( RuntimeException e )
+        {
+            // unexpected format, keep the last sample
+        }
+    }
+
+    /**
+     * @return the pid of the JVM with the marker in its command line, rather than the shell running it
+     */
+    private String find()
+    {
+        String[] pids = PROC.list();
+        if ( pids == null )
+        {
+            return null;
+        }
+        for ( String candidate : pids )
+        {
+            if ( candidate.isEmpty() || !Character.isDigit( candidate.charAt( 0 ) ) )
+            {
+                continue;
+            }
+            try
+            {
+                String commandLine = read( new File( PROC, candidate + "/cmdline" ) );
+                int end = commandLine.indexOf( '\0' );
+                String executable = end < 0 ? commandLine : commandLine.substring( 0, end );
+                if ( commandLine.contains( marker ) && !executable.endsWith( "sh" ) )
+                {
+                    return candidate;
+                }
+            }
+            catch ( IOException e )
+            {
+                // process ended or not readable
+            }
+        }
+        return null;
+    }
+
+    private static String read( File file )
+        throws IOException
+    {
+        return new String( Files.readAllBytes( file.toPath() ), StandardCharsets.UTF_8 );
+    }
+
+    /**
+     * @return the pid of the process, <code>null</code> if not found
+     */
+    String getPid()
+    {
+        return pid;
+    }
+
+    /**
+     * @return the CPU time of the process in milliseconds, -1 if unknown
+     */
+    long getCpuTime()
+    {
+        return cpuTime;
+    }
+
+    /**
+     * @return the peak resident memory of the process in bytes, -1 if unknown
+     */
+    long getPeakMemory()
+    {
+        return peakMemory;
+    }
+
+    /**
+     * @return the time the process was seen ended, as {@link System#nanoTime()}, 0 if not seen
+     */
+    long getExitTime()
+    {
+        return exitTime;
+    }
+}
@@ -0,0 +1,42 @@
+package org.codehaus.mojo.gwt.shell;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+
+import org.codehaus.plexus.util.cli.StreamConsumer;
+
+/**
+ * Consumer of output lines needing the time they were read from the command, rather than the time they reach the
+ * consumer, as lines are buffered by {@link AsyncOutput}.
+ *
+ * @since 8.28
+ */
+public interface TimedStreamConsumer
+    extends StreamConsumer
+{
+    /**
+     * @param line output line
+     * @param time {@link System#nanoTime()} when the line was read
+     * @throws IOException if the line cannot be consumed
+     */
+    void consumeLine( String line, long time )
+        throws IOException;
+}
@@ -0,0 +1,206 @@
+package org.codehaus.mojo.gwt.shell;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Local cache of compiled widgetsets, shared by all the projects and workspaces of a machine.
+ * <p>
+ * Entries are keyed by the {@link CompileFingerprint} of the compilation inputs and hold a copy of the module
+ * directory of the <code>-war</code> output, and of the <code>-extra</code> output when one was produced. Entries are
+ * written to a temporary directory and then renamed, so concurrent builds never see a partial entry. The least
+ * recently used entries are removed when the cache grows over its size limit.
+ *
+ * @since 8.28
+ */
+public class WidgetsetCache
+{
+    private static final String WAR = "war";
+
+    private static final String EXTRA = "extra";
+
+    private static final String TEMP_PREFIX = ".tmp-";
+
+    private final File directory;
+
+    private final long maxSize;
+
+    private final Log log;
+
+    /**
+     * @param directory root directory of the cache
+     * @param maxSize maximum size of the cache in bytes
+     * @param log logger
+     */
+    public WidgetsetCache( File directory, long maxSize, Log log )
+    {
+        this.directory = directory;
+        this.maxSize = maxSize;
+        this.log = log;
+    }
+
+    /**
+     * Restore a compiled module from the cache.
+     *
+     * @param fingerprint fingerprint of the compilation inputs
+     * @param moduleOutput module directory in the <code>-war</code> output
+     * @param extraOutput module directory in the <code>-extra</code> output, <code>null</code> if not used
+     * @return <code>true</code> if the module was restored, <code>false</code> if the cache has no such entry
+     */
+    public boolean restore( String fingerprint, File moduleOutput, File extraOutput )
+    {
+        File entry = new File( directory, fingerprint );
+        File war = new File( entry, WAR );
+        File extra = new File( entry, EXTRA );
+        if ( !war.isDirectory() || ( extraOutput != null && !extra.isDirectory() ) )
+        {
+            return false;
+        }
+        try
+        {
+            copy( war, moduleOutput );
+            if ( extraOutput != null )
+            {
+                copy( extra, extraOutput );
+            }
+            // mark the entry as recently used
+            entry.setLastModified( System.currentTimeMillis() );
+            return true;
+        }
+        catch ( IOException e )
+        {
+            // entry may have been evicted by a concurrent build
+            log.warn( "Failed to restore widgetset from cache " + entry + " : " + e.getMessage() );
+            FileUtils.deleteQuietly( moduleOutput );
+            if ( extraOutput != null )
+            {
+                FileUtils.deleteQuietly( extraOutput );
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Store a compiled module in the cache, then evict old entries if the cache is too large.
+     *
+     * @param fingerprint fingerprint of the compilation inputs
+     * @param moduleOutput module directory in the <code>-war</code> output
+     * @param extraOutput module directory in the <code>-extra</code> output, <code>null</code> if not used
+     */
+    public void store( String fingerprint, File moduleOutput, File extraOutput )
+    {
+        File entry = new File( directory, fingerprint );
+        if ( entry.exists() || !moduleOutput.isDirectory() )
+        {
+            return;
+        }
+        File temp = new File( directory, TEMP_PREFIX + UUID.randomUUID() );
+        try
+        {
+            FileUtils.copyDirectory( moduleOutput, new File( temp, WAR ) );
+            if ( extraOutput != null )
+            {
+                File extra = new File( temp, EXTRA );
+                if ( extraOutput.isDirectory() )
+                {
+                    FileUtils.copyDirectory( extraOutput, extra );
+                }
+                else
+                {
+                    extra.mkdirs();
+                }
+            }
+            if ( !temp.renameTo( entry ) )
+            {
+                // stored meanwhile by a concurrent build
+                FileUtils.deleteDirectory( temp );
+            }
+        }
+        catch ( IOException e )
+        {
+            log.warn( "Failed to store widgetset in cache " + directory + " : " + e.getMessage() );
+            FileUtils.deleteQuietly( temp );
+            return;
+        }
+        evict();
+    }
+
+    /**
+     * Remove the least recently used entries until the cache fits in its size limit.
+     */
+    void evict()
+    {
+        File[] files = directory.listFiles();
+        if ( files == null )
+        {
+            return;
+        }
+        List<File> entries = new ArrayList<File>();
+        long size = 0;
+        for ( File file : files )
+        {
+            if ( file.isDirectory() && !file.getName().startsWith( TEMP_PREFIX ) )
+            {
+                entries.add( file );
+                size += FileUtils.sizeOfDirectory( file );
+            }
+        }
+        Collections.sort( entries, new Comparator<File>()
+        {
+            public int compare( File o1, File o2 )
+            {
+                return Long.compare( o1.lastModified(), o2.lastModified() );
+            }
+        } );
+        for ( File entry : entries )
+        {
+            if ( size <= maxSize )
+            {
+                break;
+            }
+            long entrySize = FileUtils.sizeOfDirectory( entry );
+            log.debug( "Evicting widgetset cache entry " + entry.getName() );
+            if ( FileUtils.deleteQuietly( entry ) )
+            {
+                size -= entrySize;
+            }
+        }
+    }
+
+    private void copy( File source, File target )
+        throws IOException
+    {
+        if ( target.exists() )
+        {
+            FileUtils.deleteDirectory( target );
+        }
+        FileUtils.copyDirectory( source, target );
+    }
+}
@@ -20,25 +20,24 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
-import java.net.MalformedURLException;
-import java.net.URL;
-import java.net.URLClassLoader;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
 import org.apache.maven.artifact.Artifact;
+import org.apache.maven.execution.MavenSession;
 import org.apache.maven.model.Resource;
 import org.apache.maven.plugin.logging.Log;
 import org.apache.maven.project.MavenProject;
 import org.codehaus.mojo.gwt.ClasspathBuilder;
 import org.codehaus.mojo.gwt.ClasspathBuilderException;
 import org.codehaus.mojo.gwt.GwtModule;
+import org.codehaus.mojo.gwt.GwtModuleCache;
+import org.codehaus.mojo.gwt.GwtModuleLocator;
 import org.codehaus.mojo.gwt.GwtModuleReader;
-import org.codehaus.plexus.util.DirectoryScanner;
+import org.codehaus.mojo.gwt.SourceTreeIndex;
 import org.codehaus.plexus.util.ReaderFactory;
 import org.codehaus.plexus.util.xml.Xpp3Dom;
 import org.codehaus.plexus.util.xml.Xpp3DomBuilder;
@@ -58,11 +57,31 @@ public class DefaultGwtModuleReader
 
     private Log log;
 
+    private GwtModuleCache moduleCache;
+
+    private SourceTreeIndex sourceTreeIndex;
+
+    private GwtModuleLocator moduleLocator;
+
+    private String moduleLocatorHash;
+
     public DefaultGwtModuleReader( MavenProject mavenProject, Log log, ClasspathBuilder classpathBuilder )
+    {
+        this( mavenProject, log, classpathBuilder, null );
+    }
+
+    /**
+     * @param session current Maven session to share the parsed modules with, or <code>null</code>
+     * @since 8.28
+     */
+    public DefaultGwtModuleReader( MavenProject mavenProject, Log log, ClasspathBuilder classpathBuilder,
+                                   MavenSession session )
     {
         this.mavenProject = mavenProject;
         this.log = log;
         this.classpathBuilder = classpathBuilder;
+        this.moduleCache = new GwtModuleCache( session );
+        this.sourceTreeIndex = new SourceTreeIndex( session );
     }
 
     public List<String> getGwtModules()
@@ -73,31 +92,13 @@ public class DefaultGwtModuleReader
         Collection<String> sourcePaths = (Collection<String>) mavenProject.getCompileSourceRoots();
         for ( String sourcePath : sourcePaths )
         {
-            File sourceDirectory = new File( sourcePath );
-            if ( sourceDirectory.exists() )
-            {
-                DirectoryScanner scanner = new DirectoryScanner();
-                scanner.setBasedir( sourceDirectory.getAbsolutePath() );
-                scanner.setIncludes( new String[] { "**/*" + GWT_MODULE_EXTENSION } );
-                scanner.scan();
-
-                mods.addAll( Arrays.asList( scanner.getIncludedFiles() ) );
-            }
+            mods.addAll( sourceTreeIndex.get( new File( sourcePath ) ).getModules() );
         }
 
         Collection<Resource> resources = (Collection<Resource>) mavenProject.getResources();
         for ( Resource resource : resources )
         {
-            File resourceDirectoryFile = new File( resource.getDirectory() );
-            if ( !resourceDirectoryFile.exists() )
-            {
-                continue;
-            }
-            DirectoryScanner scanner = new DirectoryScanner();
-            scanner.setBasedir( resource.getDirectory() );
-            scanner.setIncludes( new String[] { "**/*" + GWT_MODULE_EXTENSION } );
-            scanner.scan();
-            mods.addAll( Arrays.asList( scanner.getIncludedFiles() ) );
+            mods.addAll( sourceTreeIndex.get( new File( resource.getDirectory() ) ).getModules() );
         }
 
         if ( mods.isEmpty() )
@@ -120,6 +121,39 @@ public class DefaultGwtModuleReader
 
     public GwtModule readModule( String name )
         throws GwtModuleReaderException
+    {
+        String classpathHash;
+        try
+        {
+            classpathHash =
+                classpathBuilder.getClasspathHash( mavenProject, Artifact.SCOPE_COMPILE, mavenProject.getArtifacts(),
+                                                   false );
+        }
+        catch ( ClasspathBuilderException e )
+        {
+            throw new GwtModuleReaderException( e.getMessage(), e );
+        }
+        GwtModule module = moduleCache.get( classpathHash, name );
+        if ( module == null )
+        {
+            module = moduleCache.put( classpathHash, findModule( name, classpathHash ) );
+        }
+        return module;
+    }
+
+    private synchronized GwtModuleLocator getModuleLocator( String classpathHash )
+        throws ClasspathBuilderException
+    {
+        if ( moduleLocator == null || !classpathHash.equals( moduleLocatorHash ) )
+        {
+            moduleLocator = new GwtModuleLocator( getClasspath( Artifact.SCOPE_COMPILE ), log );
+            moduleLocatorHash = classpathHash;
+        }
+        return moduleLocator;
+    }
+
+    private GwtModule findModule( String name, String classpathHash )
+        throws GwtModuleReaderException
     {
         String modulePath = name.replace( '.', '/' ) + GWT_MODULE_EXTENSION;
         Collection<String> sourceRoots = mavenProject.getCompileSourceRoots();
@@ -147,30 +181,21 @@ public class DefaultGwtModuleReader
 
         try
         {
-            Collection<File> classpath = getClasspath( Artifact.SCOPE_COMPILE );
-            URL[] urls = new URL[classpath.size()];
-            int i = 0;
-            for ( File file : classpath )
+            GwtModuleLocator locator = getModuleLocator( classpathHash );
+            File location = locator.getLocation( modulePath );
+            if ( location != null )
             {
-                urls[i++] = file.toURI().toURL();
-            }
-
-            try (
-                URLClassLoader loader = new URLClassLoader(urls);
-                InputStream stream = loader.getResourceAsStream( modulePath )
-                ) {
-
-                if ( stream != null )
+                log.debug( "GWT module " + name + " found in " + location );
+                if ( location.isDirectory() )
                 {
-                    return readModule( name, stream );
+                    return readModule( name, new File( location, modulePath ) );
                 }
-            } catch(IOException ioex) {
-                log.error(ioex.getMessage());
+                return readModule( name, locator.open( modulePath ) );
             }
         }
-        catch ( MalformedURLException e )
+        catch ( IOException e )
         {
-            // ignored;
+            log.error( e.getMessage() );
         }
         catch ( ClasspathBuilderException e )
         {
@@ -186,7 +211,9 @@ public class DefaultGwtModuleReader
     {
         try
         {
-            return readModule( name, new FileInputStream( file ) );
+            GwtModule module = readModule( name, new FileInputStream( file ) );
+            module.setSourceFile( file );
+            return module;
         }
         catch ( FileNotFoundException e )
         {
@@ -213,16 +240,6 @@ public class DefaultGwtModuleReader
     public Collection<File> getClasspath( String scope )
         throws ClasspathBuilderException
     {
-        Collection<File> files = classpathBuilder.buildClasspathList( mavenProject, scope, mavenProject.getArtifacts(), false );
-
-        if ( log.isDebugEnabled() )
-        {
-            log.debug( "GWT SDK execution classpath :" );
-            for ( File f : files )
-            {
-                log.debug( "   " + f.getAbsolutePath() );
-            }
-        }
-        return files;
+        return classpathBuilder.buildClasspathList( mavenProject, scope, mavenProject.getArtifacts(), false );
     }
 }
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2000-2025 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.integration.maven;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import junit.framework.TestCase;
+
+public class ZipManifestReaderTest extends TestCase {
+
+    private File directory;
+
+    @Override
+    protected void setUp() throws Exception {
+        directory = new File(System.getProperty("basedir", "."),
+                "target/zip-manifest-reader-test");
+        directory.mkdirs();
+    }
+
+    public void testDeflatedManifest() throws Exception {
+        File jar = new File(directory, "deflated.jar");
+        JarOutputStream out = new JarOutputStream(new FileOutputStream(jar),
+                createManifest());
+        addEntry(out, "com/example/Widgetset.gwt.xml");
+        out.close();
+
+        assertAttributes(jar);
+    }
+
+    public void testStoredManifest() throws Exception {
+        File jar = new File(directory, "stored.jar");
+        ByteArrayOutputStream manifest = new ByteArrayOutputStream();
+        createManifest().write(manifest);
+        byte[] content = manifest.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(content);
+
+        ZipOutputStream out = new ZipOutputStream(new FileOutputStream(jar));
+        addEntry(out, "com/example/Widgetset.gwt.xml");
+        ZipEntry entry = new ZipEntry("meta-inf/manifest.mf");
+        entry.setMethod(ZipEntry.STORED);
+        entry.setSize(content.length);
+        entry.setCrc(crc.getValue());
+        out.putNextEntry(entry);
+        out.write(content);
+        out.setComment("stored manifest after another entry");
+        out.close();
+
+        assertAttributes(jar);
+    }
+
+    public void testNoManifest() throws Exception {
+        File jar = new File(directory, "none.jar");
+        ZipOutputStream out = new ZipOutputStream(new FileOutputStream(jar));
+        addEntry(out, "com/example/Widgetset.gwt.xml");
+        out.close();
+
+        assertNull(ZipManifestReader.read(jar));
+    }
+
+    private static Manifest createManifest() {
+        Manifest manifest = new Manifest();
+        Attributes attributes = manifest.getMainAttributes();
+        attributes.put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        attributes.putValue("Vaadin-Widgetsets", "com.example.Widgetset");
+        attributes.putValue("Vaadin-Stylesheets", "VAADIN/addons/example.css");
+        return manifest;
+    }
+
+    private static void addEntry(ZipOutputStream out, String name)
+            throws Exception {
+        out.putNextEntry(new ZipEntry(name));
+        out.write("<module/>".getBytes("UTF-8"));
+        out.closeEntry();
+    }
+
+    private static void assertAttributes(File jar) throws Exception {
+        String[] attributes = ClassPathExplorer.readManifestAttributes(jar);
+        assertEquals("com.example.Widgetset", attributes[0]);
+        assertEquals("VAADIN/addons/example.css", attributes[1]);
+    }
+}
@@ -0,0 +1,66 @@
+package org.codehaus.mojo.gwt;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.io.FileUtils;
+
+public class BuildTraceTest
+    extends TestCase
+{
+    public void testWriteTraceEvents()
+        throws Exception
+    {
+        BuildTrace trace = BuildTrace.get( null );
+        BuildTrace.Span execution = trace.startExecution( "compile (app)" );
+        trace.start( "maven", "classpath \"compile\"" ).arg( "size", 12 ).end();
+        BuildTrace.Span fork = trace.start( "fork", "Compiler" ).arg( "mode", "fork" );
+        fork.end();
+        // ending twice records the span once
+        fork.end();
+        trace.start( "fork", "Theme" ).arg( "mode", "daemon" ).end();
+        trace.start( "fork", "wait for workers and heap" ).end();
+        trace.endExecution( execution );
+        assertEquals( "{daemon=1, fork=1}", trace.countJavaRuns( execution ).toString() );
+
+        File file = new File( System.getProperty( "basedir", "." ), "target/build-trace-test/trace.json" );
+        trace.write( file );
+        String json = FileUtils.readFileToString( file, StandardCharsets.UTF_8 );
+
+        assertTrue( json.startsWith( "{\"displayTimeUnit\":\"ms\",\"traceEvents\":[" ) );
+        assertTrue( json.contains( "\"cat\":\"maven\",\"name\":\"classpath \\\"compile\\\"\",\"args\":{\"size\":12}" ) );
+        assertTrue( json.contains( "\"name\":\"Compiler\",\"args\":{\"mode\":\"fork\"}" ) );
+        assertTrue( json.contains( "\"cat\":\"mojo\",\"name\":\"compile (app)\"" ) );
+        assertEquals( 1, json.split( "\"name\":\"Compiler\"", -1 ).length - 1 );
+        assertTrue( json.contains( "\"name\":\"thread_name\"" ) );
+    }
+
+    public void testDisabled()
+    {
+        BuildTrace.Span span = BuildTrace.DISABLED.startExecution( "compile" );
+        BuildTrace.DISABLED.start( "maven", "classpath" ).arg( "size", 1 ).end();
+        BuildTrace.DISABLED.endExecution( span );
+        assertFalse( BuildTrace.DISABLED.isEnabled() );
+    }
+}
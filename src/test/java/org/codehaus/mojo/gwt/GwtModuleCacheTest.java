@@ -0,0 +1,50 @@
+package org.codehaus.mojo.gwt;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.io.FileUtils;
+import org.codehaus.plexus.util.xml.Xpp3Dom;
+
+public class GwtModuleCacheTest
+    extends TestCase
+{
+    public void testModifiedModuleIsReadAgain()
+        throws Exception
+    {
+        File xml = new File( System.getProperty( "basedir", "." ), "target/gwt-module-cache-test/App.gwt.xml" );
+        FileUtils.writeStringToFile( xml, "<module/>" );
+        xml.setLastModified( 1000000000000L );
+
+        GwtModuleCache cache = new GwtModuleCache( null );
+        GwtModule module = new GwtModule( "com.example.App", new Xpp3Dom( "module" ), null );
+        module.setSourceFile( xml );
+        assertSame( module, cache.put( "hash", module ) );
+        assertSame( module, cache.put( "hash", new GwtModule( "com.example.App", new Xpp3Dom( "module" ), null ) ) );
+        assertSame( module, cache.get( "hash", "com.example.App" ) );
+        assertNull( cache.get( "other", "com.example.App" ) );
+
+        xml.setLastModified( 1000000001000L );
+        assertNull( cache.get( "hash", "com.example.App" ) );
+    }
+}
@@ -0,0 +1,77 @@
+package org.codehaus.mojo.gwt;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+
+public class SdkDependencyCacheTest
+    extends TestCase
+{
+    private File repository;
+
+    @Override
+    protected void setUp()
+        throws Exception
+    {
+        repository = new File( System.getProperty( "basedir", "." ), "target/sdk-dependency-cache-test" );
+        FileUtils.deleteDirectory( repository );
+    }
+
+    public void testIndexIsSharedAcrossBuilds()
+        throws Exception
+    {
+        List<File> files = Arrays.asList( createJar( "vaadin-client" ), createJar( "validation-api" ) );
+        new SdkDependencyCache( null, repository, new SystemStreamLog() )
+            .put( "com.vaadin", "vaadin-client", "8.14.3", files );
+
+        SdkDependencyCache cache = new SdkDependencyCache( null, repository, new SystemStreamLog() );
+        assertEquals( files, cache.get( "com.vaadin", "vaadin-client", "8.14.3" ) );
+        assertNull( cache.get( "com.vaadin", "vaadin-client-compiler", "8.14.3" ) );
+    }
+
+    public void testSnapshotsAndMissingFilesAreNotIndexed()
+        throws Exception
+    {
+        File jar = createJar( "vaadin-client" );
+        SdkDependencyCache cache = new SdkDependencyCache( null, repository, new SystemStreamLog() );
+        cache.put( "com.vaadin", "vaadin-client", "8.15-SNAPSHOT", Arrays.asList( jar ) );
+        cache.put( "com.vaadin", "vaadin-client", "8.14.3", Arrays.asList( jar ) );
+        jar.delete();
+
+        cache = new SdkDependencyCache( null, repository, new SystemStreamLog() );
+        assertNull( cache.get( "com.vaadin", "vaadin-client", "8.15-SNAPSHOT" ) );
+        assertNull( cache.get( "com.vaadin", "vaadin-client", "8.14.3" ) );
+    }
+
+    private File createJar( String name )
+        throws Exception
+    {
+        File jar = new File( repository, name + ".jar" );
+        FileUtils.touch( jar );
+        return jar;
+    }
+}
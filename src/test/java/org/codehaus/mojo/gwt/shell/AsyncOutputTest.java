@@ -0,0 +1,191 @@
+package org.codehaus.mojo.gwt.shell;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.io.FileUtils;
+import org.codehaus.plexus.util.cli.StreamConsumer;
+
+public class AsyncOutputTest
+    extends TestCase
+{
+    public void testLinesConsumedInOrder()
+        throws Exception
+    {
+        final List<String> out = new ArrayList<String>();
+        final List<String> err = new ArrayList<String>();
+        AsyncOutput output = new AsyncOutput( "test", 4 );
+        output.start();
+        final StreamConsumer wrappedOut = output.wrap( new ListConsumer( out ) );
+        final StreamConsumer wrappedErr = output.wrap( new ListConsumer( err ) );
+        Thread errPump = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    for ( int i = 0; i < 1000; i++ )
+                    {
+                        wrappedErr.consumeLine( "err " + i );
+                    }
+                }
+                catch ( IOException e )
+                {
+                    throw new IllegalStateException( e );
+                }
+            }
+        };
+        errPump.start();
+        for ( int i = 0; i < 1000; i++ )
+        {
+            wrappedOut.consumeLine( "out " + i );
+        }
+        errPump.join();
+        output.close();
+
+        assertEquals( 1000, out.size() );
+        assertEquals( 1000, err.size() );
+        for ( int i = 0; i < 1000; i++ )
+        {
+            assertEquals( "out " + i, out.get( i ) );
+            assertEquals( "err " + i, err.get( i ) );
+        }
+
+        // after close, lines are passed on directly
+        wrappedOut.consumeLine( "late" );
+        assertEquals( "late", out.get( 1000 ) );
+    }
+
+    public void testLinesTimedWhenRead()
+        throws Exception
+    {
+        final List<Long> times = new ArrayList<Long>();
+        AsyncOutput output = new AsyncOutput( "test", 10 );
+        output.start();
+        StreamConsumer wrapped = output.wrap( new TimedStreamConsumer()
+        {
+            public void consumeLine( String line )
+            {
+                fail( "timed consumer expected" );
+            }
+
+            public void consumeLine( String line, long time )
+                throws IOException
+            {
+                times.add( time );
+                try
+                {
+                    // slow consumer, such as a console
+                    Thread.sleep( 20 );
+                }
+                catch ( InterruptedException e )
+                {
+                    throw new IOException( e );
+                }
+            }
+        } );
+        long[] read = new long[5];
+        for ( int i = 0; i < read.length; i++ )
+        {
+            wrapped.consumeLine( "line " + i );
+            read[i] = System.nanoTime();
+        }
+        output.close();
+
+        assertEquals( read.length, times.size() );
+        for ( int i = 0; i < read.length; i++ )
+        {
+            assertTrue( times.get( i ) <= read[i] );
+        }
+    }
+
+    public void testFailingConsumer()
+        throws Exception
+    {
+        final List<String> lines = new ArrayList<String>();
+        AsyncOutput output = new AsyncOutput( "test", 2 );
+        output.start();
+        StreamConsumer wrapped = output.wrap( new StreamConsumer()
+        {
+            public void consumeLine( String line )
+            {
+                lines.add( line );
+                throw new IllegalStateException( "broken consumer" );
+            }
+        } );
+        // the buffer must keep being drained
+        for ( int i = 0; i < 100; i++ )
+        {
+            wrapped.consumeLine( "line " + i );
+        }
+        try
+        {
+            output.close();
+            fail( "consumer failure expected" );
+        }
+        catch ( IOException e )
+        {
+            assertTrue( e.getCause() instanceof IllegalStateException );
+        }
+        assertEquals( 100, lines.size() );
+    }
+
+    public void testSpillEchoesProblems()
+        throws Exception
+    {
+        File directory = new File( System.getProperty( "basedir", "." ), "target/async-output-test" );
+        FileUtils.deleteDirectory( directory );
+        OutputSpill spill = new OutputSpill( directory, "Compiler" );
+        assertFalse( spill.write( "Compiling module com.example.Widgetset", false ) );
+        assertTrue( spill.write( "   [WARN] Warning in 'jar:file:x.jar!/Foo.java'", false ) );
+        assertTrue( spill.write( "[ERROR] Hint: Check the inheritance chain", false ) );
+        assertTrue( spill.write( "Exception in thread \"main\" java.lang.OutOfMemoryError", false ) );
+        assertTrue( spill.write( "Picked up JAVA_TOOL_OPTIONS", true ) );
+        spill.close();
+
+        assertEquals( 5, spill.getLines() );
+        assertTrue( spill.getFile().getName().startsWith( "Compiler-" ) );
+        assertEquals( 5, FileUtils.readLines( spill.getFile(), StandardCharsets.UTF_8 ).size() );
+    }
+
+    private static class ListConsumer
+        implements StreamConsumer
+    {
+        private final List<String> lines;
+
+        ListConsumer( List<String> lines )
+        {
+            this.lines = lines;
+        }
+
+        public void consumeLine( String line )
+        {
+            lines.add( line );
+        }
+    }
+}
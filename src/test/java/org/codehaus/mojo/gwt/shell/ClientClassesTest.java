@@ -0,0 +1,152 @@
+package org.codehaus.mojo.gwt.shell;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.codehaus.mojo.gwt.GwtModule;
+import org.codehaus.plexus.util.xml.Xpp3Dom;
+import org.codehaus.plexus.util.xml.Xpp3DomBuilder;
+
+public class ClientClassesTest
+    extends TestCase
+{
+    private File sources;
+
+    private File client;
+
+    private File classes;
+
+    @Override
+    protected void setUp()
+        throws Exception
+    {
+        File basedir = new File( System.getProperty( "basedir", "." ), "target/client-classes-test" );
+        FileUtils.deleteDirectory( basedir );
+        sources = new File( basedir, "src" );
+        client = new File( sources, "com/example/client" );
+        classes = new File( basedir, "classes" );
+        write( "App", "public class App { Object widget() { return new Widget(); } }" );
+        write( "Widget", "public class Widget { }" );
+        write( "Service", "public class Service { }" );
+    }
+
+    public void testServerOnlySource()
+        throws Exception
+    {
+        assertEquals( Collections.singleton( new File( client, "Service.java" ) ), getServerOnlySources() );
+    }
+
+    public void testInlinedConstant()
+        throws Exception
+    {
+        write( "Limits", "public class Limits { public static final int MAX = 3; }" );
+        write( "App", "public class App { int max() { return Limits.MAX; } }" );
+        assertFalse( getServerOnlySources().contains( new File( client, "Limits.java" ) ) );
+    }
+
+    public void testSourceRetentionAnnotation()
+        throws Exception
+    {
+        write( "Marker", "@java.lang.annotation.Retention( java.lang.annotation.RetentionPolicy.SOURCE ) "
+            + "public @interface Marker { }" );
+        write( "App", "@Marker public class App { }" );
+        assertFalse( getServerOnlySources().contains( new File( client, "Marker.java" ) ) );
+    }
+
+    public void testJsniReference()
+        throws Exception
+    {
+        write( "Helper", "public class Helper { public static class Nested { static void run() { } } }" );
+        write( "App", "public class App { native void run() /*-{ "
+            + "@com.example.client.Helper.Nested::run()(); }-*/; }" );
+        Set<File> serverOnly = getServerOnlySources();
+        assertFalse( serverOnly.contains( new File( client, "Helper.java" ) ) );
+        assertTrue( serverOnly.contains( new File( client, "Widget.java" ) ) );
+    }
+
+    public void testBindingClass()
+        throws Exception
+    {
+        write( "WidgetImpl", "public class WidgetImpl extends Widget { }" );
+        Xpp3Dom xml = Xpp3DomBuilder.build( new StringReader(
+            "<module><replace-with class='com.example.client.WidgetImpl'>"
+                + "<any><when-type-is class='com.example.client.Widget'/></any></replace-with></module>" ) );
+        Set<String> bindingClasses = new GwtModule( "com.example.App", xml, null ).getBindingClasses();
+        assertTrue( bindingClasses.contains( "com.example.client.WidgetImpl" ) );
+        assertTrue( bindingClasses.contains( "com.example.client.Widget" ) );
+
+        List<String> roots = new ArrayList<String>( bindingClasses );
+        roots.add( "com.example.client.App" );
+        assertEquals( Collections.singleton( new File( client, "Service.java" ) ), getServerOnlySources( roots ) );
+    }
+
+    private void write( String name, String body )
+        throws Exception
+    {
+        FileUtils.writeStringToFile( new File( client, name + ".java" ), "package com.example.client; " + body,
+                                     "UTF-8" );
+    }
+
+    private Set<File> getServerOnlySources()
+        throws Exception
+    {
+        return getServerOnlySources( Collections.singletonList( "com.example.client.App" ) );
+    }
+
+    private Set<File> getServerOnlySources( List<String> roots )
+        throws Exception
+    {
+        FileUtils.deleteDirectory( classes );
+        classes.mkdirs();
+        List<String> args = new ArrayList<String>();
+        args.add( "-d" );
+        args.add( classes.getAbsolutePath() );
+        for ( File file : client.listFiles() )
+        {
+            args.add( file.getAbsolutePath() );
+        }
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        assertEquals( 0, compiler.run( null, null, null, args.toArray( new String[args.size()] ) ) );
+
+        ClientClasses clientClasses =
+            new ClientClasses( classes, Collections.<File>emptyList(), new SystemStreamLog() );
+        try
+        {
+            return clientClasses.getServerOnlySources( Collections.singletonMap( client, sources ), roots );
+        }
+        finally
+        {
+            clientClasses.close();
+        }
+    }
+}
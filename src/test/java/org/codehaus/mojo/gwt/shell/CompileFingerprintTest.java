@@ -0,0 +1,105 @@
+package org.codehaus.mojo.gwt.shell;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.io.FileUtils;
+
+public class CompileFingerprintTest
+    extends TestCase
+{
+    private File basedir;
+
+    @Override
+    protected void setUp()
+        throws Exception
+    {
+        basedir = new File( System.getProperty( "basedir", "." ), "target/fingerprint-test" );
+        FileUtils.deleteDirectory( basedir );
+    }
+
+    public void testSameContentInDifferentLocations()
+        throws Exception
+    {
+        File first = createSources( "first", "class A {}" );
+        File second = createSources( "second", "class A {}" );
+
+        assertEquals( new CompileFingerprint().addDirectory( "client", first ).getValue(),
+                      new CompileFingerprint().addDirectory( "client", second ).getValue() );
+    }
+
+    public void testContentChange()
+        throws Exception
+    {
+        File sources = createSources( "sources", "class A {}" );
+        String before = new CompileFingerprint().addDirectory( "client", sources ).getValue();
+
+        FileUtils.writeStringToFile( new File( sources, "com/acme/A.java" ), "class A { int a; }",
+                                     StandardCharsets.UTF_8 );
+
+        assertFalse( before.equals( new CompileFingerprint().addDirectory( "client", sources ).getValue() ) );
+    }
+
+    public void testReadWrite()
+        throws Exception
+    {
+        File file = new File( basedir, "Module.sha1" );
+        assertNull( CompileFingerprint.read( file ) );
+
+        String value = new CompileFingerprint().add( "vaadin", "8.28.0" ).getValue();
+        CompileFingerprint.write( file, value );
+
+        assertEquals( value, CompileFingerprint.read( file ) );
+    }
+
+    public void testInputsWithDigestCache()
+        throws Exception
+    {
+        File sources = createSources( "sources", "class A {}" );
+        File java = new File( sources, "com/acme/A.java" );
+        java.setLastModified( java.lastModified() - 10000 );
+        File cacheFile = new File( basedir, "digests.properties" );
+
+        FileDigestCache digests = new FileDigestCache( cacheFile );
+        CompileFingerprint fingerprint = new CompileFingerprint( digests ).addDirectory( "client", sources );
+        File inputsFile = new File( basedir, "Module.inputs" );
+        CompileFingerprint.writeInputs( inputsFile, fingerprint.getInputs() );
+        String value = fingerprint.getValue();
+        digests.save();
+
+        assertEquals( value, new CompileFingerprint().addDirectory( "client", sources ).getValue() );
+        assertEquals( value, new CompileFingerprint( new FileDigestCache( cacheFile ) ).addDirectory( "client",
+                                                                                                     sources ).getValue() );
+        assertEquals( 1, CompileFingerprint.readInputs( inputsFile ).size() );
+        assertTrue( CompileFingerprint.readInputs( inputsFile ).containsKey( "client:com/acme/A.java" ) );
+    }
+
+    private File createSources( String name, String content )
+        throws Exception
+    {
+        File directory = new File( basedir, name );
+        FileUtils.writeStringToFile( new File( directory, "com/acme/A.java" ), content, StandardCharsets.UTF_8 );
+        return directory;
+    }
+}
@@ -0,0 +1,113 @@
+package org.codehaus.mojo.gwt.shell;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.io.FileUtils;
+import org.codehaus.plexus.util.cli.StreamConsumer;
+
+public class CompilerOutputParserTest
+    extends TestCase
+{
+    private static final long SECOND = 1000000000L;
+
+    private final List<String> lines = new ArrayList<String>();
+
+    private final StreamConsumer collector = new StreamConsumer()
+    {
+        public void consumeLine( String line )
+        {
+            lines.add( line );
+        }
+    };
+
+    public void testSingleWorker()
+        throws Exception
+    {
+        CompilerOutputParser parser =
+            new CompilerOutputParser( collector, Arrays.asList( "-localWorkers", "1", "com.acme.Widgetset" ) );
+        parser.consumeLine( "Compiling module com.acme.Widgetset" );
+        assertEquals( Arrays.asList( "Compiling module com.acme.Widgetset" ), lines );
+
+        parser.parse( "Compiling module com.acme.Widgetset", 0 );
+        parser.parse( "Compiling 2 permutations", 10 * SECOND );
+        parser.parse( "Compiling permutation 0...", 10 * SECOND );
+        parser.parse( "Compiling permutation 1...", 25 * SECOND );
+        parser.parse( "Compile of permutations succeeded", 45 * SECOND );
+        parser.parse( "Compilation succeeded -- 45,125s", 45 * SECOND );
+        parser.parse( "Linking into /project/target/classes/VAADIN/widgetsets/com.acme.Widgetset", 46 * SECOND );
+        parser.parse( "Link succeeded", 48 * SECOND );
+        parser.parse( "Linking succeeded -- 2.000s", 48 * SECOND );
+
+        List<CompileMetrics.Module> modules = parser.getModules();
+        assertEquals( 2, modules.size() );
+        CompileMetrics.Module module = modules.get( 1 );
+        assertEquals( "com.acme.Widgetset", module.getName() );
+        assertTrue( module.isSucceeded() );
+        assertEquals( 2, module.getPermutationCount() );
+        assertEquals( 10.0, module.getPrecompile(), 0.001 );
+        assertEquals( 45.125, module.getCompile(), 0.001 );
+        assertEquals( 2.0, module.getLink(), 0.001 );
+        assertEquals( 47.125, module.getTotal(), 0.001 );
+        assertEquals( 15.0, module.getPermutations().get( 0 ).getDuration(), 0.001 );
+        assertEquals( 20.0, module.getPermutations().get( 1 ).getDuration(), 0.001 );
+
+        CompileMetrics metrics = new CompileMetrics( "acme" );
+        metrics.add( modules.subList( 1, 2 ) );
+        File basedir = new File( System.getProperty( "basedir", "." ), "target/compiler-output-parser-test" );
+        metrics.writeJson( new File( basedir, "metrics.json" ) );
+        metrics.writePrometheus( new File( basedir, "metrics.prom" ) );
+        String json = FileUtils.readFileToString( new File( basedir, "metrics.json" ), StandardCharsets.UTF_8 );
+        assertTrue( json.contains( "\"module\": \"com.acme.Widgetset\"" ) );
+        assertTrue( json.contains( "\"permutations\": 2" ) );
+        assertTrue( json.contains( "{ \"id\": 1, \"startSeconds\": 25.000, \"seconds\": 20.000 }" ) );
+        String prometheus = FileUtils.readFileToString( new File( basedir, "metrics.prom" ), StandardCharsets.UTF_8 );
+        assertTrue( prometheus.contains( "# TYPE gwt_compile_total_seconds gauge\n"
+            + "gwt_compile_total_seconds{project=\"acme\",module=\"com.acme.Widgetset\"} 47.125\n" ) );
+        assertTrue( prometheus.contains(
+            "gwt_compile_permutation_seconds{project=\"acme\",module=\"com.acme.Widgetset\",permutation=\"0\"} 15.000" ) );
+    }
+
+    public void testParallelWorkersAndFailure()
+    {
+        CompilerOutputParser parser =
+            new CompilerOutputParser( collector, Arrays.asList( "-localWorkers", "4", "com.acme.Widgetset" ) );
+        parser.parse( "Compiling module com.acme.Widgetset", 0 );
+        parser.parse( "Compiling 3 permutations", 5 * SECOND );
+        parser.parse( "Compiling permutation 0...", 5 * SECOND );
+        parser.parse( "Compiling permutation 1...", 5 * SECOND );
+        parser.parse( "[ERROR] Errors in 'com/acme/client/Widget.java'", 6 * SECOND );
+
+        CompileMetrics.Module module = parser.getModules().get( 0 );
+        assertFalse( module.isSucceeded() );
+        assertEquals( 3, module.getPermutationCount() );
+        // durations of permutations compiled in parallel are unknown
+        assertEquals( -1.0, module.getPermutations().get( 0 ).getDuration(), 0 );
+        assertEquals( -1.0, module.getCompile(), 0 );
+        assertTrue( module.getTotal() > 0 );
+    }
+}
@@ -0,0 +1,116 @@
+package org.codehaus.mojo.gwt.shell;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.io.FileUtils;
+
+public class ContainerLimitsTest
+    extends TestCase
+{
+    private File basedir;
+
+    @Override
+    protected void setUp()
+        throws Exception
+    {
+        basedir = new File( System.getProperty( "basedir", "." ), "target/container-limits-test" );
+        FileUtils.deleteDirectory( basedir );
+    }
+
+    public void testCgroupV2()
+        throws Exception
+    {
+        write( "cgroup", "0::/kubepods/pod1\n" );
+        write( "fs/cgroup.controllers", "cpu memory" );
+        write( "fs/cpu.max", "max 100000" );
+        write( "fs/memory.max", "max" );
+        write( "fs/kubepods/pod1/cpu.max", "250000 100000" );
+        write( "fs/kubepods/pod1/memory.max", "4294967296" );
+        write( "fs/kubepods/memory.max", "2147483648" );
+
+        ContainerLimits limits = new ContainerLimits( new File( basedir, "fs" ), new File( basedir, "cgroup" ) );
+        assertEquals( 3, limits.getProcessors() );
+        // the limit of the parent group applies
+        assertEquals( 2147483648L, limits.getMemory() );
+    }
+
+    public void testCgroupV1WithinContainer()
+        throws Exception
+    {
+        // the group of the process is mounted as the root of the container
+        write( "cgroup", "4:memory:/docker/abc\n3:cpu,cpuacct:/docker/abc\n0::/\n" );
+        write( "fs/cpu/cpu.cfs_quota_us", "-1" );
+        write( "fs/cpu/cpu.cfs_period_us", "100000" );
+        write( "fs/memory/memory.limit_in_bytes", "9223372036854771712" );
+
+        ContainerLimits limits = new ContainerLimits( new File( basedir, "fs" ), new File( basedir, "cgroup" ) );
+        assertEquals( 0, limits.getProcessors() );
+        assertEquals( 0, limits.getMemory() );
+
+        write( "fs/cpu/cpu.cfs_quota_us", "150000" );
+        write( "fs/memory/memory.limit_in_bytes", "1073741824" );
+        assertEquals( 2, limits.getProcessors() );
+        assertEquals( 1073741824L, limits.getMemory() );
+    }
+
+    public void testNoCgroup()
+    {
+        ContainerLimits limits = new ContainerLimits( new File( basedir, "fs" ), new File( basedir, "cgroup" ) );
+        assertEquals( 0, limits.getProcessors() );
+        assertEquals( 0, limits.getMemory() );
+    }
+
+    public void testAdaptiveSizing()
+    {
+        // one worker per permutation, up to the processors
+        AdaptiveSizing sizing = AdaptiveSizing.compute( 8, 16384, 3, 512 );
+        assertEquals( 3, sizing.getWorkers() );
+        assertEquals( 512 + 3 * 512, sizing.getHeap() );
+
+        sizing = AdaptiveSizing.compute( 4, 16384, 10, 512 );
+        assertEquals( 4, sizing.getWorkers() );
+
+        // workers are removed until the heap fits
+        sizing = AdaptiveSizing.compute( 8, 2048, 10, 512 );
+        assertEquals( 3, sizing.getWorkers() );
+        assertEquals( 2048, sizing.getHeap() );
+
+        // a single worker gets what there is
+        sizing = AdaptiveSizing.compute( 8, 768, 10, 512 );
+        assertEquals( 1, sizing.getWorkers() );
+        assertEquals( 768, sizing.getHeap() );
+
+        // unknown memory
+        sizing = AdaptiveSizing.compute( 2, 0, 1, 512 );
+        assertEquals( 1, sizing.getWorkers() );
+        assertEquals( 1024, sizing.getHeap() );
+    }
+
+    private void write( String path, String content )
+        throws Exception
+    {
+        FileUtils.writeStringToFile( new File( basedir, path ), content, StandardCharsets.UTF_8 );
+    }
+}
@@ -0,0 +1,71 @@
+package org.codehaus.mojo.gwt.shell;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.io.FileUtils;
+
+public class PerformanceReportTest
+    extends TestCase
+{
+    public void testAppendRecords()
+        throws Exception
+    {
+        File basedir = new File( System.getProperty( "basedir", "." ), "target/performance-report-test" );
+        FileUtils.deleteDirectory( basedir );
+        File report = new File( basedir, "perf-report.jsonl" );
+        Map<String, Integer> runs = new TreeMap<String, Integer>();
+        runs.put( "daemon", 1 );
+        runs.put( "fork", 2 );
+
+        new PerformanceReport().put( "scenario", "warm" ).put( "goal", "compile" ).put( "execution", null )
+            .put( "wallMs", 1250L ).put( "javaRuns", runs ).put( "succeeded", true ).append( report );
+        new PerformanceReport().put( "goal", "css \"x\"\n" ).append( report );
+
+        List<String> lines = FileUtils.readLines( report, StandardCharsets.UTF_8 );
+        assertEquals( 2, lines.size() );
+        assertTrue( lines.get( 0 ).matches( "\\{\"timestamp\": \\d+, \"scenario\": \"warm\", \"goal\": \"compile\", "
+            + "\"wallMs\": 1250, \"javaRuns\": \\{\"daemon\": 1, \"fork\": 2\\}, \"succeeded\": true\\}" ) );
+        assertTrue( lines.get( 1 ).endsWith( "\"goal\": \"css \\\"x\\\"\\n\"}" ) );
+    }
+
+    public void testBytesWritten()
+        throws Exception
+    {
+        File basedir = new File( System.getProperty( "basedir", "." ), "target/performance-report-test/project" );
+        FileUtils.deleteDirectory( basedir );
+        File old = new File( basedir, "src/Old.java" );
+        FileUtils.writeStringToFile( old, "class Old {}", StandardCharsets.UTF_8 );
+        old.setLastModified( System.currentTimeMillis() - 60000 );
+        long start = System.currentTimeMillis();
+        FileUtils.writeStringToFile( new File( basedir, "target/out.js" ), "0123456789", StandardCharsets.UTF_8 );
+        FileUtils.writeStringToFile( new File( basedir, "build.log" ), "[INFO] building", StandardCharsets.UTF_8 );
+
+        assertEquals( 10, PerformanceReport.getBytesWritten( basedir, start ) );
+        assertEquals( 0, PerformanceReport.getBytesWritten( new File( basedir, "missing" ), start ) );
+    }
+}
@@ -0,0 +1,81 @@
+package org.codehaus.mojo.gwt.shell;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+
+public class WidgetsetCacheTest
+    extends TestCase
+{
+    private File basedir;
+
+    @Override
+    protected void setUp()
+        throws Exception
+    {
+        basedir = new File( System.getProperty( "basedir", "." ), "target/widgetset-cache-test" );
+        FileUtils.deleteDirectory( basedir );
+    }
+
+    public void testStoreAndRestore()
+        throws Exception
+    {
+        WidgetsetCache cache = new WidgetsetCache( new File( basedir, "cache" ), 1024 * 1024, new SystemStreamLog() );
+        File output = createModule( "first", "content" );
+        File restored = new File( basedir, "second/com.acme.Widgetset" );
+
+        assertFalse( cache.restore( "abc", restored, null ) );
+        cache.store( "abc", output, null );
+        assertTrue( cache.restore( "abc", restored, null ) );
+        assertEquals( "content", FileUtils.readFileToString( new File( restored, "com.acme.Widgetset.nocache.js" ),
+                                                             StandardCharsets.UTF_8 ) );
+
+        // an entry without extra output can't be used when extra output is required
+        assertFalse( cache.restore( "abc", restored, new File( basedir, "extra" ) ) );
+    }
+
+    public void testEvictLeastRecentlyUsed()
+        throws Exception
+    {
+        File directory = new File( basedir, "cache" );
+        WidgetsetCache cache = new WidgetsetCache( directory, 15, new SystemStreamLog() );
+        cache.store( "old", createModule( "old", "0123456789" ), null );
+        new File( directory, "old" ).setLastModified( System.currentTimeMillis() - 60000 );
+        cache.store( "new", createModule( "new", "0123456789" ), null );
+
+        assertFalse( new File( directory, "old" ).exists() );
+        assertTrue( new File( directory, "new" ).exists() );
+    }
+
+    private File createModule( String name, String content )
+        throws Exception
+    {
+        File module = new File( basedir, name + "/com.acme.Widgetset" );
+        FileUtils.writeStringToFile( new File( module, "com.acme.Widgetset.nocache.js" ), content,
+                                     StandardCharsets.UTF_8 );
+        return module;
+    }
+}